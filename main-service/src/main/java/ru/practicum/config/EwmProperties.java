@@ -0,0 +1,42 @@
+package ru.practicum.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "ewm")
+public class EwmProperties {
+
+    // The app hits of this service are recorded under in stats-server.
+    private String app = "ewm-main-service";
+
+    private Views views = new Views();
+
+    private Search search = new Search();
+
+    @Data
+    public static class Views {
+
+        // Copy unique views per event from stats-server onto the event rows in the background.
+        private boolean enabled = true;
+
+        private Duration refreshInterval = Duration.ofSeconds(30);
+
+        // Events per stats-server query and per JDBC batch.
+        private int batchSize = 500;
+    }
+
+    @Data
+    public static class Search {
+
+        // Filters of public event searches whose page boundaries are remembered.
+        private int maxFilters = 10_000;
+
+        private int maxAnchorsPerFilter = 100;
+
+        // Boundaries drift as views and confirmed requests change, so they are only kept for a while.
+        private Duration anchorTtl = Duration.ofMinutes(5);
+    }
+}
@@ -0,0 +1,32 @@
+package ru.practicum.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.practicum.StatsClient;
+import ru.practicum.impl.StatsClientImpl;
+
+@Configuration
+public class StatsClientConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "stats-client")
+    public StatsClientProperties statsClientProperties() {
+        return new StatsClientProperties();
+    }
+
+    // the parts of the client are no beans, so their meters are bound through the client
+    @Bean
+    public MeterBinder statsClientMetrics(StatsClient statsClient) {
+        return registry -> {
+            if (statsClient instanceof StatsClientImpl client) {
+                client.getConnectionPoolMetrics().ifPresent(metrics -> metrics.bindTo(registry));
+                client.getHitBatcher().ifPresent(batcher -> batcher.bindTo(registry));
+                client.getStatsCache().ifPresent(cache -> cache.bindTo(registry));
+                client.getCircuitBreaker().ifPresent(breaker -> breaker.bindTo(registry));
+                client.getSpillFile().ifPresent(spill -> spill.bindTo(registry));
+            }
+        };
+    }
+}
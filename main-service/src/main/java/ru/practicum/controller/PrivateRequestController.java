@@ -0,0 +1,30 @@
+package ru.practicum.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import ru.practicum.dto.EventRequestStatusUpdateRequest;
+import ru.practicum.dto.EventRequestStatusUpdateResult;
+import ru.practicum.dto.ParticipationRequestDto;
+import ru.practicum.service.RequestService;
+
+@RestController
+@RequestMapping("/users/{userId}")
+@RequiredArgsConstructor
+public class PrivateRequestController {
+
+    private final RequestService requestService;
+
+    @PostMapping("/requests")
+    @ResponseStatus(HttpStatus.CREATED)
+    public ParticipationRequestDto create(@PathVariable long userId, @RequestParam long eventId) {
+        return requestService.create(userId, eventId);
+    }
+
+    @PatchMapping("/events/{eventId}/requests")
+    @ResponseStatus(HttpStatus.OK)
+    public EventRequestStatusUpdateResult updateStatuses(@PathVariable long userId, @PathVariable long eventId,
+                                                         @RequestBody EventRequestStatusUpdateRequest update) {
+        return requestService.updateStatuses(userId, eventId, update);
+    }
+}
@@ -0,0 +1,70 @@
+package ru.practicum.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import ru.practicum.StatsClient;
+import ru.practicum.config.EwmProperties;
+import ru.practicum.dto.EventFullDto;
+import ru.practicum.dto.EventShortDto;
+import ru.practicum.exception.ValidationException;
+import ru.practicum.model.EventFilter;
+import ru.practicum.model.EventSort;
+import ru.practicum.service.EventService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Public event pages. Every processed request is recorded as a hit in stats-server; the views these
+ * hits add show up on the events after the next views refresh.
+ */
+@RestController
+@RequestMapping("/events")
+@RequiredArgsConstructor
+public class PublicEventController {
+
+    private final EventService eventService;
+    private final StatsClient statsClient;
+    private final EwmProperties ewmProperties;
+
+    @GetMapping
+    @ResponseStatus(HttpStatus.OK)
+    public List<EventShortDto> search(@RequestParam(required = false) String text,
+                                      @RequestParam(required = false) List<Long> categories,
+                                      @RequestParam(required = false) Boolean paid,
+                                      @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeStart,
+                                      @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeEnd,
+                                      @RequestParam(defaultValue = "false") boolean onlyAvailable,
+                                      @RequestParam(required = false) String sort,
+                                      @RequestParam(defaultValue = "0") int from,
+                                      @RequestParam(defaultValue = "10") int size,
+                                      HttpServletRequest request) {
+        if (from < 0 || size <= 0) {
+            throw new ValidationException("from must not be negative and size must be positive.");
+        }
+        LocalDateTime start = rangeStart != null ? rangeStart : LocalDateTime.now();
+        if (rangeEnd != null && start.isAfter(rangeEnd)) {
+            throw new ValidationException("The range start must not be after the range end.");
+        }
+        EventFilter filter = new EventFilter(text, categories, paid, start, rangeEnd, onlyAvailable,
+                EventSort.parse(sort));
+        List<EventShortDto> events = eventService.search(filter, from, size);
+        saveHit(request);
+        return events;
+    }
+
+    @GetMapping("/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    public EventFullDto get(@PathVariable long id, HttpServletRequest request) {
+        EventFullDto event = eventService.getPublished(id);
+        saveHit(request);
+        return event;
+    }
+
+    private void saveHit(HttpServletRequest request) {
+        statsClient.saveHit(ewmProperties.getApp(), request.getRequestURI(), request.getRemoteAddr());
+    }
+}
@@ -0,0 +1,13 @@
+package ru.practicum.dto;
+
+import lombok.*;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CategoryDto {
+
+    private Long id;
+
+    private String name;
+}
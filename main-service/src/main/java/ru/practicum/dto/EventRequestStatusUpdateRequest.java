@@ -0,0 +1,16 @@
+package ru.practicum.dto;
+
+import lombok.*;
+import ru.practicum.model.RequestStatus;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EventRequestStatusUpdateRequest {
+
+    private List<Long> requestIds;
+
+    private RequestStatus status;
+}
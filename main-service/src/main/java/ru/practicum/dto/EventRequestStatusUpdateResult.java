@@ -0,0 +1,15 @@
+package ru.practicum.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EventRequestStatusUpdateResult {
+
+    private List<ParticipationRequestDto> confirmedRequests;
+
+    private List<ParticipationRequestDto> rejectedRequests;
+}
@@ -0,0 +1,30 @@
+package ru.practicum.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+public class EventShortDto {
+
+    private Long id;
+
+    private String title;
+
+    private String annotation;
+
+    private CategoryDto category;
+
+    private UserShortDto initiator;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime eventDate;
+
+    private Boolean paid;
+
+    private Long confirmedRequests;
+
+    private Long views;
+}
@@ -0,0 +1,24 @@
+package ru.practicum.exception;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class ApiError {
+
+    private final List<String> errors;
+
+    private final String message;
+
+    private final String reason;
+
+    private final String status;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private final LocalDateTime timestamp;
+}
@@ -0,0 +1,51 @@
+package ru.practicum.exception.handler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.MissingServletRequestParameterException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import ru.practicum.exception.ApiError;
+import ru.practicum.exception.ConflictException;
+import ru.practicum.exception.NotFoundException;
+import ru.practicum.exception.ValidationException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Slf4j
+@RestControllerAdvice
+public class ErrorHandler {
+
+    @ExceptionHandler({ValidationException.class, MissingServletRequestParameterException.class,
+            MethodArgumentTypeMismatchException.class})
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ApiError handleValidationException(final Exception e) {
+        return error(HttpStatus.BAD_REQUEST, "Incorrectly made request.", e);
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public ApiError handleNotFoundException(final NotFoundException e) {
+        return error(HttpStatus.NOT_FOUND, "The required object was not found.", e);
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ApiError handleConflictException(final ConflictException e) {
+        return error(HttpStatus.CONFLICT, "For the requested operation the conditions are not met.", e);
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+    public ApiError handleUncaught(final Exception e) {
+        log.error("Request failed: {}", e.getMessage(), e);
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error.", e);
+    }
+
+    private static ApiError error(HttpStatus status, String reason, Exception e) {
+        return new ApiError(List.of(), e.getMessage(), reason, status.name(), LocalDateTime.now());
+    }
+}
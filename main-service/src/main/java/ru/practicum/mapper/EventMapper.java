@@ -0,0 +1,46 @@
+package ru.practicum.mapper;
+
+import lombok.experimental.UtilityClass;
+import ru.practicum.dto.CategoryDto;
+import ru.practicum.dto.EventFullDto;
+import ru.practicum.dto.EventShortDto;
+import ru.practicum.dto.LocationDto;
+import ru.practicum.dto.UserShortDto;
+import ru.practicum.model.Event;
+
+@UtilityClass
+public class EventMapper {
+
+    public static EventShortDto toEventShortDto(Event event) {
+        EventShortDto dto = new EventShortDto();
+        fill(dto, event);
+        return dto;
+    }
+
+    public static EventFullDto toEventFullDto(Event event) {
+        EventFullDto dto = new EventFullDto();
+        fill(dto, event);
+        dto.setDescription(event.getDescription());
+        if (event.getLocation() != null) {
+            dto.setLocation(new LocationDto(event.getLocation().getLat(), event.getLocation().getLon()));
+        }
+        dto.setParticipantLimit(event.getParticipantLimit());
+        dto.setRequestModeration(event.isRequestModeration());
+        dto.setState(event.getState().name());
+        dto.setCreatedOn(event.getCreatedOn());
+        dto.setPublishedOn(event.getPublishedOn());
+        return dto;
+    }
+
+    private static void fill(EventShortDto dto, Event event) {
+        dto.setId(event.getId());
+        dto.setTitle(event.getTitle());
+        dto.setAnnotation(event.getAnnotation());
+        dto.setCategory(new CategoryDto(event.getCategory().getId(), event.getCategory().getName()));
+        dto.setInitiator(new UserShortDto(event.getInitiator().getId(), event.getInitiator().getName()));
+        dto.setEventDate(event.getEventDate());
+        dto.setPaid(event.isPaid());
+        dto.setConfirmedRequests(event.getConfirmedRequests());
+        dto.setViews(event.getViews());
+    }
+}
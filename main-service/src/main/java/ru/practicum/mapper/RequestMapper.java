@@ -0,0 +1,14 @@
+package ru.practicum.mapper;
+
+import lombok.experimental.UtilityClass;
+import ru.practicum.dto.ParticipationRequestDto;
+import ru.practicum.model.ParticipationRequest;
+
+@UtilityClass
+public class RequestMapper {
+
+    public static ParticipationRequestDto toParticipationRequestDto(ParticipationRequest request) {
+        return new ParticipationRequestDto(request.getId(), request.getCreated(), request.getEvent().getId(),
+                request.getRequester().getId(), request.getStatus().name());
+    }
+}
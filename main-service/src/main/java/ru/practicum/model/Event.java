@@ -0,0 +1,77 @@
+package ru.practicum.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * An event with its counters of confirmed requests and views kept on the row, so that pages of
+ * events can be filtered and sorted by them in the database. The counters are only ever changed by
+ * {@link ru.practicum.repository.EventCounterRepository}; saving an event never writes them, so a
+ * stale entity cannot undo increments made meanwhile.
+ */
+@Entity
+@Table(name = "events")
+@Getter
+@Setter
+@NoArgsConstructor
+public class Event {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String title;
+
+    private String annotation;
+
+    private String description;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "category_id")
+    private Category category;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "initiator_id")
+    private User initiator;
+
+    private LocalDateTime eventDate;
+
+    private LocalDateTime createdOn;
+
+    private LocalDateTime publishedOn;
+
+    @Embedded
+    private Location location;
+
+    private boolean paid;
+
+    // zero means no limit
+    private int participantLimit;
+
+    private boolean requestModeration = true;
+
+    @Enumerated(EnumType.STRING)
+    private EventState state;
+
+    @Column(insertable = false, updatable = false)
+    private long confirmedRequests;
+
+    @Column(insertable = false, updatable = false)
+    private long views;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Event other))
+            return false;
+        return id != null && id.equals(other.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Event.class.hashCode();
+    }
+}
@@ -0,0 +1,11 @@
+package ru.practicum.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The filters of public {@code GET /events}; {@code rangeStart} is always set, to now when the request has none.
+ */
+public record EventFilter(String text, List<Long> categories, Boolean paid, LocalDateTime rangeStart,
+                          LocalDateTime rangeEnd, boolean onlyAvailable, EventSort sort) {
+}
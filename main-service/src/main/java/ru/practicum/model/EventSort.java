@@ -0,0 +1,20 @@
+package ru.practicum.model;
+
+import ru.practicum.exception.ValidationException;
+
+public enum EventSort {
+    EVENT_DATE,
+    VIEWS;
+
+    public static EventSort parse(String value) {
+        if (value == null) {
+            return EVENT_DATE;
+        }
+        for (EventSort sort : values()) {
+            if (sort.name().equalsIgnoreCase(value)) {
+                return sort;
+            }
+        }
+        throw new ValidationException("Unknown sort: " + value);
+    }
+}
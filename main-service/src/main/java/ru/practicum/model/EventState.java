@@ -0,0 +1,7 @@
+package ru.practicum.model;
+
+public enum EventState {
+    PENDING,
+    PUBLISHED,
+    CANCELED
+}
@@ -0,0 +1,16 @@
+package ru.practicum.model;
+
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class Location {
+
+    private Float lat;
+
+    private Float lon;
+}
@@ -0,0 +1,6 @@
+package ru.practicum.model;
+
+import java.time.LocalDateTime;
+
+public record PublishedEvent(Long id, LocalDateTime publishedOn) {
+}
@@ -0,0 +1,8 @@
+package ru.practicum.model;
+
+public enum RequestStatus {
+    PENDING,
+    CONFIRMED,
+    REJECTED,
+    CANCELED
+}
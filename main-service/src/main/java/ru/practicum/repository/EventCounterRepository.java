@@ -0,0 +1,80 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the counters kept on {@code events}. Each statement changes the row in place, so
+ * concurrent updates of the same event add up instead of overwriting each other.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EventCounterRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Raises the views of the events to the given numbers. Rows are only written when the number
+     * grew: views never go down, and unchanged events cost no row version.
+     */
+    public int updateViews(Map<Long, Long> views) {
+        List<Object[]> args = new ArrayList<>(views.size());
+        views.forEach((id, count) -> args.add(new Object[]{count, id, count}));
+        int updated = 0;
+        for (int rows : jdbcTemplate.batchUpdate("UPDATE events SET views = ? WHERE id = ? AND views < ?", args)) {
+            updated += Math.max(rows, 0);
+        }
+        return updated;
+    }
+
+    /**
+     * Takes up to {@code seats} free places of the event and returns how many it got, 0 when the event
+     * is full. The free places are read without a lock and taken with an update that only applies if
+     * they are still free, which is retried when another confirmation took some in between: requests
+     * are never admitted beyond the limit, and the row is only locked from the update to the commit,
+     * which includes whatever the transaction still does after it.
+     */
+    public int reserveSeats(long eventId, int seats) {
+        while (true) {
+            Seats taken = jdbcTemplate.queryForObject(
+                    "SELECT confirmed_requests, participant_limit FROM events WHERE id = ?",
+                    (rs, rowNum) -> new Seats(rs.getLong("confirmed_requests"), rs.getInt("participant_limit")),
+                    eventId);
+            if (taken.limit() == 0) {
+                addConfirmedRequests(eventId, seats);
+                return seats;
+            }
+            int granted = (int) Math.min(seats, taken.limit() - taken.confirmed());
+            if (granted <= 0) {
+                return 0;
+            }
+            if (jdbcTemplate.update("UPDATE events SET confirmed_requests = confirmed_requests + ? "
+                    + "WHERE id = ? AND confirmed_requests + ? <= participant_limit", granted, eventId, granted) > 0) {
+                return granted;
+            }
+        }
+    }
+
+    public boolean isFull(long eventId) {
+        Integer full = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM events "
+                + "WHERE id = ? AND participant_limit > 0 AND confirmed_requests >= participant_limit",
+                Integer.class, eventId);
+        return full != null && full > 0;
+    }
+
+    /**
+     * Adds to the confirmed requests of the event; called in the transaction that changes request statuses.
+     */
+    public void addConfirmedRequests(long eventId, long delta) {
+        jdbcTemplate.update("UPDATE events SET confirmed_requests = confirmed_requests + ? WHERE id = ?",
+                delta, eventId);
+    }
+
+    private record Seats(long confirmed, int limit) {
+    }
+}
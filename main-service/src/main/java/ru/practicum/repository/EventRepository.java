@@ -0,0 +1,27 @@
+package ru.practicum.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.model.Event;
+import ru.practicum.model.EventState;
+import ru.practicum.model.PublishedEvent;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface EventRepository extends JpaRepository<Event, Long>, EventSearchRepository {
+
+    @EntityGraph(attributePaths = {"category", "initiator"})
+    Optional<Event> findByIdAndState(Long id, EventState state);
+
+    @Query("SELECT new ru.practicum.model.PublishedEvent(e.id, e.publishedOn) FROM Event e "
+            + "WHERE e.state = ru.practicum.model.EventState.PUBLISHED AND e.id > :afterId ORDER BY e.id")
+    List<PublishedEvent> findPublishedAfter(long afterId, Limit limit);
+
+    @Query("SELECT new ru.practicum.model.PublishedEvent(e.id, e.publishedOn) FROM Event e "
+            + "WHERE e.state = ru.practicum.model.EventState.PUBLISHED AND e.id IN :ids")
+    List<PublishedEvent> findPublished(Collection<Long> ids);
+}
@@ -0,0 +1,14 @@
+package ru.practicum.repository;
+
+import ru.practicum.model.Event;
+import ru.practicum.model.EventFilter;
+
+import java.util.List;
+
+public interface EventSearchRepository {
+
+    /**
+     * One page of published events with their category and initiator, ordered as the filter asks.
+     */
+    List<Event> search(EventFilter filter, int from, int size);
+}
@@ -0,0 +1,132 @@
+package ru.practicum.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import ru.practicum.config.EwmProperties;
+import ru.practicum.model.Event;
+import ru.practicum.model.EventFilter;
+import ru.practicum.model.EventSort;
+import ru.practicum.model.EventState;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Views and confirmed requests are columns of the event, so the availability filter and sorting by
+ * views run in the database like any other condition: only the requested page is read, through
+ * {@code idx_events_state_event_date} or {@code idx_events_state_views}, and no count query is made.
+ * The text filter is answered by the trigram indexes of {@code schema-postgresql.sql}.
+ * <p>
+ * Pages are addressed by {@code from}, but the sort key of the last event of every full page is
+ * remembered as an anchor of the next one, so that paging on seeks past the anchor instead of
+ * skipping {@code from} rows again. Between pages the events may change, which moves them as it
+ * would with an offset; anchors of a filter are dropped after {@code ewm.search.anchor-ttl}.
+ */
+public class EventSearchRepositoryImpl implements EventSearchRepository {
+
+    private final EntityManager entityManager;
+    private final Cache<EventFilter, ConcurrentNavigableMap<Integer, Anchor>> anchors;
+    private final int maxAnchorsPerFilter;
+
+    public EventSearchRepositoryImpl(EntityManager entityManager, EwmProperties ewmProperties) {
+        EwmProperties.Search properties = ewmProperties.getSearch();
+        this.entityManager = entityManager;
+        this.anchors = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxFilters())
+                .expireAfterWrite(properties.getAnchorTtl())
+                .build();
+        this.maxAnchorsPerFilter = properties.getMaxAnchorsPerFilter();
+    }
+
+    @Override
+    public List<Event> search(EventFilter filter, int from, int size) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Event> query = cb.createQuery(Event.class);
+        Root<Event> event = query.from(Event.class);
+        event.fetch("category");
+        event.fetch("initiator");
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(event.get("state"), EventState.PUBLISHED));
+        if (filter.text() != null && !filter.text().isBlank()) {
+            String pattern = "%" + escapeLike(filter.text().toLowerCase()) + "%";
+            predicates.add(cb.or(cb.like(cb.lower(event.<String>get("annotation")), pattern, '\\'),
+                    cb.like(cb.lower(event.<String>get("description")), pattern, '\\')));
+        }
+        if (filter.categories() != null && !filter.categories().isEmpty()) {
+            predicates.add(event.get("category").get("id").in(filter.categories()));
+        }
+        if (filter.paid() != null) {
+            predicates.add(cb.equal(event.get("paid"), filter.paid()));
+        }
+        predicates.add(cb.greaterThanOrEqualTo(event.<LocalDateTime>get("eventDate"), filter.rangeStart()));
+        if (filter.rangeEnd() != null) {
+            predicates.add(cb.lessThanOrEqualTo(event.<LocalDateTime>get("eventDate"), filter.rangeEnd()));
+        }
+        if (filter.onlyAvailable()) {
+            predicates.add(cb.or(cb.equal(event.get("participantLimit"), 0),
+                    cb.lessThan(event.<Long>get("confirmedRequests"),
+                            event.<Integer>get("participantLimit").as(Long.class))));
+        }
+
+        // a missing rangeStart is now, which must not make every request a filter of its own
+        EventFilter key = new EventFilter(filter.text(), filter.categories(), filter.paid(),
+                filter.rangeStart().truncatedTo(ChronoUnit.MINUTES), filter.rangeEnd(), filter.onlyAvailable(),
+                filter.sort());
+        ConcurrentNavigableMap<Integer, Anchor> filterAnchors = anchors.get(key, k -> new ConcurrentSkipListMap<>());
+        Map.Entry<Integer, Anchor> anchor = filterAnchors.floorEntry(from);
+        int skip = from;
+        if (anchor != null) {
+            predicates.add(after(cb, event, filter.sort(), anchor.getValue()));
+            skip = from - anchor.getKey();
+        }
+
+        query.select(event).where(predicates.toArray(Predicate[]::new));
+        if (filter.sort() == EventSort.VIEWS) {
+            query.orderBy(cb.desc(event.get("views")), cb.asc(event.get("id")));
+        } else {
+            query.orderBy(cb.asc(event.get("eventDate")), cb.asc(event.get("id")));
+        }
+        List<Event> events = entityManager.createQuery(query)
+                .setFirstResult(skip)
+                .setMaxResults(size)
+                .getResultList();
+
+        if (events.size() == size && filterAnchors.size() < maxAnchorsPerFilter) {
+            Event last = events.getLast();
+            filterAnchors.putIfAbsent(from + size, new Anchor(last.getEventDate(), last.getViews(), last.getId()));
+        }
+        return events;
+    }
+
+    private static Predicate after(CriteriaBuilder cb, Root<Event> event, EventSort sort, Anchor anchor) {
+        Predicate sameKeyAfter;
+        Predicate keyAfter;
+        if (sort == EventSort.VIEWS) {
+            keyAfter = cb.lessThan(event.<Long>get("views"), anchor.views());
+            sameKeyAfter = cb.equal(event.get("views"), anchor.views());
+        } else {
+            keyAfter = cb.greaterThan(event.<LocalDateTime>get("eventDate"), anchor.eventDate());
+            sameKeyAfter = cb.equal(event.get("eventDate"), anchor.eventDate());
+        }
+        return cb.or(keyAfter, cb.and(sameKeyAfter, cb.greaterThan(event.<Long>get("id"), anchor.id())));
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    // the sort key of the last event before a page
+    private record Anchor(LocalDateTime eventDate, long views, long id) {
+    }
+}
@@ -0,0 +1,28 @@
+package ru.practicum.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.model.ParticipationRequest;
+import ru.practicum.model.RequestStatus;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ParticipationRequestRepository extends JpaRepository<ParticipationRequest, Long> {
+
+    List<ParticipationRequest> findAllByEventIdAndIdInOrderById(Long eventId, Collection<Long> ids);
+
+    /**
+     * Sets the status of those of the requests that are still pending, in one statement.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE ParticipationRequest r SET r.status = :status "
+            + "WHERE r.id IN :ids AND r.status = ru.practicum.model.RequestStatus.PENDING")
+    int updatePendingStatus(Collection<Long> ids, RequestStatus status);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE ParticipationRequest r SET r.status = ru.practicum.model.RequestStatus.REJECTED "
+            + "WHERE r.event.id = :eventId AND r.status = ru.practicum.model.RequestStatus.PENDING")
+    int rejectPending(Long eventId);
+}
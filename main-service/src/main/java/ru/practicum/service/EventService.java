@@ -0,0 +1,14 @@
+package ru.practicum.service;
+
+import ru.practicum.dto.EventFullDto;
+import ru.practicum.dto.EventShortDto;
+import ru.practicum.model.EventFilter;
+
+import java.util.List;
+
+public interface EventService {
+
+    EventFullDto getPublished(long id);
+
+    List<EventShortDto> search(EventFilter filter, int from, int size);
+}
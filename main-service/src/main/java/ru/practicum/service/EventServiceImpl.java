@@ -0,0 +1,36 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.dto.EventFullDto;
+import ru.practicum.dto.EventShortDto;
+import ru.practicum.exception.NotFoundException;
+import ru.practicum.mapper.EventMapper;
+import ru.practicum.model.EventFilter;
+import ru.practicum.model.EventState;
+import ru.practicum.repository.EventRepository;
+
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class EventServiceImpl implements EventService {
+
+    private final EventRepository eventRepository;
+
+    @Override
+    public EventFullDto getPublished(long id) {
+        return eventRepository.findByIdAndState(id, EventState.PUBLISHED)
+                .map(EventMapper::toEventFullDto)
+                .orElseThrow(() -> new NotFoundException("Event with id=" + id + " was not found"));
+    }
+
+    @Override
+    public List<EventShortDto> search(EventFilter filter, int from, int size) {
+        return eventRepository.search(filter, from, size).stream()
+                .map(EventMapper::toEventShortDto)
+                .toList();
+    }
+}
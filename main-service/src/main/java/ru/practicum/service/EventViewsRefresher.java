@@ -0,0 +1,126 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.StatsClient;
+import ru.practicum.StatsDto;
+import ru.practicum.config.EwmProperties;
+import ru.practicum.model.PublishedEvent;
+import ru.practicum.repository.EventCounterRepository;
+import ru.practicum.repository.EventRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Copies the unique views of published events from stats-server onto their rows, a batch of events
+ * per stats-server query. The first run after startup goes over all published events; later runs
+ * only look up the events whose page was hit since the previous one. Views are only ever raised,
+ * so a stats-server outage, which reads as no hits, leaves them as they are. The lookups span the
+ * whole life of an event, so unique views are estimated from the hourly sketches of stats-server
+ * instead of being counted over the raw hits.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EventViewsRefresher {
+
+    private static final Pattern EVENT_URI = Pattern.compile("/events/(\\d+)");
+
+    private final EventRepository eventRepository;
+    private final EventCounterRepository counterRepository;
+    private final StatsClient statsClient;
+    private final EwmProperties properties;
+
+    // hits from here on have not been looked at yet; null until the first full run
+    private LocalDateTime since;
+
+    @Scheduled(fixedDelayString = "${ewm.views.refresh-interval:PT30S}")
+    public void refresh() {
+        if (!properties.getViews().isEnabled()) {
+            return;
+        }
+        try {
+            refresh(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.error("Refreshing event views failed: {}", e.getMessage(), e);
+        }
+    }
+
+    synchronized void refresh(LocalDateTime now) {
+        int batchSize = properties.getViews().getBatchSize();
+        int updated = 0;
+        if (since == null) {
+            List<PublishedEvent> events;
+            long afterId = 0;
+            do {
+                events = eventRepository.findPublishedAfter(afterId, Limit.of(batchSize));
+                updated += refresh(events, now);
+                if (!events.isEmpty()) {
+                    afterId = events.getLast().id();
+                }
+            } while (events.size() == batchSize);
+        } else {
+            Set<Long> viewed = viewedSince(since, now);
+            if (viewed.isEmpty()) {
+                // nothing was viewed, or stats-server did not answer: the next run looks further back
+                return;
+            }
+            List<Long> ids = new ArrayList<>(viewed);
+            for (int i = 0; i < ids.size(); i += batchSize) {
+                updated += refresh(eventRepository.findPublished(ids.subList(i, Math.min(ids.size(), i + batchSize))), now);
+            }
+        }
+        // hits are sent in batches and may arrive after this run with earlier timestamps
+        since = now.minus(properties.getViews().getRefreshInterval());
+        if (updated > 0) {
+            log.debug("Views of {} events have been refreshed.", updated);
+        }
+    }
+
+    private Set<Long> viewedSince(LocalDateTime start, LocalDateTime end) {
+        Set<Long> ids = new TreeSet<>();
+        for (StatsDto stats : statsClient.findStats(start, end, null, false)) {
+            Matcher matcher = EVENT_URI.matcher(stats.getUri());
+            if (properties.getApp().equals(stats.getApp()) && matcher.matches()) {
+                ids.add(Long.parseLong(matcher.group(1)));
+            }
+        }
+        return ids;
+    }
+
+    private int refresh(List<PublishedEvent> events, LocalDateTime now) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+        Map<Long, String> uris = new LinkedHashMap<>();
+        events.forEach(event -> uris.put(event.id(), "/events/" + event.id()));
+        LocalDateTime start = events.stream()
+                .map(PublishedEvent::publishedOn)
+                .filter(Objects::nonNull)
+                .min(LocalDateTime::compareTo)
+                .orElse(now);
+        Map<String, Long> hits = statsClient.getApproxUniqueHits(start, now, uris.values());
+
+        Map<Long, Long> views = new HashMap<>();
+        uris.forEach((id, uri) -> {
+            long count = hits.getOrDefault(uri, 0L);
+            if (count > 0) {
+                views.put(id, count);
+            }
+        });
+        return views.isEmpty() ? 0 : counterRepository.updateViews(views);
+    }
+}
@@ -0,0 +1,12 @@
+package ru.practicum.service;
+
+import ru.practicum.dto.EventRequestStatusUpdateRequest;
+import ru.practicum.dto.EventRequestStatusUpdateResult;
+import ru.practicum.dto.ParticipationRequestDto;
+
+public interface RequestService {
+
+    ParticipationRequestDto create(long userId, long eventId);
+
+    EventRequestStatusUpdateResult updateStatuses(long userId, long eventId, EventRequestStatusUpdateRequest update);
+}
@@ -0,0 +1,138 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.dto.EventRequestStatusUpdateRequest;
+import ru.practicum.dto.EventRequestStatusUpdateResult;
+import ru.practicum.dto.ParticipationRequestDto;
+import ru.practicum.exception.ConflictException;
+import ru.practicum.exception.NotFoundException;
+import ru.practicum.exception.ValidationException;
+import ru.practicum.mapper.RequestMapper;
+import ru.practicum.model.Event;
+import ru.practicum.model.EventState;
+import ru.practicum.model.ParticipationRequest;
+import ru.practicum.model.RequestStatus;
+import ru.practicum.model.User;
+import ru.practicum.repository.EventCounterRepository;
+import ru.practicum.repository.EventRepository;
+import ru.practicum.repository.ParticipationRequestRepository;
+import ru.practicum.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Admission of participants. Places are taken from the counter on the event row by
+ * {@link EventCounterRepository#reserveSeats}. A new request reserves as the last statement of its
+ * transaction, so the row is locked only briefly. Requests that wait for moderation do not touch the
+ * event row at all, and the initiator confirms any number of them with one reservation. That one comes
+ * first, and the status writes and the rejection of the rest follow while the row stays locked: the
+ * lock orders concurrent batches before they touch any request, whereas writing statuses first would
+ * let a batch that fills the event wait for the requests of another that waits for the event row.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class RequestServiceImpl implements RequestService {
+
+    private final ParticipationRequestRepository requestRepository;
+    private final EventRepository eventRepository;
+    private final EventCounterRepository counterRepository;
+    private final UserRepository userRepository;
+
+    @Override
+    public ParticipationRequestDto create(long userId, long eventId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new NotFoundException("User with id=" + userId + " was not found"));
+        Event event = eventRepository.findById(eventId)
+                .orElseThrow(() -> new NotFoundException("Event with id=" + eventId + " was not found"));
+        if (event.getInitiator().getId() == userId) {
+            throw new ConflictException("The initiator cannot request to take part in their own event.");
+        }
+        if (event.getState() != EventState.PUBLISHED) {
+            throw new ConflictException("Only published events can be requested.");
+        }
+        if (event.getParticipantLimit() > 0 && event.getConfirmedRequests() >= event.getParticipantLimit()) {
+            throw new ConflictException("The participant limit has been reached.");
+        }
+
+        ParticipationRequest request = new ParticipationRequest();
+        request.setCreated(LocalDateTime.now());
+        request.setEvent(event);
+        request.setRequester(user);
+        boolean confirmed = !event.isRequestModeration() || event.getParticipantLimit() == 0;
+        request.setStatus(confirmed ? RequestStatus.CONFIRMED : RequestStatus.PENDING);
+        try {
+            requestRepository.saveAndFlush(request);
+        } catch (DataIntegrityViolationException e) {
+            throw new ConflictException("User with id=" + userId + " has already requested event with id=" + eventId);
+        }
+        if (confirmed && counterRepository.reserveSeats(eventId, 1) == 0) {
+            throw new ConflictException("The participant limit has been reached.");
+        }
+        return RequestMapper.toParticipationRequestDto(request);
+    }
+
+    @Override
+    public EventRequestStatusUpdateResult updateStatuses(long userId, long eventId,
+                                                         EventRequestStatusUpdateRequest update) {
+        if (update.getRequestIds() == null || update.getRequestIds().isEmpty()) {
+            throw new ValidationException("requestIds must not be empty.");
+        }
+        if (update.getStatus() != RequestStatus.CONFIRMED && update.getStatus() != RequestStatus.REJECTED) {
+            throw new ValidationException("status must be CONFIRMED or REJECTED.");
+        }
+        Event event = eventRepository.findById(eventId)
+                .filter(e -> e.getInitiator().getId() == userId)
+                .orElseThrow(() -> new NotFoundException("Event with id=" + eventId + " was not found"));
+
+        Set<Long> ids = new LinkedHashSet<>(update.getRequestIds());
+        List<ParticipationRequest> requests = requestRepository.findAllByEventIdAndIdInOrderById(eventId, ids);
+        if (requests.size() != ids.size()) {
+            throw new NotFoundException("Some of the requests " + ids + " of event with id=" + eventId
+                    + " were not found");
+        }
+        if (requests.stream().anyMatch(request -> request.getStatus() != RequestStatus.PENDING)) {
+            throw new ConflictException("Only pending requests can be confirmed or rejected.");
+        }
+
+        if (update.getStatus() == RequestStatus.REJECTED) {
+            setStatus(requests, RequestStatus.REJECTED);
+            return new EventRequestStatusUpdateResult(List.of(), toDtos(requests));
+        }
+
+        int granted = counterRepository.reserveSeats(event.getId(), requests.size());
+        if (granted == 0) {
+            throw new ConflictException("The participant limit has been reached.");
+        }
+        List<ParticipationRequest> confirmed = requests.subList(0, granted);
+        List<ParticipationRequest> rejected = requests.subList(granted, requests.size());
+        setStatus(confirmed, RequestStatus.CONFIRMED);
+        if (!rejected.isEmpty()) {
+            setStatus(rejected, RequestStatus.REJECTED);
+        }
+        if (counterRepository.isFull(event.getId())) {
+            requestRepository.rejectPending(event.getId());
+        }
+        return new EventRequestStatusUpdateResult(toDtos(confirmed), toDtos(rejected));
+    }
+
+    // the requests were read before the update, which fails if another one has changed any of them since
+    private void setStatus(List<ParticipationRequest> requests, RequestStatus status) {
+        int updated = requestRepository.updatePendingStatus(requests.stream().map(ParticipationRequest::getId).toList(),
+                status);
+        if (updated != requests.size()) {
+            throw new ConflictException("Only pending requests can be confirmed or rejected.");
+        }
+        requests.forEach(request -> request.setStatus(status));
+    }
+
+    private static List<ParticipationRequestDto> toDtos(List<ParticipationRequest> requests) {
+        return requests.stream().map(RequestMapper::toParticipationRequestDto).toList();
+    }
+}
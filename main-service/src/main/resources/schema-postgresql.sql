@@ -0,0 +1,6 @@
+-- public text search matches substrings of annotation and description case-insensitively,
+-- which trigram indexes answer without scanning all events
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_events_annotation_trgm ON events USING gin (lower(annotation) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_events_description_trgm ON events USING gin (lower(description) gin_trgm_ops);
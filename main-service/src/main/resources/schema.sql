@@ -0,0 +1,47 @@
+CREATE TABLE IF NOT EXISTS users (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(250) NOT NULL,
+    email VARCHAR(254) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS categories (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(50) NOT NULL UNIQUE
+);
+
+-- confirmed_requests and views are counters kept on the row, see EventCounterRepository
+CREATE TABLE IF NOT EXISTS events (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    title VARCHAR(120) NOT NULL,
+    annotation VARCHAR(2000) NOT NULL,
+    description VARCHAR(7000),
+    category_id BIGINT NOT NULL REFERENCES categories (id),
+    initiator_id BIGINT NOT NULL REFERENCES users (id),
+    event_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    created_on TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    published_on TIMESTAMP WITHOUT TIME ZONE,
+    lat REAL,
+    lon REAL,
+    paid BOOLEAN NOT NULL DEFAULT FALSE,
+    participant_limit INT NOT NULL DEFAULT 0,
+    request_moderation BOOLEAN NOT NULL DEFAULT TRUE,
+    state VARCHAR(16) NOT NULL,
+    confirmed_requests BIGINT NOT NULL DEFAULT 0,
+    views BIGINT NOT NULL DEFAULT 0
+);
+
+-- public searches: upcoming published events by date, or by views
+CREATE INDEX IF NOT EXISTS idx_events_state_event_date ON events (state, event_date, id);
+CREATE INDEX IF NOT EXISTS idx_events_state_views ON events (state, views DESC, id);
+CREATE INDEX IF NOT EXISTS idx_events_category ON events (category_id);
+
+CREATE TABLE IF NOT EXISTS requests (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    event_id BIGINT NOT NULL REFERENCES events (id),
+    requester_id BIGINT NOT NULL REFERENCES users (id),
+    status VARCHAR(16) NOT NULL,
+    CONSTRAINT uq_requests_event_requester UNIQUE (event_id, requester_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_requests_requester ON requests (requester_id);
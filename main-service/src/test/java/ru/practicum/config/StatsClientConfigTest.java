@@ -0,0 +1,30 @@
+package ru.practicum.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class StatsClientConfigTest {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private StatsClientProperties statsClientProperties;
+
+    @Test
+    void statsClientMetrics_ShouldRegisterConnectionPoolGauges() {
+        Gauge max = meterRegistry.find("httpcomponents.httpclient.pool.total.max")
+                .tag("httpclient", "stats-server")
+                .gauge();
+
+        assertNotNull(max);
+        assertEquals(statsClientProperties.getTransport().getMaxConnections(), max.value());
+        assertNotNull(meterRegistry.find("httpcomponents.httpclient.pool.total.pending").gauge());
+    }
+}
@@ -0,0 +1,147 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import ru.practicum.StatsClient;
+import ru.practicum.dto.EventShortDto;
+import ru.practicum.exception.NotFoundException;
+import ru.practicum.model.Category;
+import ru.practicum.model.Event;
+import ru.practicum.model.EventFilter;
+import ru.practicum.model.EventSort;
+import ru.practicum.model.EventState;
+import ru.practicum.model.User;
+import ru.practicum.repository.CategoryRepository;
+import ru.practicum.repository.EventCounterRepository;
+import ru.practicum.repository.EventRepository;
+import ru.practicum.repository.ParticipationRequestRepository;
+import ru.practicum.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class EventServiceImplTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    @MockBean
+    private StatsClient statsClient;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private ParticipationRequestRepository requestRepository;
+
+    @Autowired
+    private EventCounterRepository counterRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private User user;
+
+    private Category category;
+
+    @BeforeEach
+    void clean() {
+        requestRepository.deleteAll();
+        eventRepository.deleteAll();
+        user = userRepository.save(new User(null, "user", "user" + System.nanoTime() + "@mail.ru"));
+        category = categoryRepository.save(new Category(null, "category" + System.nanoTime()));
+    }
+
+    @Test
+    void search_ShouldSortByViewsAndFilterAvailableInDatabase() {
+        Event popular = save("popular", EventState.PUBLISHED, 2);
+        Event full = save("full", EventState.PUBLISHED, 1);
+        Event unlimited = save("unlimited", EventState.PUBLISHED, 0);
+        save("pending", EventState.PENDING, 0);
+        counterRepository.updateViews(Map.of(popular.getId(), 50L, full.getId(), 70L, unlimited.getId(), 10L));
+        counterRepository.addConfirmedRequests(full.getId(), 1);
+        counterRepository.addConfirmedRequests(popular.getId(), 1);
+
+        assertEquals(List.of("full", "popular", "unlimited"), titles(search(false, EventSort.VIEWS, 0, 10)));
+        assertEquals(List.of("popular", "unlimited"), titles(search(true, EventSort.VIEWS, 0, 10)));
+        assertEquals(List.of("unlimited"), titles(search(true, EventSort.VIEWS, 1, 1)));
+
+        EventShortDto first = search(false, EventSort.VIEWS, 0, 1).getFirst();
+        assertEquals(70L, first.getViews());
+        assertEquals(1L, first.getConfirmedRequests());
+    }
+
+    @Test
+    void search_ShouldMatchTextAndPageLikeOffsets() {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Event event = save("concert " + i, EventState.PUBLISHED, 0);
+            event.setDescription(i % 2 == 0 ? "Jazz 100% live" : "Rock");
+            eventRepository.save(event);
+            if (i % 2 == 0) {
+                expected.add(event.getTitle());
+            }
+        }
+        save("lecture", EventState.PUBLISHED, 0);
+
+        assertEquals(expected, titles(search("JAZZ", 0, 10)));
+        assertEquals(expected, titles(search("100%", 0, 10)));
+        assertTrue(search("1_0", 0, 10).isEmpty());
+
+        // the second and third pages seek past the last event of the page before
+        List<String> paged = new ArrayList<>();
+        for (int from = 0; from < 6; from += 2) {
+            paged.addAll(titles(search("jazz", from, 2)));
+        }
+        assertEquals(expected, paged);
+        assertEquals(expected.subList(3, 4), titles(search("jazz", 3, 2)));
+    }
+
+    @Test
+    void getPublished_ShouldOnlyFindPublishedEvents() {
+        Event published = save("published", EventState.PUBLISHED, 0);
+        Event pending = save("pending", EventState.PENDING, 0);
+
+        assertEquals("published", eventService.getPublished(published.getId()).getTitle());
+        assertThrows(NotFoundException.class, () -> eventService.getPublished(pending.getId()));
+    }
+
+    private List<EventShortDto> search(boolean onlyAvailable, EventSort sort, int from, int size) {
+        return eventService.search(new EventFilter(null, null, null, NOW, null, onlyAvailable, sort), from, size);
+    }
+
+    private List<EventShortDto> search(String text, int from, int size) {
+        return eventService.search(new EventFilter(text, null, null, NOW, null, false, EventSort.EVENT_DATE), from, size);
+    }
+
+    private static List<String> titles(List<EventShortDto> events) {
+        return events.stream().map(EventShortDto::getTitle).toList();
+    }
+
+    private Event save(String title, EventState state, int participantLimit) {
+        Event event = new Event();
+        event.setTitle(title);
+        event.setAnnotation("annotation of " + title);
+        event.setCategory(category);
+        event.setInitiator(user);
+        event.setEventDate(NOW.plusDays(10));
+        event.setCreatedOn(NOW.minusDays(10));
+        event.setPublishedOn(state == EventState.PUBLISHED ? NOW.minusDays(5) : null);
+        event.setParticipantLimit(participantLimit);
+        event.setState(state);
+        return eventRepository.save(event);
+    }
+}
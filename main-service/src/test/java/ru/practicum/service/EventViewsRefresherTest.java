@@ -0,0 +1,109 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import ru.practicum.StatsClient;
+import ru.practicum.StatsDto;
+import ru.practicum.model.Category;
+import ru.practicum.model.Event;
+import ru.practicum.model.EventState;
+import ru.practicum.model.User;
+import ru.practicum.repository.CategoryRepository;
+import ru.practicum.repository.EventRepository;
+import ru.practicum.repository.ParticipationRequestRepository;
+import ru.practicum.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+class EventViewsRefresherTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    @MockBean
+    private StatsClient statsClient;
+
+    @Autowired
+    private EventViewsRefresher refresher;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private ParticipationRequestRepository requestRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @BeforeEach
+    void clean() {
+        requestRepository.deleteAll();
+        eventRepository.deleteAll();
+    }
+
+    @Test
+    void refresh_ShouldRaiseViewsOfViewedEventsOnly() {
+        Event first = save(EventState.PUBLISHED);
+        Event second = save(EventState.PUBLISHED);
+        Event pending = save(EventState.PENDING);
+        String firstUri = "/events/" + first.getId();
+        String secondUri = "/events/" + second.getId();
+
+        when(statsClient.getApproxUniqueHits(any(), any(), anyCollection()))
+                .thenReturn(Map.of(firstUri, 5L, secondUri, 3L));
+        refresher.refresh(NOW);
+        assertEquals(5, views(first));
+        assertEquals(3, views(second));
+        assertEquals(0, views(pending));
+
+        // stats-server is down: no hits at all, nothing changes
+        when(statsClient.findStats(any(), any(), isNull(), eq(false))).thenReturn(List.of());
+        refresher.refresh(NOW.plusMinutes(1));
+        assertEquals(5, views(first));
+
+        // the first event was viewed again, and the answer for it must not lower its views
+        when(statsClient.findStats(any(), any(), isNull(), eq(false))).thenReturn(List.of(
+                new StatsDto("ewm-main-service", firstUri, 2L), new StatsDto("ewm-main-service", "/events", 9L)));
+        when(statsClient.getApproxUniqueHits(any(), any(), anyCollection())).thenReturn(Map.of(firstUri, 7L));
+        refresher.refresh(NOW.plusMinutes(2));
+        assertEquals(7, views(first));
+        assertEquals(3, views(second));
+        verify(statsClient).getApproxUniqueHits(any(), eq(NOW.plusMinutes(2)),
+                argThat(uris -> List.copyOf(uris).equals(List.of(firstUri))));
+
+        when(statsClient.getApproxUniqueHits(any(), any(), anyCollection())).thenReturn(Map.of(firstUri, 0L));
+        refresher.refresh(NOW.plusMinutes(3));
+        assertEquals(7, views(first));
+    }
+
+    private long views(Event event) {
+        return eventRepository.findById(event.getId()).orElseThrow().getViews();
+    }
+
+    private Event save(EventState state) {
+        User user = userRepository.save(new User(null, "user", "user" + System.nanoTime() + "@mail.ru"));
+        Category category = categoryRepository.save(new Category(null, "category" + System.nanoTime()));
+        Event event = new Event();
+        event.setTitle("title");
+        event.setAnnotation("annotation");
+        event.setCategory(category);
+        event.setInitiator(user);
+        event.setEventDate(NOW.plusDays(10));
+        event.setCreatedOn(NOW.minusDays(10));
+        event.setPublishedOn(state == EventState.PUBLISHED ? NOW.minusDays(5) : null);
+        event.setState(state);
+        return eventRepository.save(event);
+    }
+}
@@ -0,0 +1,218 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import ru.practicum.StatsClient;
+import ru.practicum.dto.EventRequestStatusUpdateRequest;
+import ru.practicum.dto.EventRequestStatusUpdateResult;
+import ru.practicum.exception.ConflictException;
+import ru.practicum.model.Category;
+import ru.practicum.model.Event;
+import ru.practicum.model.EventState;
+import ru.practicum.model.ParticipationRequest;
+import ru.practicum.model.RequestStatus;
+import ru.practicum.model.User;
+import ru.practicum.repository.CategoryRepository;
+import ru.practicum.repository.EventRepository;
+import ru.practicum.repository.ParticipationRequestRepository;
+import ru.practicum.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class RequestServiceImplTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.now();
+    private static final int THREADS = 16;
+
+    @MockBean
+    private StatsClient statsClient;
+
+    @Autowired
+    private RequestService requestService;
+
+    @Autowired
+    private ParticipationRequestRepository requestRepository;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private User initiator;
+
+    @BeforeEach
+    void clean() {
+        requestRepository.deleteAll();
+        eventRepository.deleteAll();
+        initiator = user();
+    }
+
+    @Test
+    void create_Concurrently_ShouldAdmitExactlyUpToLimit() throws Exception {
+        Event event = save(20, false);
+        List<User> users = users(100);
+        AtomicInteger conflicts = new AtomicInteger();
+
+        List<Integer> admitted = concurrently(users.size(), i -> {
+            try {
+                requestService.create(users.get(i).getId(), event.getId());
+                return 1;
+            } catch (ConflictException e) {
+                conflicts.incrementAndGet();
+                return 0;
+            }
+        });
+
+        assertEquals(20, admitted.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(80, conflicts.get());
+        assertEquals(20, confirmedRequests(event));
+        assertEquals(20, count(event, RequestStatus.CONFIRMED));
+    }
+
+    @Test
+    void create_ConcurrentlyWithoutLimit_ShouldNotLoseUpdates() throws Exception {
+        Event event = save(0, true);
+        List<User> users = users(100);
+
+        concurrently(users.size(), i -> requestService.create(users.get(i).getId(), event.getId()));
+
+        assertEquals(100, confirmedRequests(event));
+        assertEquals(100, count(event, RequestStatus.CONFIRMED));
+        assertThrows(ConflictException.class, () -> requestService.create(users.getFirst().getId(), event.getId()));
+    }
+
+    @Test
+    void updateStatuses_ConcurrentBatches_ShouldNotOverbook() throws Exception {
+        Event event = save(25, true);
+        List<Long> requestIds = new ArrayList<>();
+        for (User user : users(100)) {
+            requestIds.add(requestService.create(user.getId(), event.getId()).getId());
+        }
+        assertEquals(0, confirmedRequests(event));
+
+        List<Integer> confirmed = concurrently(10, i -> {
+            try {
+                EventRequestStatusUpdateResult result = requestService.updateStatuses(initiator.getId(), event.getId(),
+                        new EventRequestStatusUpdateRequest(requestIds.subList(i * 10, i * 10 + 10),
+                                RequestStatus.CONFIRMED));
+                assertEquals(10, result.getConfirmedRequests().size() + result.getRejectedRequests().size());
+                return result.getConfirmedRequests().size();
+            } catch (ConflictException e) {
+                return 0;
+            }
+        });
+
+        assertEquals(25, confirmed.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(25, confirmedRequests(event));
+        assertEquals(25, count(event, RequestStatus.CONFIRMED));
+        assertEquals(0, count(event, RequestStatus.PENDING));
+        assertThrows(ConflictException.class, () -> requestService.create(user().getId(), event.getId()));
+    }
+
+    @Test
+    void updateStatuses_ShouldOnlyChangePendingRequests() {
+        Event event = save(2, true);
+        List<Long> requestIds = new ArrayList<>();
+        for (User user : users(3)) {
+            requestIds.add(requestService.create(user.getId(), event.getId()).getId());
+        }
+
+        EventRequestStatusUpdateResult rejected = requestService.updateStatuses(initiator.getId(), event.getId(),
+                new EventRequestStatusUpdateRequest(List.of(requestIds.get(0)), RequestStatus.REJECTED));
+        assertEquals("REJECTED", rejected.getRejectedRequests().getFirst().getStatus());
+        assertThrows(ConflictException.class, () -> requestService.updateStatuses(initiator.getId(), event.getId(),
+                new EventRequestStatusUpdateRequest(requestIds, RequestStatus.CONFIRMED)));
+
+        EventRequestStatusUpdateResult result = requestService.updateStatuses(initiator.getId(), event.getId(),
+                new EventRequestStatusUpdateRequest(requestIds.subList(1, 3), RequestStatus.CONFIRMED));
+        assertEquals(2, result.getConfirmedRequests().size());
+        assertEquals(2, confirmedRequests(event));
+        assertThrows(ConflictException.class, () -> requestService.create(initiator.getId(), event.getId()));
+    }
+
+    private <T> List<T> concurrently(int tasks, Task<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < tasks; i++) {
+                int index = i;
+                futures.add(executor.submit((Callable<T>) () -> {
+                    start.await();
+                    return task.run(index);
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long confirmedRequests(Event event) {
+        return eventRepository.findById(event.getId()).orElseThrow().getConfirmedRequests();
+    }
+
+    private long count(Event event, RequestStatus status) {
+        return requestRepository.findAll().stream()
+                .filter(request -> request.getStatus() == status)
+                .map(ParticipationRequest::getEvent)
+                .filter(event::equals)
+                .count();
+    }
+
+    private List<User> users(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(user());
+        }
+        return users;
+    }
+
+    private User user() {
+        return userRepository.save(new User(null, "user", "user" + System.nanoTime() + "@mail.ru"));
+    }
+
+    private Event save(int participantLimit, boolean requestModeration) {
+        Event event = new Event();
+        event.setTitle("title");
+        event.setAnnotation("annotation");
+        event.setCategory(categoryRepository.save(new Category(null, "category" + System.nanoTime())));
+        event.setInitiator(initiator);
+        event.setEventDate(NOW.plusDays(10));
+        event.setCreatedOn(NOW.minusDays(10));
+        event.setPublishedOn(NOW.minusDays(5));
+        event.setParticipantLimit(participantLimit);
+        event.setRequestModeration(requestModeration);
+        event.setState(EventState.PUBLISHED);
+        return eventRepository.save(event);
+    }
+
+    @FunctionalInterface
+    private interface Task<T> {
+
+        T run(int index) throws Exception;
+    }
+}
@@ -0,0 +1,55 @@
+package ru.practicum.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.experimental.UtilityClass;
+import ru.practicum.HitDto;
+import ru.practicum.StatsDto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic inputs shared by the benchmarks, so that runs of different releases see the same data.
+ */
+@UtilityClass
+public class BenchData {
+
+    static final String APP = "ewm-main-service";
+    static final LocalDateTime ORIGIN = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    public static ObjectMapper objectMapper() {
+        return JsonMapper.builder().addModule(new JavaTimeModule()).build();
+    }
+
+    static HitDto hit(int n) {
+        HitDto hit = new HitDto();
+        hit.setApp(APP);
+        hit.setUri(uri(n % 1_000));
+        hit.setIp("10." + (n >> 16 & 0xff) + "." + (n >> 8 & 0xff) + "." + (n & 0xff));
+        hit.setTimestamp(ORIGIN.plusSeconds(n % (7 * 24 * 3600)));
+        return hit;
+    }
+
+    static String uri(int n) {
+        return "/events/" + n;
+    }
+
+    static List<String> uris(int count) {
+        List<String> uris = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            uris.add(uri(i));
+        }
+        return uris;
+    }
+
+    static List<StatsDto> stats(int count) {
+        List<StatsDto> stats = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            stats.add(new StatsDto(APP, uri(i), (long) (count - i) * 17));
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.practicum.bench;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.HitDto;
+import ru.practicum.StatsDto;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (de)serialization of the wire DTOs with readers and writers resolved once, as Spring's
+ * message converters do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    // number of rows in a /stats response
+    @Param({"10", "1000"})
+    private int statsSize;
+
+    private HitDto hit;
+    private byte[] hitJson;
+    private List<StatsDto> stats;
+    private byte[] statsJson;
+
+    private ObjectWriter hitWriter;
+    private ObjectReader hitReader;
+    private ObjectWriter statsWriter;
+    private ObjectReader statsReader;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        ObjectMapper objectMapper = BenchData.objectMapper();
+        hitWriter = objectMapper.writerFor(HitDto.class);
+        hitReader = objectMapper.readerFor(HitDto.class);
+        statsWriter = objectMapper.writerFor(StatsDto[].class);
+        statsReader = objectMapper.readerFor(StatsDto[].class);
+
+        hit = BenchData.hit(42);
+        hitJson = hitWriter.writeValueAsBytes(hit);
+        stats = BenchData.stats(statsSize);
+        statsJson = statsWriter.writeValueAsBytes(stats.toArray(StatsDto[]::new));
+    }
+
+    @Benchmark
+    public byte[] writeHit() throws JsonProcessingException {
+        return hitWriter.writeValueAsBytes(hit);
+    }
+
+    @Benchmark
+    public HitDto readHit() throws IOException {
+        return hitReader.readValue(hitJson);
+    }
+
+    @Benchmark
+    public byte[] writeStats() throws JsonProcessingException {
+        return statsWriter.writeValueAsBytes(stats.toArray(StatsDto[]::new));
+    }
+
+    @Benchmark
+    public StatsDto[] readStats() throws IOException {
+        return statsReader.readValue(statsJson);
+    }
+}
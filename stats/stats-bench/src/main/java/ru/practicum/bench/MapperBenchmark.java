@@ -0,0 +1,45 @@
+package ru.practicum.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.HitDto;
+import ru.practicum.mapper.HitMapper;
+import ru.practicum.model.Hit;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    private HitDto hitDto;
+    private Hit hit;
+
+    @Setup
+    public void setUp() {
+        hitDto = BenchData.hit(42);
+        hit = HitMapper.toHit(hitDto);
+    }
+
+    @Benchmark
+    public Hit toHit() {
+        return HitMapper.toHit(hitDto);
+    }
+
+    @Benchmark
+    public HitDto toHitDto() {
+        return HitMapper.toHitDto(hit);
+    }
+}
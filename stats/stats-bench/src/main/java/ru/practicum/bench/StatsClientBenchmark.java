@@ -0,0 +1,106 @@
+package ru.practicum.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.RestClient;
+import ru.practicum.StatsDto;
+import ru.practicum.config.StatsClientProperties;
+import ru.practicum.impl.StatsClientImpl;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The client side of a call without the network: URI templating and encoding, body serialization,
+ * the RestClient pipeline and response decoding. Responses come from an in-memory request factory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsClientBenchmark {
+
+    private static final String BASE_URL = "http://stats-server:9090";
+
+    // 10 URIs fit into the query string, 500 exceed stats-client.query.max-url-length and are POSTed
+    @Param({"10", "500"})
+    private int uriCount;
+
+    private StatsClientImpl client;
+    private List<String> uris;
+    private LocalDateTime start;
+    private LocalDateTime end;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = BenchData.objectMapper();
+        byte[] statsJson = objectMapper.writeValueAsBytes(BenchData.stats(uriCount).toArray(StatsDto[]::new));
+
+        RestClient restClient = RestClient.builder()
+                .baseUrl(BASE_URL)
+                .requestFactory((uri, method) -> {
+                    MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+                    request.setResponse(method == HttpMethod.GET || uri.getPath().equals("/stats/query")
+                            ? json(statsJson)
+                            : new MockClientHttpResponse(new byte[0], HttpStatus.CREATED));
+                    return request;
+                })
+                .build();
+        StatsClientProperties properties = new StatsClientProperties();
+        properties.setBaseUrl(BASE_URL);
+        client = new StatsClientImpl(restClient, properties);
+
+        uris = BenchData.uris(uriCount);
+        start = BenchData.ORIGIN;
+        end = BenchData.ORIGIN.plusDays(30);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+    }
+
+    @Benchmark
+    public List<StatsDto> findStats() {
+        return client.findStats(start, end, uris, false);
+    }
+
+    @Benchmark
+    public Map<String, Long> getHits() {
+        return client.getHits(start, end, uris, true);
+    }
+
+    @Benchmark
+    public void saveHit() {
+        client.saveHit(BenchData.APP, "/events/42", "10.0.0.42");
+    }
+
+    private static MockClientHttpResponse json(byte[] body) {
+        MockClientHttpResponse response = new MockClientHttpResponse(body, HttpStatus.OK);
+        response.getHeaders().set(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        return response;
+    }
+}
@@ -0,0 +1,104 @@
+package ru.practicum.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.HitDto;
+import ru.practicum.StatApplication;
+import ru.practicum.StatsDto;
+import ru.practicum.model.UniqueMode;
+import ru.practicum.service.StatsService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * {@link StatsService} with the full Spring context on an embedded H2 database, preloaded with a
+ * week of hits over a thousand URIs. Measures the service layer without HTTP.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatsServiceBenchmark {
+
+    private static final int PRELOADED_HITS = 100_000;
+
+    @Param({"DIRECT", "BUFFERED"})
+    private String ingestMode;
+
+    @Param({"NONE", "EXACT"})
+    private UniqueMode unique;
+
+    private ConfigurableApplicationContext context;
+    private StatsService statsService;
+    private Path walDir;
+    private List<String> uris;
+    private int next = PRELOADED_HITS;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        walDir = Files.createTempDirectory("stats-bench-wal");
+        // command line arguments, so that they win over application.yaml
+        context = new SpringApplicationBuilder(StatApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:bench;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--stats.ingest.mode=" + ingestMode,
+                        "--stats.ingest.wal-dir=" + walDir,
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.springframework.transaction.interceptor=WARN",
+                        "--logging.level.org.springframework.jdbc.support.JdbcTransactionManager=WARN");
+        statsService = context.getBean(StatsService.class);
+        statsService.createAll(IntStream.range(0, PRELOADED_HITS).mapToObj(BenchData::hit).iterator());
+        uris = BenchData.uris(10);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        try (var files = Files.walk(walDir)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public HitDto create() {
+        return statsService.create(BenchData.hit(next++));
+    }
+
+    @Benchmark
+    public Collection<StatsDto> getDay() {
+        LocalDateTime start = BenchData.ORIGIN.plusDays(2).plusMinutes(7);
+        return statsService.get(start, start.plusDays(1), uris, unique);
+    }
+
+    @Benchmark
+    public Collection<StatsDto> getAllUris() {
+        return statsService.get(BenchData.ORIGIN, BenchData.ORIGIN.plusDays(7), null, unique);
+    }
+}
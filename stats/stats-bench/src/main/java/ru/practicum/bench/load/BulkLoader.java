@@ -0,0 +1,96 @@
+package ru.practicum.bench.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.BatchResultDto;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends a generated dataset to {@code POST /hit/batch} as NDJSON, in chunks of one transaction each,
+ * over several connections at once. Going through the server works for the in-memory H2 of the
+ * {@code local} profile as well as for PostgreSQL, and keeps interning, rollups and sketches consistent.
+ */
+@Slf4j
+class BulkLoader {
+
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final URI batchUri;
+    private final int chunkSize;
+    private final int streams;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong chunks = new AtomicLong();
+
+    BulkLoader(HttpClient client, ObjectMapper objectMapper, String baseUrl, int chunkSize, int streams) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.batchUri = URI.create(baseUrl + "/hit/batch");
+        this.chunkSize = chunkSize;
+        this.streams = streams;
+    }
+
+    void load(DatasetSpec spec) throws InterruptedException {
+        HitGenerator generator = new HitGenerator(spec);
+        long started = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(streams)) {
+            List<Future<?>> senders = new ArrayList<>();
+            for (int stream = 0; stream < streams; stream++) {
+                long share = spec.hits() / streams + (stream < spec.hits() % streams ? 1 : 0);
+                HitGenerator streamGenerator = generator.split();
+                senders.add(executor.submit(() -> {
+                    send(streamGenerator, share, started, spec.hits());
+                    return null;
+                }));
+            }
+            for (Future<?> sender : senders) {
+                sender.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Bulk load failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        log.info("Loaded {} hits ({} rejected) in {} s, {} hits/s", accepted.get(), rejected.get(),
+                String.format("%.1f", seconds), String.format("%.0f", accepted.get() / seconds));
+    }
+
+    private void send(HitGenerator generator, long hits, long started, long total) throws IOException, InterruptedException {
+        StringBuilder chunk = new StringBuilder(chunkSize * 128);
+        for (long sent = 0; sent < hits; sent += chunkSize) {
+            int size = (int) Math.min(chunkSize, hits - sent);
+            chunk.setLength(0);
+            for (int i = 0; i < size; i++) {
+                generator.appendNdjson(chunk);
+            }
+            HttpRequest request = HttpRequest.newBuilder(batchUri)
+                    .header("Content-Type", "application/x-ndjson")
+                    .POST(HttpRequest.BodyPublishers.ofString(chunk.toString()))
+                    .build();
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 201 && response.statusCode() != 200) {
+                throw new IOException("POST /hit/batch returned " + response.statusCode() + ": "
+                        + new String(response.body(), StandardCharsets.UTF_8));
+            }
+            BatchResultDto result = objectMapper.readValue(response.body(), BatchResultDto.class);
+            long done = accepted.addAndGet(result.getAccepted()) + rejected.addAndGet(result.getRejected());
+            if (chunks.incrementAndGet() % 20 == 0) {
+                double seconds = (System.nanoTime() - started) / 1e9;
+                log.info("{} / {} hits, {} hits/s", done, total, String.format("%.0f", done / seconds));
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package ru.practicum.bench.load;
+
+import java.time.LocalDateTime;
+
+/**
+ * Shape of a synthetic hit dataset. The same spec and seed always produce the same hits, so a
+ * dataset loaded once can be queried by later workload runs that only share the arguments.
+ */
+record DatasetSpec(long hits,
+                   int apps,
+                   int uris,
+                   double uriSkew,
+                   int ips,
+                   double ipSkew,
+                   LocalDateTime start,
+                   LocalDateTime end,
+                   TimeShape timeShape,
+                   long seed) {
+
+    static DatasetSpec from(Arguments arguments) {
+        LocalDateTime end = arguments.getDateTime("end", LocalDateTime.now().withNano(0));
+        return new DatasetSpec(
+                arguments.getLong("hits", 1_000_000),
+                arguments.getInt("apps", 2),
+                arguments.getInt("uris", 10_000),
+                arguments.getDouble("uri-skew", 1.1),
+                arguments.getInt("ips", 100_000),
+                arguments.getDouble("ip-skew", 0.6),
+                end.minusDays(arguments.getInt("days", 30)),
+                end,
+                TimeShape.valueOf(arguments.get("time-shape", "diurnal").toUpperCase()),
+                arguments.getLong("seed", 42));
+    }
+}
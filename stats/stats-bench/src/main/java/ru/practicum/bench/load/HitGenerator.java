@@ -0,0 +1,91 @@
+package ru.practicum.bench.load;
+
+import ru.practicum.HitDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+
+/**
+ * Produces hits of a {@link DatasetSpec}: URIs and visitor IPs by Zipf popularity, timestamps by
+ * the time shape. Not thread-safe; concurrent users take a {@link #split()} each.
+ */
+class HitGenerator {
+
+    static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final DatasetSpec spec;
+    private final ZipfSampler uriSampler;
+    private final ZipfSampler ipSampler;
+    private final SplittableRandom random;
+    private final long periodSeconds;
+
+    HitGenerator(DatasetSpec spec) {
+        this(spec, new ZipfSampler(spec.uris(), spec.uriSkew()), new ZipfSampler(spec.ips(), spec.ipSkew()),
+                new SplittableRandom(spec.seed()));
+    }
+
+    private HitGenerator(DatasetSpec spec, ZipfSampler uriSampler, ZipfSampler ipSampler, SplittableRandom random) {
+        this.spec = spec;
+        this.uriSampler = uriSampler;
+        this.ipSampler = ipSampler;
+        this.random = random;
+        this.periodSeconds = Math.max(1, Duration.between(spec.start(), spec.end()).toSeconds());
+    }
+
+    HitGenerator split() {
+        return new HitGenerator(spec, uriSampler, ipSampler, random.split());
+    }
+
+    static String app(int index) {
+        return index == 0 ? "ewm-main-service" : "ewm-app-" + index;
+    }
+
+    static String uri(int rank) {
+        return rank == 0 ? "/events" : "/events/" + rank;
+    }
+
+    boolean chance(double probability) {
+        return random.nextDouble() < probability;
+    }
+
+    String nextUri() {
+        return uri(uriSampler.sample(random));
+    }
+
+    HitDto next(LocalDateTime timestamp) {
+        HitDto hit = new HitDto();
+        hit.setApp(app(random.nextInt(spec.apps())));
+        hit.setUri(nextUri());
+        hit.setIp(ip(ipSampler.sample(random)));
+        hit.setTimestamp(timestamp);
+        return hit;
+    }
+
+    /**
+     * Appends one hit of the dataset period as a JSON line, without going through {@link HitDto}.
+     */
+    void appendNdjson(StringBuilder out) {
+        out.append("{\"app\":\"").append(app(random.nextInt(spec.apps())))
+                .append("\",\"uri\":\"").append(nextUri())
+                .append("\",\"ip\":\"").append(ip(ipSampler.sample(random)))
+                .append("\",\"timestamp\":\"").append(FORMATTER.format(nextTimestamp()))
+                .append("\"}\n");
+    }
+
+    LocalDateTime nextTimestamp() {
+        while (true) {
+            long offset = random.nextLong(periodSeconds);
+            LocalDateTime timestamp = spec.start().plusSeconds(offset);
+            if (random.nextDouble() < spec.timeShape().weight(timestamp.toLocalTime().toSecondOfDay())) {
+                return timestamp;
+            }
+        }
+    }
+
+    private static String ip(int index) {
+        // spread the visitor index over 10.0.0.0/8
+        return "10." + (index >>> 16 & 0xff) + "." + (index >>> 8 & 0xff) + "." + (index & 0xff);
+    }
+}
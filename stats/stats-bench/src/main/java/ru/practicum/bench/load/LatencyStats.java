@@ -0,0 +1,74 @@
+package ru.practicum.bench.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and failures of one kind of request. Recording is lock-free; {@link #interval()}
+ * hands out what was recorded since the previous call and adds it to the run total.
+ */
+class LatencyStats {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final String operation;
+    private final Recorder recorder = new Recorder(MAX_LATENCY_MICROS, 3);
+    private final Histogram total = new Histogram(MAX_LATENCY_MICROS, 3);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    private Histogram reusable;
+
+    LatencyStats(String operation) {
+        this.operation = operation;
+    }
+
+    String getOperation() {
+        return operation;
+    }
+
+    void record(long nanos, int status) {
+        recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), MAX_LATENCY_MICROS));
+        if (status == 503) {
+            shed.increment();
+        } else if (status >= 400) {
+            errors.increment();
+        }
+    }
+
+    void recordFailure() {
+        errors.increment();
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+
+    long getShed() {
+        return shed.sum();
+    }
+
+    synchronized Histogram interval() {
+        reusable = recorder.getIntervalHistogram(reusable);
+        total.add(reusable);
+        return reusable;
+    }
+
+    synchronized Histogram total() {
+        interval();
+        return total;
+    }
+
+    /**
+     * Starts counting from zero, used to drop the warm-up.
+     */
+    synchronized void reset() {
+        interval();
+        total.reset();
+        errors.reset();
+        shed.reset();
+    }
+}
@@ -0,0 +1,97 @@
+package ru.practicum.bench.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import ru.practicum.bench.BenchData;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fills a running stats-server with a synthetic dataset and then drives a mixed workload against it.
+ * <pre>
+ * mvn -Pbench -pl stats/stats-bench -am verify -DskipTests -Djmh.skip -Dload.skip=false \
+ *     -Dload.args="--hits=10_000_000 --duration=PT5M"
+ * </pre>
+ * Options, all {@code --name=value}:
+ * <ul>
+ *     <li>{@code phase}: {@code load}, {@code run} or {@code all} (default)</li>
+ *     <li>{@code base-url}: stats-server, {@code http://localhost:9090}</li>
+ *     <li>dataset: {@code hits}, {@code apps}, {@code uris}, {@code uri-skew}, {@code ips} (at most 2^24),
+ *     {@code ip-skew}, {@code days}, {@code end} ({@code yyyy-MM-dd HH:mm:ss}, default now),
+ *     {@code time-shape} ({@code uniform} or {@code diurnal}), {@code seed}</li>
+ *     <li>loading: {@code chunk} hits per request and transaction, {@code streams} parallel requests; keep one
+ *     stream on H2, which fails instead of waiting when two transactions update the same rollup row</li>
+ *     <li>workload: {@code concurrency}, {@code rate} (requests/s, 0 for a closed loop), {@code read-ratio},
+ *     {@code duration}, {@code warmup}, {@code stats-window}, {@code stats-uris}, {@code unique-ratio}</li>
+ *     <li>{@code report}: file to write the results to as JSON</li>
+ * </ul>
+ * A {@code run} against data loaded earlier must use the same dataset options, {@code end} included,
+ * for its queries to fall into the loaded period.
+ */
+@Slf4j
+public class LoadHarness {
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        Arguments arguments = new Arguments(args);
+        String phase = arguments.get("phase", "all");
+        String baseUrl = arguments.get("base-url", "http://localhost:9090");
+        DatasetSpec spec = DatasetSpec.from(arguments);
+        ObjectMapper objectMapper = BenchData.objectMapper();
+        log.info("Dataset {}", spec);
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        if (!phase.equals("run")) {
+            new BulkLoader(client, objectMapper, baseUrl, arguments.getInt("chunk", 50_000),
+                    arguments.getInt("streams", 1)).load(spec);
+        }
+        if (phase.equals("load")) {
+            return;
+        }
+
+        WorkloadDriver.Settings settings = WorkloadDriver.Settings.from(arguments);
+        List<LatencyStats> results = new WorkloadDriver(client, objectMapper, baseUrl, spec, settings).run();
+        double seconds = settings.duration().toNanos() / 1e9;
+
+        Map<String, Map<String, Object>> report = new LinkedHashMap<>();
+        log.info(String.format("%-11s %9s %8s %6s %6s %8s %8s %8s %9s %9s", "operation", "requests", "req/s",
+                "503", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (LatencyStats stats : results) {
+            Histogram histogram = stats.total();
+            log.info(String.format("%-11s %9d %8.0f %6d %6d %8.1f %8.1f %8.1f %9.1f %9.1f", stats.getOperation(),
+                    histogram.getTotalCount(), histogram.getTotalCount() / seconds, stats.getShed(), stats.getErrors(),
+                    millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                    histogram.getMaxValue() / 1e3));
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("requests", histogram.getTotalCount());
+            row.put("throughput", histogram.getTotalCount() / seconds);
+            row.put("shed", stats.getShed());
+            row.put("errors", stats.getErrors());
+            row.put("p50Ms", millis(histogram, 50));
+            row.put("p90Ms", millis(histogram, 90));
+            row.put("p99Ms", millis(histogram, 99));
+            row.put("p999Ms", millis(histogram, 99.9));
+            row.put("maxMs", histogram.getMaxValue() / 1e3);
+            report.put(stats.getOperation(), row);
+        }
+        String reportFile = arguments.get("report", null);
+        if (reportFile != null) {
+            objectMapper.writer(SerializationFeature.INDENT_OUTPUT).writeValue(Path.of(reportFile).toFile(),
+                    Map.of("dataset", spec.toString(), "settings", settings.toString(), "results", report));
+        }
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1e3;
+    }
+}
@@ -0,0 +1,23 @@
+package ru.practicum.bench.load;
+
+/**
+ * How the timestamps of generated hits are spread over the dataset period.
+ */
+enum TimeShape {
+    UNIFORM,
+    // a daily cycle with the peak in the evening and about a tenth of the peak rate at night
+    DIURNAL;
+
+    private static final double SECONDS_PER_DAY = 24 * 3600;
+
+    /**
+     * Relative rate at the given second of the day, between 0 and 1.
+     */
+    double weight(long secondOfDay) {
+        if (this == UNIFORM) {
+            return 1;
+        }
+        double phase = 2 * Math.PI * (secondOfDay / SECONDS_PER_DAY - 20.0 / 24);
+        return 0.55 + 0.45 * Math.cos(phase);
+    }
+}
@@ -0,0 +1,171 @@
+package ru.practicum.bench.load;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import ru.practicum.HitDto;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Mixed {@code POST /hit} and {@code GET /stats} traffic from a number of concurrent users.
+ * <p>
+ * Without a rate every user sends its next request as soon as the previous one is answered.
+ * With a rate the requests are due on a fixed schedule and latency is measured from the due time,
+ * so a slow server cannot hide its queueing by slowing down the load (coordinated omission).
+ */
+@Slf4j
+class WorkloadDriver {
+
+    private static final Duration REPORT_INTERVAL = Duration.ofSeconds(10);
+    // a request still unanswered after this counts as failed, so that the run ends on time
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final DatasetSpec spec;
+    private final Settings settings;
+
+    private final LatencyStats hitStats = new LatencyStats("POST /hit");
+    private final LatencyStats statsStats = new LatencyStats("GET /stats");
+
+    record Settings(int concurrency, double rate, double readRatio, Duration duration, Duration warmup,
+                    Duration statsWindow, int statsUris, double uniqueRatio) {
+
+        static Settings from(Arguments arguments) {
+            return new Settings(
+                    arguments.getInt("concurrency", 64),
+                    arguments.getDouble("rate", 0),
+                    arguments.getDouble("read-ratio", 0.2),
+                    arguments.getDuration("duration", Duration.ofMinutes(1)),
+                    arguments.getDuration("warmup", Duration.ofSeconds(10)),
+                    arguments.getDuration("stats-window", Duration.ofDays(1)),
+                    arguments.getInt("stats-uris", 5),
+                    arguments.getDouble("unique-ratio", 0.2));
+        }
+    }
+
+    WorkloadDriver(HttpClient client, ObjectMapper objectMapper, String baseUrl, DatasetSpec spec, Settings settings) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl;
+        this.spec = spec;
+        this.settings = settings;
+    }
+
+    List<LatencyStats> run() throws InterruptedException {
+        long started = System.nanoTime();
+        long measureFrom = started + settings.warmup().toNanos();
+        long deadline = measureFrom + settings.duration().toNanos();
+        // nanoseconds between the requests of one user, zero for a closed loop
+        long period = settings.rate() > 0 ? (long) (settings.concurrency() * 1e9 / settings.rate()) : 0;
+        log.info("Running {} users for {} after {} warm-up, {}", settings.concurrency(), settings.duration(),
+                settings.warmup(), period > 0 ? "at " + settings.rate() + " requests/s" : "closed loop");
+
+        HitGenerator generator = new HitGenerator(spec);
+        try (ExecutorService users = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int user = 0; user < settings.concurrency(); user++) {
+                HitGenerator userGenerator = generator.split();
+                long firstDue = started + (period > 0 ? period * user / settings.concurrency() : 0);
+                users.execute(() -> runUser(userGenerator, firstDue, period, deadline));
+            }
+            users.shutdown();
+            boolean warm = false;
+            long lastReport = System.nanoTime();
+            while (!users.awaitTermination(1, TimeUnit.SECONDS)) {
+                long now = System.nanoTime();
+                if (!warm && now - measureFrom >= 0) {
+                    hitStats.reset();
+                    statsStats.reset();
+                    warm = true;
+                    lastReport = now;
+                } else if (warm && now - lastReport >= REPORT_INTERVAL.toNanos()) {
+                    report(hitStats.interval(), statsStats.interval(), (now - lastReport) / 1e9);
+                    lastReport = now;
+                }
+            }
+        }
+        return List.of(hitStats, statsStats);
+    }
+
+    private void runUser(HitGenerator generator, long due, long period, long deadline) {
+        while (System.nanoTime() - deadline < 0) {
+            if (period > 0) {
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            long start = period > 0 ? due : System.nanoTime();
+            boolean read = generator.chance(settings.readRatio());
+            LatencyStats stats = read ? statsStats : hitStats;
+            try {
+                HttpRequest request = read ? statsRequest(generator) : hitRequest(generator);
+                int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                stats.record(System.nanoTime() - start, status);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                stats.recordFailure();
+                log.debug("Request failed: {}", e.getMessage());
+            }
+            due += period;
+        }
+    }
+
+    private HttpRequest hitRequest(HitGenerator generator) throws JsonProcessingException {
+        HitDto hit = generator.next(LocalDateTime.now().withNano(0));
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/hit"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(hit)))
+                .build();
+    }
+
+    private HttpRequest statsRequest(HitGenerator generator) {
+        LocalDateTime start = generator.nextTimestamp();
+        LocalDateTime end = start.plus(settings.statsWindow());
+        Set<String> uris = new LinkedHashSet<>();
+        for (int i = 0; i < settings.statsUris(); i++) {
+            uris.add(generator.nextUri());
+        }
+        String unique = generator.chance(settings.uniqueRatio()) ? "true" : "false";
+        String query = "start=" + encode(HitGenerator.FORMATTER.format(start))
+                + "&end=" + encode(HitGenerator.FORMATTER.format(end))
+                + (uris.isEmpty() ? "" : "&uris=" + encode(String.join(",", uris)))
+                + "&unique=" + unique;
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/stats?" + query))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+    }
+
+    private void report(Histogram hits, Histogram stats, double seconds) {
+        log.info("hit {} req/s p99 {} ms | stats {} req/s p99 {} ms",
+                String.format("%.0f", hits.getTotalCount() / seconds),
+                String.format("%.1f", hits.getValueAtPercentile(99) / 1e3),
+                String.format("%.0f", stats.getTotalCount() / seconds),
+                String.format("%.1f", stats.getValueAtPercentile(99) / 1e3));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
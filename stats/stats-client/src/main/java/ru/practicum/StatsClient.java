@@ -1,11 +1,45 @@
 package ru.practicum;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface StatsClient {
     void saveHit(String app, String uri, String ip);
 
+    /**
+     * Raw stats as parsed JSON; {@link #findStats} and {@link #getHits} return them typed.
+     */
     List<Object> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique);
 
+    /**
+     * Stats ordered by hits descending; all uris when {@code uris} is null or empty.
+     */
+    List<StatsDto> findStats(LocalDateTime start, LocalDateTime end, Collection<String> uris, boolean unique);
+
+    /**
+     * Hits per uri summed over apps. Every requested uri is present, with 0 if it has no hits.
+     */
+    Map<String, Long> getHits(LocalDateTime start, LocalDateTime end, Collection<String> uris, boolean unique);
+
+    /**
+     * Like {@link #getHits} with unique hits estimated from the hourly visitor sketches of stats-server,
+     * which does not scan the raw hits of the window.
+     */
+    Map<String, Long> getApproxUniqueHits(LocalDateTime start, LocalDateTime end, Collection<String> uris);
+
+    /**
+     * The {@code k} most hit uris of the app over the last {@code hour}, {@code day} or {@code week},
+     * ordered by hits descending. Empty when stats-server cannot be reached.
+     */
+    List<StatsDto> findTop(String app, String window, int k);
+
+    /**
+     * Hits per {@code minute}, {@code hour} or {@code day} of the window, one series per app and uri;
+     * all uris when {@code uris} is null or empty. Empty when stats-server cannot be reached.
+     */
+    List<SeriesDto> findSeries(LocalDateTime start, LocalDateTime end, Collection<String> uris,
+                               String interval, boolean unique);
+
 }
\ No newline at end of file
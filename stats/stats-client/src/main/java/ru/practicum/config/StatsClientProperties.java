@@ -0,0 +1,143 @@
+package ru.practicum.config;
+
+import lombok.Data;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+public class StatsClientProperties {
+
+    private String baseUrl = "http://stats-server:9090";
+
+    private Duration connectTimeout = Duration.ofSeconds(1);
+
+    private Duration readTimeout = Duration.ofSeconds(2);
+
+    private Transport transport = new Transport();
+
+    private Async async = new Async();
+
+    private Query query = new Query();
+
+    private Cache cache = new Cache();
+
+    private Breaker breaker = new Breaker();
+
+    private Spill spill = new Spill();
+
+    @Data
+    public static class Async {
+
+        private boolean enabled = false;
+
+        private int queueCapacity = 10_000;
+
+        private int batchSize = 100;
+
+        private Duration flushInterval = Duration.ofSeconds(1);
+
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+        // Only used by the BLOCK policy: how long a caller may wait for a free slot before the hit is dropped.
+        private Duration offerTimeout = Duration.ofMillis(50);
+    }
+
+    @Data
+    public static class Query {
+
+        // Concurrent lookups of the same window share one request while an earlier one is in flight.
+        private boolean coalesce = true;
+
+        // Longer uri lists are sent in the body of POST /stats/query instead of the query string.
+        private int maxUrlLength = 2000;
+
+        private int maxUrisPerRequest = 1000;
+
+        // An end within this of now is moved to the next multiple of it, so that lookups ending now coalesce.
+        private Duration openEndGranularity = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class Cache {
+
+        private boolean enabled = false;
+
+        private long maxSize = 10_000;
+
+        // A window that ends at most this long ago counts as open: it is cached by its start alone and refreshed.
+        private Duration openEndTolerance = Duration.ofMinutes(1);
+
+        // Age after which the next read of an open window still gets the cached counts but starts one reload.
+        private Duration refreshAfter = Duration.ofSeconds(5);
+
+        private Duration openTtl = Duration.ofMinutes(1);
+
+        // Closed windows hardly change any more, so they are kept longer and never refreshed.
+        private Duration closedTtl = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class Transport {
+
+        private TransportType type = TransportType.POOLED;
+
+        // POOLED only: connections kept open to stats-server, also the limit on concurrent calls.
+        private int maxConnections = 50;
+
+        // POOLED only: idle connections are closed after this, and any connection is retired after timeToLive.
+        private Duration idleTimeout = Duration.ofSeconds(30);
+
+        private Duration timeToLive = Duration.ofMinutes(5);
+
+        // JDK only: negotiate HTTP/2 with an h2c upgrade; stats-server must run with server.http2.enabled.
+        // All calls then share one connection, and Tomcat refuses more than 100 concurrent streams on it.
+        private boolean http2 = false;
+
+        // Gzip request bodies of at least gzipMinSize bytes; stats-server inflates them.
+        private boolean gzip = false;
+
+        private int gzipMinSize = 1024;
+    }
+
+    @Data
+    public static class Breaker {
+
+        private boolean enabled = true;
+
+        // Consecutive timeouts, connection errors or 5xx responses after which calls fail fast.
+        private int failureThreshold = 5;
+
+        // How long calls fail fast before a single trial call is let through.
+        private Duration openDuration = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Spill {
+
+        // Keep hits that could not be sent in a local file and send them again once stats-server is back.
+        private boolean enabled = false;
+
+        private Path dir = Path.of("data", "stats-spill");
+
+        // Hits beyond this are dropped.
+        private DataSize maxSize = DataSize.ofMegabytes(64);
+
+        private Duration replayInterval = Duration.ofSeconds(5);
+
+        private int replayBatchSize = 500;
+    }
+
+    public enum TransportType {
+        // Apache HttpClient 5 with a bounded keep-alive connection pool
+        POOLED,
+        // JDK HttpClient: keeps connections alive without a bound, can speak HTTP/2
+        JDK
+    }
+
+    public enum OverflowPolicy {
+        DROP,
+        BLOCK
+    }
+}
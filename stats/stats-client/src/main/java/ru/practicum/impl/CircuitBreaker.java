@@ -0,0 +1,112 @@
+package ru.practicum.impl;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.config.StatsClientProperties;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Fails calls fast after {@code failureThreshold} consecutive failures. Once {@code openDuration}
+ * has passed a single trial call is let through: its success closes the breaker, its failure opens
+ * it again. Only exceptions matching the failure predicate count; any other outcome means the
+ * server answered and resets the count.
+ */
+@Slf4j
+public class CircuitBreaker implements MeterBinder {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final Predicate<Throwable> isFailure;
+    private final AtomicLong rejected = new AtomicLong();
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+
+    public CircuitBreaker(StatsClientProperties.Breaker properties, Predicate<Throwable> isFailure) {
+        this.failureThreshold = properties.getFailureThreshold();
+        this.openNanos = properties.getOpenDuration().toNanos();
+        this.isFailure = isFailure;
+    }
+
+    public <T> T call(Supplier<T> call) {
+        if (!tryAcquire()) {
+            rejected.incrementAndGet();
+            throw new CircuitBreakerOpenException("Stats server is unavailable, calls are suspended");
+        }
+        try {
+            T result = call.get();
+            onSuccess();
+            return result;
+        } catch (RuntimeException e) {
+            if (isFailure.test(e)) {
+                onFailure();
+            } else {
+                onSuccess();
+            }
+            throw e;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized boolean isCallPermitted() {
+        return state == State.CLOSED || state == State.OPEN && System.nanoTime() - openedAt >= openNanos;
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("stats.client.breaker.open", this, breaker -> breaker.getState() == State.CLOSED ? 0 : 1)
+                .register(registry);
+        FunctionCounter.builder("stats.client.breaker.rejected", rejected, AtomicLong::get)
+                .register(registry);
+    }
+
+    private synchronized boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            log.info("Stats server is available again, circuit breaker closed");
+        }
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    private synchronized void onFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || state == State.CLOSED && failures >= failureThreshold) {
+            if (state == State.CLOSED) {
+                log.warn("Stats server failed {} calls in a row, circuit breaker opened", failures);
+            }
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+}
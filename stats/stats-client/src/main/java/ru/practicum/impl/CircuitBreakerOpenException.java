@@ -0,0 +1,7 @@
+package ru.practicum.impl;
+
+public class CircuitBreakerOpenException extends RuntimeException {
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,39 @@
+package ru.practicum.impl;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses request bodies of at least {@code minSize} bytes; hit batches and long uri lists
+ * shrink several times over.
+ */
+class GzipRequestInterceptor implements ClientHttpRequestInterceptor {
+
+    private final int minSize;
+
+    GzipRequestInterceptor(int minSize) {
+        this.minSize = minSize;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        if (body.length < minSize) {
+            return execution.execute(request, body);
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body);
+        }
+        request.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        request.getHeaders().setContentLength(compressed.size());
+        return execution.execute(request, compressed.toByteArray());
+    }
+}
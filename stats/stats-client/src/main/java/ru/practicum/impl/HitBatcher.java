@@ -0,0 +1,167 @@
+package ru.practicum.impl;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.HitDto;
+import ru.practicum.config.StatsClientProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Buffers hits in a bounded queue and hands them to the sender from a single background thread,
+ * either when {@code batchSize} hits are collected or when {@code flushInterval} has passed since
+ * the first hit of the current batch. Callers never wait on the network: a full queue either drops
+ * the hit immediately or after a short offer timeout, depending on the overflow policy.
+ */
+@Slf4j
+public class HitBatcher implements AutoCloseable, MeterBinder {
+
+    // Upper bound for a single wait on the queue, so that close() is noticed without waiting out a long flush interval.
+    private static final long MAX_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final BlockingQueue<HitDto> queue;
+    private final Consumer<List<HitDto>> sender;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final StatsClientProperties.OverflowPolicy overflowPolicy;
+    private final long offerTimeoutNanos;
+    private final Thread worker;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    public HitBatcher(StatsClientProperties.Async properties, Consumer<List<HitDto>> sender) {
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.sender = sender;
+        this.batchSize = properties.getBatchSize();
+        this.flushIntervalNanos = properties.getFlushInterval().toNanos();
+        this.overflowPolicy = properties.getOverflowPolicy();
+        this.offerTimeoutNanos = properties.getOfferTimeout().toNanos();
+        this.worker = new Thread(this::run, "stats-hit-batcher");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public boolean submit(HitDto hit) {
+        boolean offered = running && offer(hit);
+        if (offered) {
+            accepted.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+            log.debug("Hit dropped, queue is full: app={}, uri={}", hit.getApp(), hit.getUri());
+        }
+        return offered;
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("stats.client.hits.queue.size", queue, BlockingQueue::size)
+                .register(registry);
+        FunctionCounter.builder("stats.client.hits.accepted", accepted, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("stats.client.hits.dropped", dropped, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("stats.client.hits.sent", sent, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("stats.client.hits.failed", failed, AtomicLong::get)
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            worker.join(TimeUnit.NANOSECONDS.toMillis(MAX_POLL_NANOS) + 5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.warn("{} hits were not sent before shutdown", queue.size());
+        }
+    }
+
+    private boolean offer(HitDto hit) {
+        if (overflowPolicy == StatsClientProperties.OverflowPolicy.DROP) {
+            return queue.offer(hit);
+        }
+        try {
+            return queue.offer(hit, offerTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void run() {
+        List<HitDto> batch = new ArrayList<>(batchSize);
+        long deadline = 0;
+        while (running || !queue.isEmpty()) {
+            long wait = batch.isEmpty() ? MAX_POLL_NANOS : deadline - System.nanoTime();
+            HitDto hit = null;
+            if (wait > 0) {
+                try {
+                    hit = queue.poll(Math.min(wait, MAX_POLL_NANOS), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    running = false;
+                }
+            }
+            if (hit != null) {
+                if (batch.isEmpty()) {
+                    deadline = System.nanoTime() + flushIntervalNanos;
+                }
+                batch.add(hit);
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+            if (batch.size() >= batchSize || (!batch.isEmpty() && System.nanoTime() - deadline >= 0)) {
+                send(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    private void send(List<HitDto> batch) {
+        try {
+            sender.accept(batch);
+            sent.addAndGet(batch.size());
+        } catch (Exception e) {
+            failed.addAndGet(batch.size());
+            log.error("Error sending batch of {} hits: {}", batch.size(), e.getMessage());
+        }
+    }
+}
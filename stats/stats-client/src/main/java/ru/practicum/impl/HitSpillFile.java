@@ -0,0 +1,235 @@
+package ru.practicum.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.HitDto;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Append-only NDJSON file of hits that could not be sent. For a replay the file is moved aside,
+ * so appends continue into a fresh one, and is then sent in batches; the byte offset reached is
+ * saved after every batch, so a replay interrupted by a failure or a restart resumes where it
+ * stopped. Delivery is at least once. Both files together never grow beyond {@code maxBytes}.
+ */
+@Slf4j
+public class HitSpillFile implements MeterBinder, AutoCloseable {
+
+    private static final String ACTIVE = "hits.spill";
+    private static final String REPLAY = "hits.replay";
+    private static final String OFFSET = "hits.replay.offset";
+
+    private final Path dir;
+    private final long maxBytes;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Object replayLock = new Object();
+
+    private FileChannel channel;
+    private long activeBytes;
+    private volatile long replayBytes;
+
+    public HitSpillFile(Path dir, long maxBytes, ObjectMapper objectMapper) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.objectMapper = objectMapper;
+        try {
+            Files.createDirectories(dir);
+            activeBytes = Files.exists(dir.resolve(ACTIVE)) ? Files.size(dir.resolve(ACTIVE)) : 0;
+            replayBytes = Files.exists(dir.resolve(REPLAY)) ? Files.size(dir.resolve(REPLAY)) - readOffset() : 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return false if the hits were dropped because the spill is full or cannot be written
+     */
+    public synchronized boolean append(List<HitDto> hits) {
+        try {
+            ByteArrayOutputStream lines = new ByteArrayOutputStream();
+            for (HitDto hit : hits) {
+                lines.write(objectMapper.writeValueAsBytes(hit));
+                lines.write('\n');
+            }
+            if (activeBytes + replayBytes + lines.size() > maxBytes) {
+                dropped.addAndGet(hits.size());
+                return false;
+            }
+            if (channel == null) {
+                channel = FileChannel.open(dir.resolve(ACTIVE),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            activeBytes += lines.size();
+            spilled.addAndGet(hits.size());
+            return true;
+        } catch (IOException e) {
+            log.error("Error spilling {} hits: {}", hits.size(), e.getMessage());
+            dropped.addAndGet(hits.size());
+            return false;
+        }
+    }
+
+    public boolean isEmpty() {
+        synchronized (this) {
+            if (activeBytes > 0) {
+                return false;
+            }
+        }
+        return replayBytes <= 0;
+    }
+
+    /**
+     * Sends the spilled hits in batches. A sender exception stops the replay and is rethrown;
+     * the batch it failed on is sent again by the next replay.
+     */
+    public void replay(int batchSize, Consumer<List<HitDto>> sender) {
+        synchronized (replayLock) {
+            try {
+                if (!Files.exists(dir.resolve(REPLAY)) && !rotate()) {
+                    return;
+                }
+                replayFile(batchSize, sender);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("stats.client.spill.bytes", this, spill -> spill.activeBytes + spill.replayBytes)
+                .register(registry);
+        FunctionCounter.builder("stats.client.spill.spilled", spilled, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("stats.client.spill.replayed", replayed, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("stats.client.spill.dropped", dropped, AtomicLong::get)
+                .register(registry);
+    }
+
+    public long getSpilled() {
+        return spilled.get();
+    }
+
+    public long getReplayed() {
+        return replayed.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            closeChannel();
+        } catch (IOException e) {
+            log.warn("Error closing the spill file: {}", e.getMessage());
+        }
+    }
+
+    // appends go on into a fresh file while the current one is replayed
+    private synchronized boolean rotate() throws IOException {
+        if (activeBytes == 0) {
+            return false;
+        }
+        closeChannel();
+        Files.deleteIfExists(dir.resolve(OFFSET));
+        Files.move(dir.resolve(ACTIVE), dir.resolve(REPLAY), StandardCopyOption.ATOMIC_MOVE);
+        replayBytes = activeBytes;
+        activeBytes = 0;
+        return true;
+    }
+
+    private void replayFile(int batchSize, Consumer<List<HitDto>> sender) throws IOException {
+        Path file = dir.resolve(REPLAY);
+        long offset = readOffset();
+        try (FileChannel replayChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            replayChannel.position(offset);
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(Channels.newInputStream(replayChannel), StandardCharsets.UTF_8));
+            List<HitDto> batch = new ArrayList<>(batchSize);
+            long batchBytes = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                batchBytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                HitDto hit = parse(line);
+                if (hit != null) {
+                    batch.add(hit);
+                }
+                if (batch.size() == batchSize) {
+                    offset = send(batch, sender, offset + batchBytes);
+                    batch = new ArrayList<>(batchSize);
+                    batchBytes = 0;
+                }
+            }
+            if (!batch.isEmpty()) {
+                send(batch, sender, offset + batchBytes);
+            }
+        }
+        Files.delete(file);
+        Files.deleteIfExists(dir.resolve(OFFSET));
+        replayBytes = 0;
+    }
+
+    private long send(List<HitDto> batch, Consumer<List<HitDto>> sender, long offset) throws IOException {
+        sender.accept(batch);
+        Path tmp = dir.resolve(OFFSET + ".tmp");
+        Files.writeString(tmp, Long.toString(offset));
+        Files.move(tmp, dir.resolve(OFFSET), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        replayBytes = Files.size(dir.resolve(REPLAY)) - offset;
+        replayed.addAndGet(batch.size());
+        return offset;
+    }
+
+    private HitDto parse(String line) {
+        try {
+            return objectMapper.readValue(line, HitDto.class);
+        } catch (JsonProcessingException e) {
+            // a torn last line after a crash
+            log.warn("Skipping unreadable spilled hit: {}", e.getOriginalMessage());
+            return null;
+        }
+    }
+
+    private long readOffset() throws IOException {
+        Path offset = dir.resolve(OFFSET);
+        return Files.exists(offset) ? Long.parseLong(Files.readString(offset).trim()) : 0;
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
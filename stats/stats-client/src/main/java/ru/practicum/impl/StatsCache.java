@@ -0,0 +1,151 @@
+package ru.practicum.impl;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import ru.practicum.StatsDto;
+import ru.practicum.config.StatsClientProperties;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Stats per uri, so that lookups of different uri sets share entries. Windows ending about now are
+ * keyed by their start only: their counts are served for {@code refreshAfter} and then reloaded in
+ * the background by the first read after that, which still gets the stale counts. Closed windows
+ * are just kept until they expire. Concurrent reloads of the same window are merged by the lookup
+ * coalescer behind the fetcher, which moves their {@code now()} ends to {@code query.open-end-granularity}.
+ */
+public class StatsCache implements MeterBinder {
+
+    private final StatsClientProperties.Cache properties;
+    private final BiFunction<StatsWindow, Collection<String>, List<StatsDto>> fetcher;
+    private final LoadingCache<Key, List<StatsDto>> cache;
+    private final AtomicLong refreshes = new AtomicLong();
+
+    StatsCache(StatsClientProperties.Cache properties, BiFunction<StatsWindow, Collection<String>, List<StatsDto>> fetcher) {
+        this.properties = properties;
+        this.fetcher = fetcher;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfter(new ShapeExpiry())
+                .refreshAfterWrite(properties.getRefreshAfter())
+                .recordStats()
+                .build(new Loader());
+    }
+
+    List<StatsDto> get(StatsWindow window, Collection<String> uris) {
+        LocalDateTime end = isOpen(window) ? null : window.end();
+        if (uris == null || uris.isEmpty()) {
+            return cache.get(new Key(window.start(), end, window.unique(), null));
+        }
+
+        List<Key> keys = uris.stream()
+                .distinct()
+                .map(uri -> new Key(window.start(), end, window.unique(), uri))
+                .toList();
+        List<StatsDto> stats = new ArrayList<>();
+        cache.getAll(keys).values().forEach(stats::addAll);
+        stats.sort(Comparator.comparing(StatsDto::getHits).reversed());
+        return stats;
+    }
+
+    public long getRefreshes() {
+        return refreshes.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "stats.client.views");
+        FunctionCounter.builder("stats.client.views.refreshes", refreshes, AtomicLong::get)
+                .register(registry);
+    }
+
+    private boolean isOpen(StatsWindow window) {
+        return !window.end().isBefore(LocalDateTime.now().minus(properties.getOpenEndTolerance()));
+    }
+
+    private Map<Key, List<StatsDto>> load(Collection<? extends Key> keys) {
+        Map<Key, List<StatsDto>> loaded = new HashMap<>();
+        Map<StatsWindow, List<Key>> byWindow = keys.stream()
+                .collect(Collectors.groupingBy(Key::window, LinkedHashMap::new, Collectors.toList()));
+
+        byWindow.forEach((window, windowKeys) -> {
+            boolean allUris = windowKeys.stream().anyMatch(key -> key.uri() == null);
+            List<String> uris = allUris ? null : windowKeys.stream().map(Key::uri).toList();
+            List<StatsDto> stats = fetcher.apply(window, uris);
+
+            Map<String, List<StatsDto>> byUri = stats.stream().collect(Collectors.groupingBy(StatsDto::getUri));
+            for (Key key : windowKeys) {
+                loaded.put(key, key.uri() == null ? List.copyOf(stats) : byUri.getOrDefault(key.uri(), List.of()));
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * {@code end} is null for open windows; {@code uri} is null for the stats of all uris.
+     */
+    private record Key(LocalDateTime start, LocalDateTime end, String unique, String uri) {
+
+        private StatsWindow window() {
+            return new StatsWindow(start, end == null ? LocalDateTime.now() : end, unique);
+        }
+    }
+
+    private class Loader implements CacheLoader<Key, List<StatsDto>> {
+
+        @Override
+        public List<StatsDto> load(Key key) {
+            return StatsCache.this.load(Set.of(key)).get(key);
+        }
+
+        @Override
+        public Map<Key, List<StatsDto>> loadAll(Set<? extends Key> keys) {
+            return StatsCache.this.load(keys);
+        }
+
+        @Override
+        public List<StatsDto> reload(Key key, List<StatsDto> oldValue) {
+            if (key.end() != null) {
+                return oldValue;
+            }
+            refreshes.incrementAndGet();
+            return load(key);
+        }
+    }
+
+    private class ShapeExpiry implements Expiry<Key, List<StatsDto>> {
+
+        @Override
+        public long expireAfterCreate(Key key, List<StatsDto> value, long currentTime) {
+            return (key.end() == null ? properties.getOpenTtl() : properties.getClosedTtl()).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(Key key, List<StatsDto> value, long currentTime, long currentDuration) {
+            // a closed window "refreshed" with its old counts must not live on because of it
+            return key.end() == null ? properties.getOpenTtl().toNanos() : currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(Key key, List<StatsDto> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
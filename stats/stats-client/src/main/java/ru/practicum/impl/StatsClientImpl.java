@@ -1,52 +1,122 @@
 package ru.practicum.impl;
 
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClient;
-import org.springframework.web.util.UriComponentsBuilder;
+import ru.practicum.BatchResultDto;
+import ru.practicum.HitDto;
+import ru.practicum.SeriesDto;
 import ru.practicum.StatsClient;
+import ru.practicum.StatsDto;
+import ru.practicum.StatsQueryDto;
+import ru.practicum.config.StatsClientProperties;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Slf4j
 @Component
-public class StatsClientImpl implements StatsClient {
+public class StatsClientImpl implements StatsClient, AutoCloseable {
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     private final RestClient restClient;
     private final String baseUrl;
+    private final HitBatcher hitBatcher;
+    private final StatsClientProperties.Query query;
+    private final StatsLookupCoalescer lookups;
+    private final StatsCache cache;
+    private final CircuitBreaker breaker;
+    private final HitSpillFile spill;
+    private final ScheduledExecutorService replayer;
+    private final StatsHttpTransport transport;
 
     public StatsClientImpl() {
         this("http://stats-server:9090");
     }
 
     public StatsClientImpl(String baseUrl) {
-        this.baseUrl = baseUrl;
-        this.restClient = RestClient.create(baseUrl);
+        this(propertiesFor(baseUrl));
     }
 
     public StatsClientImpl(RestClient restClient, String baseUrl) {
+        this(restClient, propertiesFor(baseUrl));
+    }
+
+    @Autowired
+    public StatsClientImpl(StatsClientProperties properties) {
+        this(StatsHttpTransport.create(properties), properties);
+    }
+
+    public StatsClientImpl(RestClient restClient, StatsClientProperties properties) {
+        this(restClient, null, properties);
+    }
+
+    private StatsClientImpl(StatsHttpTransport transport, StatsClientProperties properties) {
+        this(createRestClient(transport, properties), transport, properties);
+    }
+
+    private StatsClientImpl(RestClient restClient, StatsHttpTransport transport, StatsClientProperties properties) {
         this.restClient = restClient;
-        this.baseUrl = baseUrl;
+        this.transport = transport;
+        this.baseUrl = properties.getBaseUrl();
+        this.query = properties.getQuery();
+        this.lookups = query.isCoalesce() ? new StatsLookupCoalescer(this::fetchStats) : null;
+        this.cache = properties.getCache().isEnabled() ? new StatsCache(properties.getCache(), this::lookupStats) : null;
+        this.breaker = properties.getBreaker().isEnabled()
+                ? new CircuitBreaker(properties.getBreaker(), StatsClientImpl::isOutage)
+                : null;
+
+        StatsClientProperties.Spill spillProperties = properties.getSpill();
+        if (spillProperties.isEnabled()) {
+            this.spill = new HitSpillFile(spillProperties.getDir(), spillProperties.getMaxSize().toBytes(),
+                    Jackson2ObjectMapperBuilder.json().build());
+            this.replayer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "stats-hit-replayer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = spillProperties.getReplayInterval().toMillis();
+            int batchSize = spillProperties.getReplayBatchSize();
+            this.replayer.scheduleWithFixedDelay(() -> replaySpill(batchSize), interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.spill = null;
+            this.replayer = null;
+        }
+
+        this.hitBatcher = properties.getAsync().isEnabled()
+                ? new HitBatcher(properties.getAsync(), this::sendOrSpill)
+                : null;
     }
 
     @Override
     public void saveHit(String app, String uri, String ip) {
+        HitDto hit = new HitDto();
+        hit.setApp(app);
+        hit.setUri(uri);
+        hit.setIp(ip);
+        hit.setTimestamp(LocalDateTime.now());
+
+        if (hitBatcher != null) {
+            hitBatcher.submit(hit);
+            return;
+        }
+
         try {
-            Map<String, Object> hitData = new HashMap<>();
-            hitData.put("app", app);
-            hitData.put("uri", uri);
-            hitData.put("ip", ip);
-            hitData.put("timestamp", LocalDateTime.now().format(FORMATTER));
-
-            ResponseEntity<Void> response = restClient.post()
-                    .uri("/hit")
-                    .body(hitData)
-                    .retrieve()
-                    .toBodilessEntity();
+            ResponseEntity<Void> response = call(() -> postHit(hit));
 
             if (response.getStatusCode().is2xxSuccessful()) {
                 log.debug("Hit saved: app={}, uri={}, ip={}", app, uri, ip);
@@ -54,31 +124,220 @@ public class StatsClientImpl implements StatsClient {
                 log.error("Failed to save hit. Status: {}", response.getStatusCode());
             }
         } catch (Exception e) {
-            log.error("Error saving hit: {}", e.getMessage());
+            if (spill(List.of(hit), e)) {
+                log.debug("Hit spilled: app={}, uri={}, ip={}", app, uri, ip);
+            } else {
+                log.error("Error saving hit: {}", e.getMessage());
+            }
         }
     }
 
+    public Optional<HitBatcher> getHitBatcher() {
+        return Optional.ofNullable(hitBatcher);
+    }
+
+    public Optional<StatsCache> getStatsCache() {
+        return Optional.ofNullable(cache);
+    }
+
+    public Optional<CircuitBreaker> getCircuitBreaker() {
+        return Optional.ofNullable(breaker);
+    }
+
+    public Optional<HitSpillFile> getSpillFile() {
+        return Optional.ofNullable(spill);
+    }
+
+    /**
+     * Leased, idle, pending and max connections of the pooled transport.
+     */
+    public Optional<MeterBinder> getConnectionPoolMetrics() {
+        return Optional.ofNullable(transport).flatMap(StatsHttpTransport::getPoolMetrics);
+    }
+
     @Override
-    public List<Object> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+    public void close() {
+        if (hitBatcher != null) {
+            hitBatcher.close();
+        }
+        if (replayer != null) {
+            replayer.shutdownNow();
+        }
+        if (spill != null) {
+            spill.close();
+        }
+        if (transport != null) {
+            transport.close();
+        }
+    }
+
+    /**
+     * Sends the spilled hits once stats-server takes calls again. The first batch doubles as the
+     * trial call of a half-open breaker.
+     */
+    void replaySpill(int batchSize) {
+        if (spill.isEmpty() || breaker != null && !breaker.isCallPermitted()) {
+            return;
+        }
         try {
-            UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(baseUrl + "/stats")
-                    .queryParam("start", start.format(FORMATTER))
-                    .queryParam("end", end.format(FORMATTER));
+            spill.replay(batchSize, batch -> call(() -> sendHits(batch)));
+        } catch (Exception e) {
+            log.debug("Replay of spilled hits stopped: {}", e.getMessage());
+        }
+    }
 
-            if (uris != null && !uris.isEmpty()) {
-                uriBuilder.queryParam("uris", String.join(",", uris));
+    // hits that were spilled are not lost, so the batcher does not get to count them as failed
+    private void sendOrSpill(List<HitDto> hits) {
+        try {
+            call(() -> sendHits(hits));
+        } catch (RuntimeException e) {
+            if (!spill(hits, e)) {
+                throw e;
             }
+            log.debug("{} hits spilled: {}", hits.size(), e.getMessage());
+        }
+    }
+
+    private boolean spill(List<HitDto> hits, Exception e) {
+        return spill != null && (isOutage(e) || e instanceof CircuitBreakerOpenException) && spill.append(hits);
+    }
+
+    private BatchResultDto sendHits(List<HitDto> hits) {
+        BatchResultDto result = restClient.post()
+                .uri(baseUrl + "/hit/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(hits)
+                .retrieve()
+                .body(BatchResultDto.class);
+
+        if (result != null && result.getRejected() > 0) {
+            log.warn("Stats server rejected {} of {} hits", result.getRejected(), hits.size());
+        }
+        return result;
+    }
+
+    private ResponseEntity<Void> postHit(HitDto hit) {
+        return restClient.post()
+                .uri(baseUrl + "/hit")
+                .body(hit)
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    private <T> T call(Supplier<T> call) {
+        return breaker != null ? breaker.call(call) : call.get();
+    }
+
+    // timeouts, refused connections and 5xx; other errors mean stats-server is up and answering
+    private static boolean isOutage(Throwable e) {
+        return e instanceof ResourceAccessException || e instanceof HttpServerErrorException;
+    }
 
-            if (unique != null) {
-                uriBuilder.queryParam("unique", unique);
+    private static StatsClientProperties propertiesFor(String baseUrl) {
+        StatsClientProperties properties = new StatsClientProperties();
+        properties.setBaseUrl(baseUrl);
+        return properties;
+    }
+
+    private static RestClient createRestClient(StatsHttpTransport transport, StatsClientProperties properties) {
+        RestClient.Builder builder = RestClient.builder()
+                .baseUrl(properties.getBaseUrl())
+                .requestFactory(transport.getRequestFactory());
+        if (properties.getTransport().isGzip()) {
+            builder.requestInterceptor(new GzipRequestInterceptor(properties.getTransport().getGzipMinSize()));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public List<StatsDto> findStats(LocalDateTime start, LocalDateTime end, Collection<String> uris, boolean unique) {
+        return findStats(new StatsWindow(start, end, unique), uris);
+    }
+
+    @Override
+    public Map<String, Long> getHits(LocalDateTime start, LocalDateTime end, Collection<String> uris, boolean unique) {
+        return sumHits(new StatsWindow(start, end, unique), uris);
+    }
+
+    @Override
+    public Map<String, Long> getApproxUniqueHits(LocalDateTime start, LocalDateTime end, Collection<String> uris) {
+        return sumHits(new StatsWindow(start, end, "approx"), uris);
+    }
+
+    private List<StatsDto> findStats(StatsWindow window, Collection<String> uris) {
+        try {
+            return cache != null ? cache.get(window, uris) : lookupStats(window, uris);
+        } catch (Exception e) {
+            log.error("Error getting stats: {}", e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    private Map<String, Long> sumHits(StatsWindow window, Collection<String> uris) {
+        Map<String, Long> hits = new HashMap<>();
+        if (uris != null) {
+            uris.forEach(uri -> hits.put(uri, 0L));
+        }
+        for (StatsDto stats : findStats(window, uris)) {
+            hits.merge(stats.getUri(), stats.getHits(), Long::sum);
+        }
+        return hits;
+    }
+
+    @Override
+    public List<StatsDto> findTop(String app, String window, int k) {
+        try {
+            StatsDto[] response = call(() -> restClient.get()
+                    .uri(baseUrl + "/stats/top?app={app}&window={window}&k={k}", app, window, k)
+                    .retrieve()
+                    .body(StatsDto[].class));
+            return response != null ? Arrays.asList(response) : Collections.emptyList();
+        } catch (Exception e) {
+            log.error("Error getting top uris: {}", e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public List<SeriesDto> findSeries(LocalDateTime start, LocalDateTime end, Collection<String> uris,
+                                      String interval, boolean unique) {
+        try {
+            if (uris == null || uris.isEmpty()) {
+                return requestSeries(start, end, null, interval, unique);
+            }
+            // series have no body endpoint, so long uri lists are split over several query strings
+            List<SeriesDto> series = new ArrayList<>();
+            List<String> chunk = new ArrayList<>();
+            int chunkLength = 0;
+            for (String uri : uris) {
+                // an encoded comma takes 3 characters
+                int length = URLEncoder.encode(uri, StandardCharsets.UTF_8).length() + 3;
+                if (!chunk.isEmpty() && chunkLength + length > query.getMaxUrlLength()) {
+                    series.addAll(requestSeries(start, end, String.join(",", chunk), interval, unique));
+                    chunk.clear();
+                    chunkLength = 0;
+                }
+                chunk.add(uri);
+                chunkLength += length;
             }
+            series.addAll(requestSeries(start, end, String.join(",", chunk), interval, unique));
+            return series;
+        } catch (Exception e) {
+            log.error("Error getting series: {}", e.getMessage());
+            return Collections.emptyList();
+        }
+    }
 
-            String url = uriBuilder.build().toUriString();
+    @Override
+    public List<Object> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+        try {
+            Map<String, Object> params = new HashMap<>();
+            String uri = statsUri(start, end, uris == null || uris.isEmpty() ? null : String.join(",", uris), unique, params);
 
-            Object[] response = restClient.get()
-                    .uri(url)
+            Object[] response = call(() -> restClient.get()
+                    .uri(uri, params)
                     .retrieve()
-                    .body(Object[].class);
+                    .body(Object[].class));
 
             return response != null ? Arrays.asList(response) : Collections.emptyList();
         } catch (Exception e) {
@@ -86,4 +345,87 @@ public class StatsClientImpl implements StatsClient {
             return Collections.emptyList();
         }
     }
+
+    private List<StatsDto> lookupStats(StatsWindow window, Collection<String> uris) {
+        if (uris == null || uris.isEmpty() || lookups == null) {
+            return fetchStats(window, uris);
+        }
+        return lookups.lookup(window.roundOpenEnd(query.getOpenEndGranularity()), uris);
+    }
+
+    private List<StatsDto> fetchStats(StatsWindow window, Collection<String> uris) {
+        if (uris == null || uris.isEmpty()) {
+            return requestStats(window, null);
+        }
+        String joined = String.join(",", uris);
+        if (URLEncoder.encode(joined, StandardCharsets.UTF_8).length() <= query.getMaxUrlLength()) {
+            return requestStats(window, joined);
+        }
+
+        List<String> uriList = List.copyOf(uris);
+        List<StatsDto> stats = new ArrayList<>();
+        for (int from = 0; from < uriList.size(); from += query.getMaxUrisPerRequest()) {
+            List<String> chunk = uriList.subList(from, Math.min(from + query.getMaxUrisPerRequest(), uriList.size()));
+            StatsDto[] response = call(() -> restClient.post()
+                    .uri(baseUrl + "/stats/query")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(new StatsQueryDto(window.start(), window.end(), chunk, window.unique()))
+                    .retrieve()
+                    .body(StatsDto[].class));
+            if (response != null) {
+                stats.addAll(Arrays.asList(response));
+            }
+        }
+        stats.sort(Comparator.comparing(StatsDto::getHits).reversed());
+        return stats;
+    }
+
+    private List<StatsDto> requestStats(StatsWindow window, String uris) {
+        Map<String, Object> params = new HashMap<>();
+        String uri = statsUri(window.start(), window.end(), uris, window.unique(), params);
+
+        StatsDto[] response = call(() -> restClient.get()
+                .uri(uri, params)
+                .retrieve()
+                .body(StatsDto[].class));
+        return response != null ? Arrays.asList(response) : Collections.emptyList();
+    }
+
+    private List<SeriesDto> requestSeries(LocalDateTime start, LocalDateTime end, String uris,
+                                          String interval, boolean unique) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("start", start.format(FORMATTER));
+        params.put("end", end.format(FORMATTER));
+        params.put("interval", interval);
+        params.put("unique", unique);
+        StringBuilder uri = new StringBuilder(baseUrl)
+                .append("/stats/series?start={start}&end={end}&interval={interval}&unique={unique}");
+        if (uris != null) {
+            params.put("uris", uris);
+            uri.append("&uris={uris}");
+        }
+
+        SeriesDto[] response = call(() -> restClient.get()
+                .uri(uri.toString(), params)
+                .retrieve()
+                .body(SeriesDto[].class));
+        return response != null ? Arrays.asList(response) : Collections.emptyList();
+    }
+
+    // a constant template per parameter combination: the values are expanded and encoded by RestClient
+    private String statsUri(LocalDateTime start, LocalDateTime end, String uris, Object unique,
+                            Map<String, Object> params) {
+        params.put("start", start.format(FORMATTER));
+        params.put("end", end.format(FORMATTER));
+        StringBuilder uri = new StringBuilder(baseUrl).append("/stats?start={start}&end={end}");
+        if (uris != null) {
+            params.put("uris", uris);
+            uri.append("&uris={uris}");
+        }
+        if (unique != null) {
+            params.put("unique", unique);
+            uri.append("&unique={unique}");
+        }
+        return uri.toString();
+    }
 }
\ No newline at end of file
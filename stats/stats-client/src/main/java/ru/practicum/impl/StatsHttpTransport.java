@@ -0,0 +1,104 @@
+package ru.practicum.impl;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import ru.practicum.config.StatsClientProperties;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * The HTTP client under the {@code RestClient}: either a bounded Apache HttpClient pool, which
+ * also takes gzip responses, or the JDK client, which can negotiate HTTP/2.
+ */
+@Slf4j
+class StatsHttpTransport implements AutoCloseable {
+
+    private final ClientHttpRequestFactory requestFactory;
+    private final CloseableHttpClient pooledClient;
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    private StatsHttpTransport(ClientHttpRequestFactory requestFactory,
+                               CloseableHttpClient pooledClient,
+                               PoolingHttpClientConnectionManager connectionManager) {
+        this.requestFactory = requestFactory;
+        this.pooledClient = pooledClient;
+        this.connectionManager = connectionManager;
+    }
+
+    static StatsHttpTransport create(StatsClientProperties properties) {
+        StatsClientProperties.Transport transport = properties.getTransport();
+        if (transport.getType() == StatsClientProperties.TransportType.JDK) {
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(transport.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(properties.getConnectTimeout())
+                    .build();
+            JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+            requestFactory.setReadTimeout(properties.getReadTimeout());
+            return new StatsHttpTransport(requestFactory, null, null);
+        }
+
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(transport.getMaxConnections())
+                .setMaxConnPerRoute(transport.getMaxConnections())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(timeout(properties.getConnectTimeout()))
+                        .setSocketTimeout(timeout(properties.getReadTimeout()))
+                        .setTimeToLive(TimeValue.ofMilliseconds(transport.getTimeToLive().toMillis()))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        // waiting for a free pooled connection counts against the connect timeout
+                        .setConnectionRequestTimeout(timeout(properties.getConnectTimeout()))
+                        .setResponseTimeout(timeout(properties.getReadTimeout()))
+                        .build())
+                // retries are up to the breaker and the spill; a resent hit batch would be counted twice
+                .disableAutomaticRetries()
+                .evictIdleConnections(TimeValue.ofMilliseconds(transport.getIdleTimeout().toMillis()))
+                .evictExpiredConnections()
+                .build();
+        return new StatsHttpTransport(new HttpComponentsClientHttpRequestFactory(httpClient),
+                httpClient, connectionManager);
+    }
+
+    ClientHttpRequestFactory getRequestFactory() {
+        return requestFactory;
+    }
+
+    Optional<MeterBinder> getPoolMetrics() {
+        return Optional.ofNullable(connectionManager)
+                .map(manager -> new PoolingHttpClientConnectionManagerMetricsBinder(manager, "stats-server"));
+    }
+
+    @Override
+    public void close() {
+        if (pooledClient != null) {
+            try {
+                pooledClient.close();
+            } catch (IOException e) {
+                log.warn("Error closing the stats-server connection pool: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static Timeout timeout(Duration duration) {
+        return Timeout.ofMilliseconds(duration.toMillis());
+    }
+}
@@ -0,0 +1,102 @@
+package ru.practicum.impl;
+
+import ru.practicum.StatsDto;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Merges concurrent lookups of the same window into one request. The first caller of a window
+ * becomes the leader of a batch and waits until the previous request for that window, if any,
+ * has finished; every lookup arriving meanwhile adds its uris to the batch instead of sending its
+ * own request. The leader then fetches the union and each caller picks its own uris from it.
+ * A lone caller is never delayed.
+ */
+class StatsLookupCoalescer {
+
+    private final BiFunction<StatsWindow, Set<String>, List<StatsDto>> fetcher;
+    private final Map<StatsWindow, Batch> open = new HashMap<>();
+    private final Map<StatsWindow, Batch> inFlight = new HashMap<>();
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+
+    StatsLookupCoalescer(BiFunction<StatsWindow, Set<String>, List<StatsDto>> fetcher) {
+        this.fetcher = fetcher;
+    }
+
+    List<StatsDto> lookup(StatsWindow window, Collection<String> uris) {
+        lookups.incrementAndGet();
+        Batch batch;
+        Batch previous = null;
+        boolean leader = false;
+        synchronized (this) {
+            batch = open.get(window);
+            if (batch == null) {
+                batch = new Batch();
+                open.put(window, batch);
+                previous = inFlight.get(window);
+                leader = true;
+            }
+            batch.uris.addAll(uris);
+        }
+
+        if (leader) {
+            lead(window, batch, previous);
+        }
+
+        Set<String> wanted = Set.copyOf(uris);
+        return batch.result.join().stream()
+                .filter(stats -> wanted.contains(stats.getUri()))
+                .toList();
+    }
+
+    long getLookups() {
+        return lookups.get();
+    }
+
+    long getRequests() {
+        return requests.get();
+    }
+
+    private void lead(StatsWindow window, Batch batch, Batch previous) {
+        if (previous != null) {
+            try {
+                previous.result.join();
+            } catch (CompletionException | CancellationException ignored) {
+                // its callers see the failure, this batch is sent anyway
+            }
+        }
+        Set<String> uris;
+        synchronized (this) {
+            open.remove(window, batch);
+            inFlight.put(window, batch);
+            uris = Set.copyOf(batch.uris);
+        }
+        try {
+            requests.incrementAndGet();
+            batch.result.complete(fetcher.apply(window, uris));
+        } catch (RuntimeException e) {
+            batch.result.completeExceptionally(e);
+        } finally {
+            synchronized (this) {
+                inFlight.remove(window, batch);
+            }
+        }
+    }
+
+    private static class Batch {
+
+        private final Set<String> uris = new LinkedHashSet<>();
+        private final CompletableFuture<List<StatsDto>> result = new CompletableFuture<>();
+    }
+}
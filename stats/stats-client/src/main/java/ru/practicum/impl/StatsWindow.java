@@ -0,0 +1,34 @@
+package ru.practicum.impl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * The part of a stats lookup that concurrent callers must share for their uris to be fetched together.
+ */
+record StatsWindow(LocalDateTime start, LocalDateTime end, String unique) {
+
+    StatsWindow(LocalDateTime start, LocalDateTime end, boolean unique) {
+        this(start, end, String.valueOf(unique));
+    }
+
+    /**
+     * This window with an end within {@code granularity} of now moved to the next multiple of it, so
+     * that callers passing their own {@code now()} end up with the same window.
+     */
+    StatsWindow roundOpenEnd(Duration granularity) {
+        if (granularity.isZero() || granularity.isNegative()) {
+            return this;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        long step = granularity.toMillis();
+        long next = Math.floorDiv(now.toInstant(ZoneOffset.UTC).toEpochMilli(), step) * step + step;
+        LocalDateTime roundedNow = LocalDateTime.ofInstant(Instant.ofEpochMilli(next), ZoneOffset.UTC);
+        if (end.isBefore(now.minus(granularity)) || end.isAfter(roundedNow)) {
+            return this;
+        }
+        return new StatsWindow(start, roundedNow, unique);
+    }
+}
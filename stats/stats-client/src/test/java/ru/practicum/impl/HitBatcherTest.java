@@ -0,0 +1,124 @@
+package ru.practicum.impl;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.HitDto;
+import ru.practicum.config.StatsClientProperties;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HitBatcherTest {
+
+    @Test
+    void submit_WhenBatchSizeReached_ShouldSendFullBatch() throws InterruptedException {
+        List<List<HitDto>> batches = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+
+        try (HitBatcher batcher = new HitBatcher(properties(10, 3, Duration.ofMinutes(1)), batch -> {
+            batches.add(batch);
+            latch.countDown();
+        })) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(batcher.submit(hit("/events/" + i)));
+            }
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(3, batches.get(0).size());
+        }
+    }
+
+    @Test
+    void submit_WhenFlushIntervalPassed_ShouldSendPartialBatch() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+
+        try (HitBatcher batcher = new HitBatcher(properties(10, 100, Duration.ofMillis(50)), batch -> latch.countDown())) {
+            batcher.submit(hit("/events/1"));
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(1, batcher.getAccepted());
+        }
+    }
+
+    @Test
+    void submit_WhenQueueIsFull_ShouldDropAndCount() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (HitBatcher batcher = new HitBatcher(properties(1, 1, Duration.ofMillis(10)), batch -> {
+            blocked.countDown();
+            awaitQuietly(release);
+        })) {
+            batcher.submit(hit("/events/1"));
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+            // sender is stuck, the single queue slot fills up and the rest is dropped
+            batcher.submit(hit("/events/2"));
+            boolean accepted = batcher.submit(hit("/events/3"));
+
+            assertFalse(accepted);
+            assertEquals(1, batcher.getDropped());
+            release.countDown();
+        }
+    }
+
+    @Test
+    void close_ShouldFlushPendingHits() {
+        List<HitDto> sent = new CopyOnWriteArrayList<>();
+
+        HitBatcher batcher = new HitBatcher(properties(100, 50, Duration.ofMillis(100)), sent::addAll);
+        for (int i = 0; i < 20; i++) {
+            batcher.submit(hit("/events/" + i));
+        }
+        batcher.close();
+
+        assertEquals(20, sent.size());
+        assertEquals(20, batcher.getSent());
+    }
+
+    @Test
+    void submit_WhenSenderFails_ShouldCountFailedHits() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+
+        HitBatcher batcher = new HitBatcher(properties(10, 2, Duration.ofMillis(10)), batch -> {
+            latch.countDown();
+            throw new IllegalStateException("stats-server is down");
+        });
+        batcher.submit(hit("/events/1"));
+        batcher.submit(hit("/events/2"));
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        batcher.close();
+
+        assertEquals(2, batcher.getFailed());
+        assertEquals(0, batcher.getSent());
+    }
+
+    private StatsClientProperties.Async properties(int capacity, int batchSize, Duration flushInterval) {
+        StatsClientProperties.Async async = new StatsClientProperties.Async();
+        async.setEnabled(true);
+        async.setQueueCapacity(capacity);
+        async.setBatchSize(batchSize);
+        async.setFlushInterval(flushInterval);
+        return async;
+    }
+
+    private HitDto hit(String uri) {
+        HitDto hit = new HitDto();
+        hit.setApp("ewm-main-service");
+        hit.setUri(uri);
+        hit.setIp("127.0.0.1");
+        return hit;
+    }
+
+    private void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
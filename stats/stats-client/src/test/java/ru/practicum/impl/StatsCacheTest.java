@@ -0,0 +1,95 @@
+package ru.practicum.impl;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.StatsDto;
+import ru.practicum.config.StatsClientProperties;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsCacheTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    private final List<Collection<String>> requested = new CopyOnWriteArrayList<>();
+    private final AtomicLong hits = new AtomicLong(1);
+
+    @Test
+    void get_ShouldShareEntriesBetweenUriSets() {
+        StatsCache cache = new StatsCache(properties(Duration.ofMinutes(1)), this::fetch);
+        StatsWindow window = new StatsWindow(START, START.plusDays(1), false);
+
+        cache.get(window, List.of("/events/1", "/events/2"));
+        List<StatsDto> stats = cache.get(window, List.of("/events/2", "/events/3"));
+
+        assertEquals(2, requested.size());
+        assertEquals(List.of("/events/3"), List.copyOf(requested.get(1)));
+        assertEquals(2, stats.size());
+    }
+
+    @Test
+    void get_WithOpenWindow_ShouldIgnoreExactEnd() {
+        StatsCache cache = new StatsCache(properties(Duration.ofMinutes(1)), this::fetch);
+
+        cache.get(new StatsWindow(START, LocalDateTime.now(), false), List.of("/events/1"));
+        cache.get(new StatsWindow(START, LocalDateTime.now().plusSeconds(1), false), List.of("/events/1"));
+        cache.get(new StatsWindow(START, LocalDateTime.now(), true), List.of("/events/1"));
+
+        assertEquals(2, requested.size());
+    }
+
+    @Test
+    void get_WhenOpenWindowIsDue_ShouldServeStaleCountsWhileRefreshing() throws InterruptedException {
+        CountDownLatch releaseRefresh = new CountDownLatch(1);
+        StatsCache cache = new StatsCache(properties(Duration.ofMillis(20)), (window, uris) -> {
+            if (!requested.isEmpty()) {
+                awaitQuietly(releaseRefresh);
+            }
+            return fetch(window, uris);
+        });
+        StatsWindow window = new StatsWindow(START, LocalDateTime.now(), false);
+
+        long first = cache.get(window, List.of("/events/1")).get(0).getHits();
+        Thread.sleep(50);
+        // the refresh is stuck in the fetcher, the read must not wait for it
+        long stale = cache.get(window, List.of("/events/1")).get(0).getHits();
+        assertEquals(first, stale);
+
+        releaseRefresh.countDown();
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (cache.get(window, List.of("/events/1")).get(0).getHits() == first && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(cache.get(window, List.of("/events/1")).get(0).getHits() > first);
+        assertTrue(cache.getRefreshes() >= 1);
+    }
+
+    private List<StatsDto> fetch(StatsWindow window, Collection<String> uris) {
+        requested.add(uris);
+        long value = hits.getAndIncrement();
+        return uris.stream().map(uri -> new StatsDto("ewm-main-service", uri, value)).toList();
+    }
+
+    private StatsClientProperties.Cache properties(Duration refreshAfter) {
+        StatsClientProperties.Cache cache = new StatsClientProperties.Cache();
+        cache.setEnabled(true);
+        cache.setRefreshAfter(refreshAfter);
+        return cache;
+    }
+
+    private void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package ru.practicum.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.config.StatsClientProperties;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsClientResilienceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicReference<String> mode = new AtomicReference<>("up");
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger receivedHits = new AtomicInteger();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    @TempDir
+    private Path spillDir;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        executor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void saveHit_WhenServerIsDown_ShouldFailFastSpillAndReplayOnRecovery() {
+        mode.set("down");
+        try (StatsClientImpl client = new StatsClientImpl(properties())) {
+            for (int i = 0; i < 5; i++) {
+                client.saveHit("ewm-main-service", "/events/" + i, "127.0.0.1");
+            }
+
+            assertEquals(2, requests.get());
+            assertEquals(CircuitBreaker.State.OPEN, client.getCircuitBreaker().orElseThrow().getState());
+            assertEquals(5, client.getSpillFile().orElseThrow().getSpilled());
+
+            mode.set("up");
+            awaitTrue(() -> client.getSpillFile().orElseThrow().getReplayed() == 5);
+            assertEquals(5, receivedHits.get());
+            assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitBreaker().orElseThrow().getState());
+        }
+    }
+
+    @Test
+    void findStats_WhenServerStalls_ShouldGiveUpAfterReadTimeout() {
+        mode.set("slow");
+        StatsClientProperties properties = properties();
+        properties.setReadTimeout(Duration.ofMillis(200));
+
+        try (StatsClientImpl client = new StatsClientImpl(properties)) {
+            long started = System.nanoTime();
+            var stats = client.findStats(LocalDateTime.now().minusDays(1), LocalDateTime.now(), List.of("/events/1"), false);
+
+            assertTrue(stats.isEmpty());
+            assertTrue(Duration.ofNanos(System.nanoTime() - started).compareTo(Duration.ofSeconds(2)) < 0);
+        }
+    }
+
+    @Test
+    void findStats_WhenLookupsEndNow_ShouldCoalesceThem() throws Exception {
+        mode.set("lagging");
+        try (StatsClientImpl client = new StatsClientImpl(properties())) {
+            LocalDateTime start = LocalDateTime.now().minusDays(1);
+            Future<?> first = executor.submit(() -> client.findStats(start, LocalDateTime.now(), List.of("/events/1"), false));
+            Thread.sleep(100);
+            // both arrive while the first request is in flight and wait for one request after it
+            Future<?> second = executor.submit(() -> client.findStats(start, LocalDateTime.now(), List.of("/events/2"), false));
+            Future<?> third = executor.submit(() -> client.findStats(start, LocalDateTime.now(), List.of("/events/3"), false));
+            first.get();
+            second.get();
+            third.get();
+
+            assertEquals(2, requests.get());
+        }
+    }
+
+    private StatsClientProperties properties() {
+        StatsClientProperties properties = new StatsClientProperties();
+        properties.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        properties.getBreaker().setFailureThreshold(2);
+        properties.getBreaker().setOpenDuration(Duration.ofMillis(200));
+        properties.getSpill().setEnabled(true);
+        properties.getSpill().setDir(spillDir);
+        properties.getSpill().setReplayInterval(Duration.ofMillis(50));
+        return properties;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        byte[] request = exchange.getRequestBody().readAllBytes();
+        switch (mode.get()) {
+            case "down" -> respond(exchange, 503, "");
+            case "lagging" -> {
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                respond(exchange, 200, "[]");
+            }
+            case "slow" -> {
+                try {
+                    Thread.sleep(3_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                respond(exchange, 200, "[]");
+            }
+            default -> {
+                if (exchange.getRequestURI().getPath().equals("/hit/batch")) {
+                    int hits = objectMapper.readTree(request).size();
+                    receivedHits.addAndGet(hits);
+                    respond(exchange, 201, "{\"accepted\":" + hits + ",\"rejected\":0}");
+                } else {
+                    respond(exchange, 200, "[]");
+                }
+            }
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            exchange.getResponseBody().write(bytes);
+        }
+        exchange.close();
+    }
+
+    private void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
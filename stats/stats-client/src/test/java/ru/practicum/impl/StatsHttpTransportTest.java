@@ -0,0 +1,132 @@
+package ru.practicum.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.config.StatsClientProperties;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsHttpTransportTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BlockingQueue<Request> requests = new LinkedBlockingQueue<>();
+
+    private HttpServer server;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    void sendHits_WithGzip_ShouldCompressBatchesAboveMinSize() throws Exception {
+        StatsClientProperties properties = properties();
+        properties.getTransport().setGzip(true);
+        properties.getTransport().setGzipMinSize(256);
+        properties.getAsync().setEnabled(true);
+        properties.getAsync().setBatchSize(20);
+
+        try (StatsClientImpl client = new StatsClientImpl(properties)) {
+            for (int i = 0; i < 20; i++) {
+                client.saveHit("ewm-main-service", "/events/" + i, "127.0.0.1");
+            }
+            Request request = requests.poll(5, TimeUnit.SECONDS);
+
+            assertNotNull(request);
+            assertEquals("/hit/batch", request.path());
+            assertEquals("gzip", request.encoding());
+            assertEquals(20, objectMapper.readTree(request.body()).size());
+        }
+    }
+
+    @Test
+    void saveHit_WithGzip_ShouldSendSmallBodiesPlain() throws Exception {
+        StatsClientProperties properties = properties();
+        properties.getTransport().setGzip(true);
+
+        try (StatsClientImpl client = new StatsClientImpl(properties)) {
+            client.saveHit("ewm-main-service", "/events/1", "127.0.0.1");
+            Request request = requests.poll(5, TimeUnit.SECONDS);
+
+            assertNotNull(request);
+            assertEquals("/hit", request.path());
+            assertNull(request.encoding());
+            assertEquals("/events/1", objectMapper.readTree(request.body()).get("uri").asText());
+        }
+    }
+
+    @Test
+    void getConnectionPoolMetrics_ShouldRegisterPoolGauges() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        StatsClientProperties properties = properties();
+        properties.getTransport().setMaxConnections(7);
+
+        try (StatsClientImpl client = new StatsClientImpl(properties)) {
+            client.getConnectionPoolMetrics().orElseThrow().bindTo(registry);
+
+            Gauge max = registry.find("httpcomponents.httpclient.pool.total.max").tag("httpclient", "stats-server").gauge();
+            assertNotNull(max);
+            assertEquals(7, max.value());
+            assertNotNull(registry.find("httpcomponents.httpclient.pool.total.connections").gauge());
+        }
+    }
+
+    @Test
+    void getConnectionPoolMetrics_WithJdkTransport_ShouldBeEmpty() {
+        StatsClientProperties properties = properties();
+        properties.getTransport().setType(StatsClientProperties.TransportType.JDK);
+
+        try (StatsClientImpl client = new StatsClientImpl(properties)) {
+            assertTrue(client.getConnectionPoolMetrics().isEmpty());
+        }
+    }
+
+    private StatsClientProperties properties() {
+        StatsClientProperties properties = new StatsClientProperties();
+        properties.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        properties.setReadTimeout(Duration.ofSeconds(2));
+        return properties;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        InputStream body = "gzip".equals(encoding)
+                ? new GZIPInputStream(exchange.getRequestBody())
+                : exchange.getRequestBody();
+        String path = exchange.getRequestURI().getPath();
+        requests.add(new Request(path, encoding, new String(body.readAllBytes(), StandardCharsets.UTF_8)));
+
+        byte[] response = (path.equals("/hit/batch") ? "{\"accepted\":20,\"rejected\":0}" : "{}")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(201, response.length);
+        exchange.getResponseBody().write(response);
+        exchange.close();
+    }
+
+    private record Request(String path, String encoding, String body) {
+    }
+}
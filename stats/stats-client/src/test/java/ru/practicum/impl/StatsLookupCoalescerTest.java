@@ -0,0 +1,88 @@
+package ru.practicum.impl;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.StatsDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsLookupCoalescerTest {
+
+    private static final StatsWindow WINDOW = new StatsWindow(LocalDateTime.of(2026, 1, 1, 0, 0),
+            LocalDateTime.of(2026, 2, 1, 0, 0), false);
+
+    @Test
+    void lookup_WhenRequestInFlight_ShouldMergeWaitingLookupsIntoOneRequest() throws Exception {
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        List<Set<String>> requested = new CopyOnWriteArrayList<>();
+
+        StatsLookupCoalescer coalescer = new StatsLookupCoalescer((window, uris) -> {
+            requested.add(uris);
+            if (requested.size() == 1) {
+                firstStarted.countDown();
+                awaitQuietly(releaseFirst);
+            }
+            return uris.stream().map(uri -> new StatsDto("ewm-main-service", uri, (long) uri.length())).toList();
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(9);
+        try {
+            CompletableFuture<List<StatsDto>> first = CompletableFuture.supplyAsync(
+                    () -> coalescer.lookup(WINDOW, List.of("/events/0")), executor);
+            assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+
+            List<CompletableFuture<List<StatsDto>>> waiting = new CopyOnWriteArrayList<>();
+            for (int i = 1; i <= 8; i++) {
+                String uri = "/events/" + i;
+                waiting.add(CompletableFuture.supplyAsync(() -> coalescer.lookup(WINDOW, List.of(uri)), executor));
+            }
+            while (coalescer.getLookups() < 9) {
+                Thread.onSpinWait();
+            }
+            releaseFirst.countDown();
+
+            assertEquals(1, first.get(5, TimeUnit.SECONDS).size());
+            for (int i = 0; i < waiting.size(); i++) {
+                List<StatsDto> stats = waiting.get(i).get(5, TimeUnit.SECONDS);
+                assertEquals(1, stats.size());
+                assertEquals("/events/" + (i + 1), stats.get(0).getUri());
+            }
+            assertEquals(2, coalescer.getRequests());
+            assertEquals(8, requested.get(1).size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void lookup_WhenRequestFails_ShouldFailItsCallersOnly() {
+        StatsLookupCoalescer coalescer = new StatsLookupCoalescer((window, uris) -> {
+            if (uris.contains("/broken")) {
+                throw new IllegalStateException("stats-server is down");
+            }
+            return List.of(new StatsDto("ewm-main-service", "/events", 1L));
+        });
+
+        assertThrows(CompletionException.class, () -> coalescer.lookup(WINDOW, List.of("/broken")));
+        assertEquals(1, coalescer.lookup(WINDOW, List.of("/events")).size());
+    }
+
+    private void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
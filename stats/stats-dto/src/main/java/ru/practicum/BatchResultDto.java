@@ -0,0 +1,14 @@
+package ru.practicum;
+
+import lombok.*;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchResultDto {
+
+    private long accepted;
+
+    private long rejected;
+
+}
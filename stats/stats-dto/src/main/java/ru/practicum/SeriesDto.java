@@ -0,0 +1,28 @@
+package ru.practicum;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Hits of one app and uri per bucket, as returned by {@code GET /stats/series}: {@code hits[i]}
+ * counts the bucket that starts {@code i} intervals after {@code start}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SeriesDto {
+
+    private String app;
+
+    private String uri;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime start;
+
+    // MINUTE, HOUR or DAY
+    private String interval;
+
+    private long[] hits;
+}
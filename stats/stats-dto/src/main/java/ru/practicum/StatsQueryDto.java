@@ -0,0 +1,30 @@
+package ru.practicum;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Body of {@code POST /stats/query}: the parameters of {@code GET /stats} for uri lists
+ * too long to fit into a query string.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatsQueryDto {
+
+    @NotNull(message = "Start must not be null")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime start;
+
+    @NotNull(message = "End must not be null")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime end;
+
+    private List<String> uris;
+
+    private String unique;
+}
@@ -0,0 +1,126 @@
+package ru.practicum.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.practicum.exception.ErrorResponse;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admits at most {@code stats.concurrency.max-requests} requests at a time, the rest wait up to
+ * {@code queue-timeout} for a slot and are then turned away with 503. In platform-thread mode the
+ * Tomcat pool is the same kind of bound; with virtual threads this filter is the only one, and it
+ * keeps the queue for database connections short enough to stay inside the Hikari timeout.
+ * A request that goes async, such as {@code /stats/stream}, keeps its slot until the async
+ * processing completes.
+ */
+@Slf4j
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private final StatsProperties.Concurrency properties;
+    private final ObjectMapper objectMapper;
+    private final Semaphore permits;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ConcurrencyLimitFilter(StatsProperties statsProperties, ObjectMapper objectMapper) {
+        this.properties = statsProperties.getConcurrency();
+        this.objectMapper = objectMapper;
+        this.permits = new Semaphore(properties.getMaxRequests(), true);
+    }
+
+    public int getActiveRequests() {
+        return properties.getMaxRequests() - permits.availablePermits();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("stats.http.requests.active", this, ConcurrencyLimitFilter::getActiveRequests)
+                .register(registry);
+        Gauge.builder("stats.http.requests.queued", permits, Semaphore::getQueueLength)
+                .register(registry);
+        FunctionCounter.builder("stats.http.requests.rejected", rejected, AtomicLong::get)
+                .register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !properties.isEnabled() || request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(properties.getQueueTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.incrementAndGet();
+            log.debug("Request rejected, {} requests in progress: {} {}", getActiveRequests(), request.getMethod(),
+                    request.getRequestURI());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setHeader("Retry-After", "1");
+            objectMapper.writeValue(response.getOutputStream(), new ErrorResponse("Too many concurrent requests"));
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // a streamed response is still being written; the async dispatch is not filtered again
+                request.getAsyncContext().addListener(new ReleaseOnComplete());
+            } else {
+                permits.release();
+            }
+        }
+    }
+
+    // the container calls onComplete after onTimeout and onError as well
+    private class ReleaseOnComplete implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permits.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
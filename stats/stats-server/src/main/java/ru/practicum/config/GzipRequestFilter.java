@@ -0,0 +1,170 @@
+package ru.practicum.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.practicum.exception.PayloadTooLargeException;
+import ru.practicum.exception.ValidationException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Inflates request bodies sent with {@code Content-Encoding: gzip}, as stats-client does for hit
+ * batches. The inflated size is capped by {@code stats.ingest.max-inflated-body} so that a tiny body
+ * cannot expand without bound. Going over it, like a body that is no gzip stream, fails the read
+ * with an unchecked exception: the JSON readers above pass it on to the error handler as a 4xx
+ * instead of turning it into a read error.
+ */
+@Component
+public class GzipRequestFilter extends OncePerRequestFilter {
+
+    private final long maxInflatedBytes;
+
+    public GzipRequestFilter(StatsProperties statsProperties) {
+        this.maxInflatedBytes = statsProperties.getIngest().getMaxInflatedBody().toBytes();
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        if (!"gzip".equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        filterChain.doFilter(new InflatingRequest(request, maxInflatedBytes), response);
+    }
+
+    private static class InflatingRequest extends HttpServletRequestWrapper {
+
+        private final long maxInflatedBytes;
+        private ServletInputStream inputStream;
+
+        InflatingRequest(HttpServletRequest request, long maxInflatedBytes) {
+            super(request);
+            this.maxInflatedBytes = maxInflatedBytes;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                try {
+                    inputStream = new InflatingInputStream(new GZIPInputStream(super.getInputStream()), maxInflatedBytes);
+                } catch (ZipException | EOFException e) {
+                    throw new ValidationException("Malformed gzip request body: " + e.getMessage());
+                }
+            }
+            return inputStream;
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (isInflatedHeader(name)) {
+                return null;
+            }
+            return super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (isInflatedHeader(name)) {
+                return Collections.emptyEnumeration();
+            }
+            return super.getHeaders(name);
+        }
+
+        private boolean isInflatedHeader(String name) {
+            return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+        }
+    }
+
+    private static class InflatingInputStream extends ServletInputStream {
+
+        private final InputStream inflater;
+        private final long maxInflatedBytes;
+        private long inflated;
+        private boolean finished;
+
+        InflatingInputStream(InputStream inflater, long maxInflatedBytes) {
+            this.inflater = inflater;
+            this.maxInflatedBytes = maxInflatedBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                int b = inflater.read();
+                count(b < 0 ? -1 : 1);
+                return b;
+            } catch (ZipException | EOFException e) {
+                throw new ValidationException("Malformed gzip request body: " + e.getMessage());
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                int read = inflater.read(buffer, offset, length);
+                count(read);
+                return read;
+            } catch (ZipException | EOFException e) {
+                throw new ValidationException("Malformed gzip request body: " + e.getMessage());
+            }
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        // bodies are only read by the blocking controllers, none of which starts async request processing
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new IllegalStateException("Gzip request bodies can only be read blocking");
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.close();
+        }
+
+        private void count(int read) {
+            if (read < 0) {
+                finished = true;
+                return;
+            }
+            inflated += read;
+            if (inflated > maxInflatedBytes) {
+                throw new PayloadTooLargeException("Inflated request body exceeds " + maxInflatedBytes + " bytes");
+            }
+        }
+    }
+}
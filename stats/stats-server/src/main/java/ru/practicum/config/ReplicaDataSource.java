@@ -0,0 +1,129 @@
+package ru.practicum.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out connections to the replicas in turn, skipping those that lag more than {@code max-lag}
+ * behind or cannot be reached, and to the primary when none is left. Lag is measured in the
+ * background, so a replica that falls behind still gets reads until the next check.
+ */
+@Slf4j
+public class ReplicaDataSource extends AbstractDataSource implements MeterBinder, AutoCloseable {
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final double maxLagSeconds;
+    private final String lagQuery;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaDataSource(DataSource primary, List<HikariDataSource> replicas, StatsProperties.Replica properties) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.maxLagSeconds = properties.getMaxLag().toMillis() / 1000.0;
+        this.lagQuery = properties.getLagQuery();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!replica.usable) {
+                continue;
+            }
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                replica.markUnusable("unreachable: " + e.getMessage());
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new UnsupportedOperationException("Replica connections use the configured credentials");
+    }
+
+    @Scheduled(fixedDelayString = "${stats.replica.check-interval:PT1S}")
+    public void checkLag() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(lagQuery)) {
+                replica.lagSeconds = rs.next() ? rs.getDouble(1) : 0;
+                if (replica.lagSeconds > maxLagSeconds) {
+                    replica.markUnusable("lagging " + Duration.ofMillis((long) (replica.lagSeconds * 1000)));
+                } else {
+                    replica.markUsable();
+                }
+            } catch (SQLException e) {
+                replica.markUnusable("unreachable: " + e.getMessage());
+            }
+        }
+    }
+
+    public long getUsableReplicas() {
+        return replicas.stream().filter(replica -> replica.usable).count();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Replica replica : replicas) {
+            Gauge.builder("stats.datasource.replica.lag", replica, r -> r.lagSeconds)
+                    .tag("pool", replica.dataSource.getPoolName())
+                    .baseUnit("seconds")
+                    .register(registry);
+            Gauge.builder("stats.datasource.replica.usable", replica, r -> r.usable ? 1 : 0)
+                    .tag("pool", replica.dataSource.getPoolName())
+                    .register(registry);
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    private static class Replica {
+
+        private final HikariDataSource dataSource;
+
+        // unused until the first check has shown it is caught up
+        private volatile boolean usable;
+        private volatile double lagSeconds;
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        private void markUsable() {
+            if (!usable) {
+                log.info("Replica {} is caught up, sending reads to it", dataSource.getPoolName());
+            }
+            usable = true;
+        }
+
+        private void markUnusable(String reason) {
+            if (usable) {
+                log.warn("Replica {} is {}, sending reads elsewhere", dataSource.getPoolName(), reason);
+            }
+            usable = false;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practicum.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends read-only transactions to the replicas in {@code stats.replica.datasources}, so that the
+ * aggregation queries behind /stats do not compete with hit inserts on the primary. The primary
+ * pool is then built here instead of by Spring Boot, from the same {@code spring.datasource} settings.
+ * Connections are only taken once the first statement runs, when the transaction is known to be read-only.
+ * Replicas turn the hot-URI cache off, see {@link ru.practicum.service.HotUriCache}, and with buffered
+ * ingest the rollups are read from the primary, see {@link ru.practicum.service.HitAggregator}.
+ */
+@Configuration
+@ConditionalOnProperty("stats.replica.datasources[0].url")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaDataSource replicaDataSource(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                               StatsProperties statsProperties, MeterRegistry meterRegistry) {
+        StatsProperties.Replica replica = statsProperties.getReplica();
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replica.getDatasources().size(); i++) {
+            StatsProperties.Endpoint endpoint = replica.getDatasources().get(i);
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("replica-" + i);
+            dataSource.setJdbcUrl(endpoint.getUrl());
+            dataSource.setUsername(endpoint.getUsername() != null
+                    ? endpoint.getUsername() : properties.determineUsername());
+            dataSource.setPassword(endpoint.getPassword() != null
+                    ? endpoint.getPassword() : properties.determinePassword());
+            dataSource.setMaximumPoolSize(replica.getPoolSize());
+            dataSource.setConnectionTimeout(primaryDataSource.getConnectionTimeout());
+            dataSource.setReadOnly(true);
+            dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(dataSource);
+        }
+        return new ReplicaDataSource(primaryDataSource, replicas, replica);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+}
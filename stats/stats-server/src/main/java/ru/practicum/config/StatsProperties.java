@@ -0,0 +1,232 @@
+package ru.practicum.config;
+
+import lombok.Data;
+import ru.practicum.model.IngestMode;
+import ru.practicum.model.PartitionInterval;
+import ru.practicum.model.TopWindow;
+import ru.practicum.model.UniqueMode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "stats")
+public class StatsProperties {
+
+    private Ingest ingest = new Ingest();
+
+    private Rollup rollup = new Rollup();
+
+    private Partition partition = new Partition();
+
+    private Unique unique = new Unique();
+
+    private Cache cache = new Cache();
+
+    private Stream stream = new Stream();
+
+    private Concurrency concurrency = new Concurrency();
+
+    private Replica replica = new Replica();
+
+    private Top top = new Top();
+
+    private Series series = new Series();
+
+    private Archive archive = new Archive();
+
+    // without raw rows the aggregates are the only source of truth, so they cannot be switched off
+    public boolean rollupsEnabled() {
+        return rollup.isEnabled() || ingest.getMode() == IngestMode.BUFFERED || !ingest.isStoreRaw();
+    }
+
+    // without raw rows unique counts can only be estimated
+    public boolean sketchesEnabled() {
+        return unique.isApproxEnabled() || !ingest.isStoreRaw();
+    }
+
+    @Data
+    public static class Ingest {
+
+        // Number of rows sent to the database in one JDBC batch by the bulk ingest endpoint.
+        private int batchSize = 1000;
+
+        private IngestMode mode = IngestMode.DIRECT;
+
+        // Without raw rows only aggregate questions can be answered: windows are widened to whole minutes
+        // and unique counts come from the sketches.
+        private boolean storeRaw = true;
+
+        private Duration flushInterval = Duration.ofSeconds(5);
+
+        private Path walDir = Path.of("data", "wal");
+
+        // fsync every append; without it a crash of the host, not just of the process, may lose recent hits
+        private boolean walSync = true;
+
+        // Only every n-th hit created by POST /hit is logged, at DEBUG.
+        private int logSampleRate = 1000;
+
+        // A gzip request body is refused with 413 once it inflates beyond this.
+        private DataSize maxInflatedBody = DataSize.ofMegabytes(256);
+    }
+
+    @Data
+    public static class Rollup {
+
+        // Maintain per-minute and per-hour counters on ingest and answer non-unique queries from them.
+        private boolean enabled = true;
+
+        // Buckets that ended longer ago are deleted and older windows are counted from raw hits instead.
+        // Zero keeps everything, so that windows whose raw partitions are past stats.partition.retention
+        // are still answered from here.
+        private Duration retention = Duration.ZERO;
+
+        private Duration checkInterval = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Partition {
+
+        // Keep the raw hits in range partitions; only has an effect on PostgreSQL.
+        private boolean enabled = true;
+
+        private PartitionInterval interval = PartitionInterval.DAY;
+
+        // How many partitions after the current one are created ahead of time.
+        private int premake = 3;
+
+        // Partitions that ended longer ago are dropped. Zero keeps everything. Rollups are kept for
+        // stats.rollup.retention and sketches for good, so within that only exact unique counts lose the dropped hits.
+        private Duration retention = Duration.ofDays(90);
+
+        private Duration checkInterval = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Unique {
+
+        // What a plain unique=true means; unique=approx and unique=exact can always be requested explicitly.
+        private UniqueMode defaultMode = UniqueMode.EXACT;
+
+        // Keep per-hour HyperLogLog sketches on ingest; without them approx queries are answered exactly.
+        private boolean approxEnabled = true;
+
+        // Standard error of the approximate counts, decides the sketch precision and size.
+        private double relativeError = 0.02;
+
+        private Duration flushInterval = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Cache {
+
+        // Serve non-unique queries for explicit URIs over "start to now" windows from live in-memory counters.
+        // Ignored when replica datasources are set, as windows would then be loaded from a lagging replica.
+        private boolean enabled = true;
+
+        private long maxUris = 10_000;
+
+        private int maxWindowsPerUri = 4;
+
+        private Duration expireAfterAccess = Duration.ofMinutes(30);
+
+        // How far in the past the end of a window may be for it to still count as "now".
+        private Duration openEndTolerance = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Stream {
+
+        // Rows fetched from the database cursor per round trip by /stats/stream.
+        private int fetchSize = 500;
+    }
+
+    @Data
+    public static class Concurrency {
+
+        // Bound the requests handled at once. With virtual threads Tomcat no longer does, and without a bound
+        // a burst turns into thousands of threads queueing for a few pooled connections until they time out.
+        private boolean enabled = true;
+
+        // Roughly what the platform-thread Tomcat pool allows; a multiple of the Hikari pool size.
+        private int maxRequests = 200;
+
+        // How long a request may wait for a slot before it is answered with 503.
+        private Duration queueTimeout = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Top {
+
+        // Keep leaderboards of the most hit uris per app on ingest for /stats/top.
+        private boolean enabled = true;
+
+        private List<TopWindow> windows = List.of(TopWindow.HOUR, TopWindow.DAY, TopWindow.WEEK);
+
+        // A window moves in steps of its length divided by this.
+        private int slots = 60;
+
+        // Per app and window; the least hit uris beyond this are dropped.
+        private int maxUris = 10_000;
+
+        private int maxK = 1000;
+    }
+
+    @Data
+    public static class Series {
+
+        // Longest series /stats/series returns, e.g. a week of minutes is 10080.
+        private int maxBuckets = 10_080;
+    }
+
+    @Data
+    public static class Archive {
+
+        // Move whole days of raw hits out of the database into compressed segment files. Off by default.
+        private boolean enabled = false;
+
+        private Path dir = Path.of("data", "archive");
+
+        // Days that ended longer ago are archived.
+        private Duration after = Duration.ofDays(30);
+
+        // Segments that ended longer ago are deleted. Zero keeps everything.
+        private Duration retention = Duration.ZERO;
+
+        private Duration checkInterval = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Replica {
+
+        // Read-only transactions go to these databases while they keep up with the primary. None by default.
+        private List<Endpoint> datasources = new ArrayList<>();
+
+        // A replica further behind than this is skipped until it catches up; with none left reads go to the primary.
+        private Duration maxLag = Duration.ofSeconds(5);
+
+        private Duration checkInterval = Duration.ofSeconds(1);
+
+        // Seconds the replica is behind; zero on a caught-up PostgreSQL standby and on a server that is no standby.
+        private String lagQuery = "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+                + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+        private int poolSize = 10;
+    }
+
+    @Data
+    public static class Endpoint {
+
+        private String url;
+
+        // The primary's credentials are used when these are not set.
+        private String username;
+
+        private String password;
+    }
+}
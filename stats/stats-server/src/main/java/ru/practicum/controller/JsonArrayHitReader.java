@@ -0,0 +1,79 @@
+package ru.practicum.controller;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.HitDto;
+import ru.practicum.exception.ValidationException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the elements of a JSON array of {@link HitDto}s one at a time. An element that does not map
+ * to a hit is returned as {@code null}, like a malformed line of {@link NdjsonHitReader}, so that the
+ * service counts it as rejected. Only a body that is not a well-formed JSON array fails as a whole.
+ */
+@Slf4j
+class JsonArrayHitReader implements Iterator<HitDto> {
+
+    private final JsonParser parser;
+    private final ObjectReader hitReader;
+    private JsonToken nextToken;
+
+    JsonArrayHitReader(JsonParser parser, ObjectReader hitReader) {
+        this.parser = parser;
+        this.hitReader = hitReader;
+        if (advance() != JsonToken.START_ARRAY) {
+            throw new ValidationException("The body must be a JSON array of hits.");
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextToken == null) {
+            nextToken = advance();
+            if (nextToken == null) {
+                throw new ValidationException("The JSON array of hits is not closed.");
+            }
+        }
+        return nextToken != JsonToken.END_ARRAY;
+    }
+
+    @Override
+    public HitDto next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        nextToken = null;
+        JsonNode element;
+        try {
+            element = parser.readValueAsTree();
+        } catch (JsonProcessingException e) {
+            throw new ValidationException("Malformed JSON array of hits: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            return hitReader.readValue(element);
+        } catch (IOException e) {
+            log.debug("Malformed hit element skipped: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private JsonToken advance() {
+        try {
+            return parser.nextToken();
+        } catch (JsonProcessingException e) {
+            throw new ValidationException("Malformed JSON array of hits: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ru.practicum.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.HitDto;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads one {@link HitDto} per line. A line that is not valid JSON is returned as {@code null}
+ * so that the service counts it as rejected instead of failing the whole stream.
+ */
+@Slf4j
+class NdjsonHitReader implements Iterator<HitDto> {
+
+    private final BufferedReader reader;
+    private final ObjectReader hitReader;
+    private String nextLine;
+
+    NdjsonHitReader(BufferedReader reader, ObjectReader hitReader) {
+        this.reader = reader;
+        this.hitReader = hitReader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (nextLine == null) {
+                String line = reader.readLine();
+                if (line == null) {
+                    return false;
+                }
+                if (!line.isBlank()) {
+                    nextLine = line;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public HitDto next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String line = nextLine;
+        nextLine = null;
+        try {
+            return hitReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            log.debug("Malformed hit line skipped: {}", e.getOriginalMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package ru.practicum.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import ru.practicum.StatsDto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes one {@link StatsDto} per line straight to the response, so nothing but the current row
+ * is held in memory. Closing flushes the generator but leaves the response stream open.
+ */
+class NdjsonStatsWriter implements Consumer<StatsDto>, Closeable {
+
+    private final JsonGenerator generator;
+    private final ObjectWriter statsWriter;
+
+    NdjsonStatsWriter(OutputStream out, ObjectMapper objectMapper) throws IOException {
+        this.generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .setRootValueSeparator(null);
+        this.statsWriter = objectMapper.writerFor(StatsDto.class);
+    }
+
+    @Override
+    public void accept(StatsDto stats) {
+        try {
+            statsWriter.writeValue(generator, stats);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
@@ -1,15 +1,34 @@
 package ru.practicum.controller;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.config.StatsProperties;
+import ru.practicum.exception.ValidationException;
+import ru.practicum.model.SeriesInterval;
+import ru.practicum.model.TopWindow;
+import ru.practicum.model.UniqueMode;
 import ru.practicum.service.StatsService;
+import ru.practicum.BatchResultDto;
 import ru.practicum.HitDto;
+import ru.practicum.SeriesDto;
 import ru.practicum.StatsDto;
+import ru.practicum.StatsQueryDto;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
@@ -19,6 +38,8 @@ import java.util.List;
 public class StatsController {
 
     private final StatsService statsService;
+    private final ObjectMapper objectMapper;
+    private final StatsProperties statsProperties;
 
     @PostMapping("/hit")
     @ResponseStatus(HttpStatus.CREATED)
@@ -26,12 +47,120 @@ public class StatsController {
         return statsService.create(hitDto);
     }
 
+    /**
+     * Elements that are not valid hits are counted as rejected, in a JSON array as in NDJSON.
+     */
+    @PostMapping(value = "/hit/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public BatchResultDto createAll(InputStream body) throws IOException {
+        ObjectReader hitReader = objectMapper.readerFor(HitDto.class);
+        try (JsonParser parser = hitReader.createParser(body)) {
+            return statsService.createAll(new JsonArrayHitReader(parser, hitReader));
+        }
+    }
+
+    @PostMapping(value = "/hit/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public BatchResultDto createAllNdjson(InputStream body) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        return statsService.createAll(new NdjsonHitReader(reader, objectMapper.readerFor(HitDto.class)));
+    }
+
     @GetMapping("/stats")
     @ResponseStatus(HttpStatus.OK)
     public Collection<StatsDto> get(@RequestParam @NotNull @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
                                     @RequestParam @NotNull @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
                                     @RequestParam(required = false) List<String> uris,
-                                    @RequestParam(defaultValue = "false") boolean unique) {
-        return statsService.get(start, end, uris, unique);
+                                    @RequestParam(defaultValue = "false") String unique) {
+        return statsService.get(start, end, uris, UniqueMode.parse(unique, statsProperties.getUnique().getDefaultMode()));
+    }
+
+    @PostMapping("/stats/query")
+    @ResponseStatus(HttpStatus.OK)
+    public Collection<StatsDto> query(@RequestBody @Valid StatsQueryDto query) {
+        return statsService.get(query.getStart(), query.getEnd(), query.getUris(),
+                UniqueMode.parse(query.getUnique(), statsProperties.getUnique().getDefaultMode()));
+    }
+
+    /**
+     * Hits per {@code minute}, {@code hour} or {@code day} for each app and uri, or distinct ips per
+     * bucket when {@code unique}. The window is widened to whole intervals: the first bucket contains
+     * {@code start} and the last one {@code end}.
+     */
+    @GetMapping("/stats/series")
+    @ResponseStatus(HttpStatus.OK)
+    public List<SeriesDto> series(@RequestParam @NotNull @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                                  @RequestParam @NotNull @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                                  @RequestParam(required = false) List<String> uris,
+                                  @RequestParam(defaultValue = "hour") String interval,
+                                  @RequestParam(defaultValue = "false") boolean unique) {
+        if (start.isAfter(end)) {
+            throw new ValidationException("The start date must be earlier than the end date.");
+        }
+        SeriesInterval seriesInterval = SeriesInterval.parse(interval);
+        long buckets = seriesInterval.getUnit().between(start.truncatedTo(seriesInterval.getUnit()), end) + 1;
+        if (buckets > statsProperties.getSeries().getMaxBuckets()) {
+            throw new ValidationException("A series has at most " + statsProperties.getSeries().getMaxBuckets()
+                    + " buckets, " + buckets + " were requested.");
+        }
+        if (unique && !statsProperties.getIngest().isStoreRaw()) {
+            throw new ValidationException("Unique series need the raw hits, which are not stored.");
+        }
+        return statsService.series(start, end, uris, seriesInterval, unique);
+    }
+
+    /**
+     * The {@code k} most hit uris of the app over the last {@code hour}, {@code day} or {@code week}.
+     * Counts come from in-memory leaderboards that move in steps of stats.top.slots per window.
+     */
+    @GetMapping("/stats/top")
+    @ResponseStatus(HttpStatus.OK)
+    public List<StatsDto> top(@RequestParam String app,
+                              @RequestParam(defaultValue = "day") String window,
+                              @RequestParam(defaultValue = "10") int k) {
+        if (k <= 0 || k > statsProperties.getTop().getMaxK()) {
+            throw new ValidationException("k must be between 1 and " + statsProperties.getTop().getMaxK() + ".");
+        }
+        return statsService.top(app, TopWindow.parse(window), k);
+    }
+
+    /**
+     * Same counts as {@code /stats}, written as NDJSON while they are read, ordered by hits descending.
+     * {@code limit} caps the number of rows; the next page starts after the row given by
+     * {@code afterHits}, {@code afterApp} and {@code afterUri}, i.e. the last row of the previous one.
+     */
+    @GetMapping(value = "/stats/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> stream(@RequestParam @NotNull @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                                                        @RequestParam @NotNull @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                                                        @RequestParam(required = false) List<String> uris,
+                                                        @RequestParam(defaultValue = "false") String unique,
+                                                        @RequestParam(required = false) Integer limit,
+                                                        @RequestParam(required = false) Long afterHits,
+                                                        @RequestParam(required = false) String afterApp,
+                                                        @RequestParam(required = false) String afterUri) {
+        if (start.isAfter(end)) {
+            throw new ValidationException("The start date must be earlier than the end date.");
+        }
+        if (limit != null && limit <= 0) {
+            throw new ValidationException("Limit must be positive.");
+        }
+        StatsDto after = null;
+        if (afterHits != null || afterApp != null || afterUri != null) {
+            if (afterHits == null || afterApp == null || afterUri == null) {
+                throw new ValidationException("afterHits, afterApp and afterUri must be given together.");
+            }
+            after = new StatsDto(afterApp, afterUri, afterHits);
+        }
+        UniqueMode uniqueMode = UniqueMode.parse(unique, statsProperties.getUnique().getDefaultMode());
+        StatsDto position = after;
+
+        StreamingResponseBody body = out -> {
+            try (NdjsonStatsWriter writer = new NdjsonStatsWriter(out, objectMapper)) {
+                statsService.stream(start, end, uris, uniqueMode, limit, position, writer);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 }
@@ -1,9 +1,12 @@
 package ru.practicum.exception.handler;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import ru.practicum.exception.PayloadTooLargeException;
 import ru.practicum.exception.ValidationException;
 import ru.practicum.exception.ErrorResponse;
 
@@ -17,6 +20,22 @@ public class ErrorHandler {
         return errorResponse;
     }
 
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+    public ErrorResponse handlePayloadTooLargeException(final PayloadTooLargeException e) {
+        ErrorResponse errorResponse = new ErrorResponse(e.getMessage());
+        return errorResponse;
+    }
+
+    // no pooled connection became free within the Hikari timeout: the request is shed like one the
+    // concurrency limit turns away, so that clients back off instead of reporting a server error
+    @ExceptionHandler({CannotGetJdbcConnectionException.class, CannotCreateTransactionException.class})
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleConnectionUnavailable(final Exception e) {
+        ErrorResponse errorResponse = new ErrorResponse(e.getMessage());
+        return errorResponse;
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleUncaught(final Exception e) {
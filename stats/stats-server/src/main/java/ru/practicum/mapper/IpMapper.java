@@ -0,0 +1,81 @@
+package ru.practicum.mapper;
+
+import lombok.experimental.UtilityClass;
+import ru.practicum.exception.ValidationException;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Converts IP addresses between their text form and the packed form stored in {@code hits}:
+ * 4 bytes for IPv4 and 16 bytes for IPv6. Only literals are accepted, host names are never resolved.
+ */
+@UtilityClass
+public class IpMapper {
+
+    public static byte[] pack(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            throw invalid(ip);
+        }
+        if (ip.indexOf(':') < 0) {
+            return packIpv4(ip);
+        }
+        // InetAddress treats anything that starts like an IPv6 literal as one and fails instead of looking it up
+        if (!isHexDigit(ip.charAt(0)) && ip.charAt(0) != ':' || !ip.chars().allMatch(IpMapper::isIpv6Char)) {
+            throw invalid(ip);
+        }
+        try {
+            return InetAddress.getByName(ip).getAddress();
+        } catch (UnknownHostException e) {
+            throw invalid(ip);
+        }
+    }
+
+    public static String unpack(byte[] address) {
+        try {
+            return InetAddress.getByAddress(address).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Invalid packed ip address of " + address.length + " bytes", e);
+        }
+    }
+
+    /**
+     * The text form hits are kept in everywhere outside of {@code hits}, so that the same address
+     * always looks, and hashes, the same however the client spelled it.
+     */
+    public static String normalize(String ip) {
+        return unpack(pack(ip));
+    }
+
+    private static byte[] packIpv4(String ip) {
+        String[] parts = ip.split("\\.", -1);
+        if (parts.length != 4) {
+            throw invalid(ip);
+        }
+        byte[] address = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            String part = parts[i];
+            if (part.isEmpty() || part.length() > 3 || !part.chars().allMatch(c -> c >= '0' && c <= '9')) {
+                throw invalid(ip);
+            }
+            int value = Integer.parseInt(part);
+            if (value > 255) {
+                throw invalid(ip);
+            }
+            address[i] = (byte) value;
+        }
+        return address;
+    }
+
+    private static boolean isIpv6Char(int c) {
+        return isHexDigit(c) || c == ':' || c == '.';
+    }
+
+    private static boolean isHexDigit(int c) {
+        return c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F';
+    }
+
+    private static ValidationException invalid(String ip) {
+        return new ValidationException("Invalid ip address: " + ip);
+    }
+}
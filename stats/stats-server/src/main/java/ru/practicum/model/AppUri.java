@@ -0,0 +1,4 @@
+package ru.practicum.model;
+
+public record AppUri(String app, String uri) {
+}
@@ -0,0 +1,6 @@
+package ru.practicum.model;
+
+import java.time.LocalDateTime;
+
+public record BucketKey(LocalDateTime bucket, String app, String uri) {
+}
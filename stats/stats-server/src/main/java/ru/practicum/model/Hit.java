@@ -1,22 +1,21 @@
 package ru.practicum.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
-import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.LocalDateTime;
 import java.util.Objects;
 
+/**
+ * A hit as the service works with it. In {@code hits} the app and uri are stored as dimension ids
+ * and the ip in its packed form, see {@link ru.practicum.repository.HitJdbcRepository}.
+ */
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@Entity
-@Table(name = "hits")
 public class Hit {
 
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     private String app;
@@ -0,0 +1,8 @@
+package ru.practicum.model;
+
+public enum IngestMode {
+    // rollup counters are updated in the ingest transaction
+    DIRECT,
+    // hits are counted in memory, logged to a write-ahead file and flushed to the rollups periodically
+    BUFFERED
+}
@@ -0,0 +1,51 @@
+package ru.practicum.model;
+
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+
+@RequiredArgsConstructor
+public enum PartitionInterval {
+    DAY(DateTimeFormatter.ofPattern("yyyyMMdd"), ChronoUnit.DAYS),
+    MONTH(DateTimeFormatter.ofPattern("yyyyMM"), ChronoUnit.MONTHS);
+
+    private static final String PREFIX = "hits_p";
+
+    private final DateTimeFormatter format;
+    private final ChronoUnit unit;
+
+    public LocalDateTime start(LocalDateTime timestamp) {
+        LocalDate date = timestamp.toLocalDate();
+        return (this == MONTH ? date.withDayOfMonth(1) : date).atStartOfDay();
+    }
+
+    public LocalDateTime next(LocalDateTime start) {
+        return start.plus(1, unit);
+    }
+
+    public String name(LocalDateTime start) {
+        return PREFIX + format.format(start);
+    }
+
+    /**
+     * Start of the partition with the given table name, or null if it was not created for this interval.
+     */
+    public LocalDateTime parse(String name) {
+        if (!name.startsWith(PREFIX)) {
+            return null;
+        }
+        String suffix = name.substring(PREFIX.length());
+        try {
+            if (this == MONTH) {
+                return suffix.length() == 6 ? LocalDate.parse(suffix + "01", DAY.format).atStartOfDay() : null;
+            }
+            return suffix.length() == 8 ? LocalDate.parse(suffix, format).atStartOfDay() : null;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package ru.practicum.model;
+
+import java.time.LocalDateTime;
+
+public record RollupDelta(String app, String uri, LocalDateTime bucket, long hits) {
+}
@@ -0,0 +1,16 @@
+package ru.practicum.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.temporal.ChronoUnit;
+
+@Getter
+@RequiredArgsConstructor
+public enum RollupLevel {
+    MINUTE("hits_minute", ChronoUnit.MINUTES),
+    HOUR("hits_hour", ChronoUnit.HOURS);
+
+    private final String table;
+    private final ChronoUnit unit;
+}
@@ -0,0 +1,33 @@
+package ru.practicum.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import ru.practicum.exception.ValidationException;
+
+import java.time.temporal.ChronoUnit;
+
+@Getter
+@RequiredArgsConstructor
+public enum SeriesInterval {
+    MINUTE(ChronoUnit.MINUTES, RollupLevel.MINUTE),
+    HOUR(ChronoUnit.HOURS, RollupLevel.HOUR),
+    DAY(ChronoUnit.DAYS, RollupLevel.HOUR);
+
+    private final ChronoUnit unit;
+    // the finest rollup whose buckets add up to whole intervals
+    private final RollupLevel rollupLevel;
+
+    // the field name DATE_TRUNC takes in both PostgreSQL and H2
+    public String field() {
+        return name().toLowerCase();
+    }
+
+    public static SeriesInterval parse(String value) {
+        for (SeriesInterval interval : values()) {
+            if (interval.name().equalsIgnoreCase(value)) {
+                return interval;
+            }
+        }
+        throw new ValidationException("Unknown interval: " + value);
+    }
+}
@@ -0,0 +1,6 @@
+package ru.practicum.model;
+
+import java.time.LocalDateTime;
+
+public record SeriesVisit(LocalDateTime bucket, String app, String uri, String ip) {
+}
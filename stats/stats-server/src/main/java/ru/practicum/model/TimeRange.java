@@ -0,0 +1,13 @@
+package ru.practicum.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Half-open interval {@code [from, to)}.
+ */
+public record TimeRange(LocalDateTime from, LocalDateTime to) {
+
+    public boolean isEmpty() {
+        return !from.isBefore(to);
+    }
+}
@@ -0,0 +1,28 @@
+package ru.practicum.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import ru.practicum.exception.ValidationException;
+
+import java.time.Duration;
+
+@Getter
+@RequiredArgsConstructor
+public enum TopWindow {
+    HOUR(Duration.ofHours(1), RollupLevel.MINUTE),
+    DAY(Duration.ofDays(1), RollupLevel.HOUR),
+    WEEK(Duration.ofDays(7), RollupLevel.HOUR);
+
+    private final Duration length;
+    // the rollup the leaderboards are rebuilt from on startup
+    private final RollupLevel rollupLevel;
+
+    public static TopWindow parse(String value) {
+        for (TopWindow window : values()) {
+            if (window.name().equalsIgnoreCase(value)) {
+                return window;
+            }
+        }
+        throw new ValidationException("Unknown window: " + value);
+    }
+}
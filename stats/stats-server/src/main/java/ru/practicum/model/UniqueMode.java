@@ -0,0 +1,29 @@
+package ru.practicum.model;
+
+import ru.practicum.exception.ValidationException;
+
+public enum UniqueMode {
+    NONE,
+    EXACT,
+    APPROX;
+
+    /**
+     * Parses the {@code unique} request parameter: {@code false}, {@code true} or {@code approx}.
+     * Plain {@code true} resolves to the server-wide default unique mode.
+     */
+    public static UniqueMode parse(String value, UniqueMode uniqueDefault) {
+        if (value == null || value.equalsIgnoreCase("false")) {
+            return NONE;
+        }
+        if (value.equalsIgnoreCase("true")) {
+            return uniqueDefault;
+        }
+        if (value.equalsIgnoreCase("approx")) {
+            return APPROX;
+        }
+        if (value.equalsIgnoreCase("exact")) {
+            return EXACT;
+        }
+        throw new ValidationException("Unknown unique mode: " + value);
+    }
+}
@@ -0,0 +1,4 @@
+package ru.practicum.model;
+
+public record Visit(String app, String uri, String ip) {
+}
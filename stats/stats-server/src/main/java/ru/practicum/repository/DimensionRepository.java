@@ -0,0 +1,176 @@
+package ru.practicum.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.model.Dimension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Small integer ids for the app and uri values of {@code hits}. Both directions are kept in memory;
+ * the tables only grow, so a cached mapping never goes stale. New values are inserted on the
+ * caller's connection and only cached once its transaction commits, so a rolled-back id is never
+ * handed out again. Values that are not there are remembered for a few seconds, so queries for
+ * uris that were never hit do not look them up every time.
+ */
+@Slf4j
+@Repository
+public class DimensionRepository {
+
+    private static final Duration MISSING_TTL = Duration.ofSeconds(10);
+    private static final long MAX_MISSING = 10_000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final Map<Dimension, Interned> interned = new EnumMap<>(Dimension.class);
+
+    public DimensionRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        for (Dimension dimension : Dimension.values()) {
+            interned.put(dimension, new Interned());
+        }
+    }
+
+    /**
+     * Id of the value, which is added to the dimension if it is new. Concurrent transactions adding
+     * the same value wait for each other on its unique key, so callers add several values in a
+     * stable order.
+     */
+    public int idOf(Dimension dimension, String name) {
+        Interned values = interned.get(dimension);
+        Integer id = values.ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        Map<String, Integer> pending = pending(dimension);
+        if (pending != null && (id = pending.get(name)) != null) {
+            return id;
+        }
+        id = select(dimension, name);
+        if (id != null) {
+            values.put(id, name);
+            return id;
+        }
+
+        jdbcTemplate.update("INSERT INTO " + dimension.getTable() + " (name) VALUES (:name) ON CONFLICT DO NOTHING",
+                new MapSqlParameterSource("name", name));
+        id = select(dimension, name);
+        if (id == null) {
+            throw new IllegalStateException(dimension + " " + name + " was inserted but cannot be found");
+        }
+        values.missing.invalidate(name);
+        if (pending != null) {
+            pending.put(name, id);
+        } else {
+            values.put(id, name);
+        }
+        log.debug("{} {} has been interned as {}.", dimension, name, id);
+        return id;
+    }
+
+    /**
+     * Id of the value, or null if it was never recorded.
+     */
+    public Integer findId(Dimension dimension, String name) {
+        Interned values = interned.get(dimension);
+        Integer id = values.ids.get(name);
+        if (id != null || values.missing.getIfPresent(name) != null) {
+            return id;
+        }
+        id = select(dimension, name);
+        if (id == null) {
+            values.missing.put(name, Boolean.TRUE);
+            return null;
+        }
+        values.put(id, name);
+        return id;
+    }
+
+    public List<Integer> findIds(Dimension dimension, Collection<String> names) {
+        List<Integer> ids = new ArrayList<>(names.size());
+        for (String name : names) {
+            Integer id = findId(dimension, name);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    public String nameOf(Dimension dimension, int id) {
+        Interned values = interned.get(dimension);
+        String name = values.names.get(id);
+        if (name != null) {
+            return name;
+        }
+        name = jdbcTemplate.queryForObject("SELECT name FROM " + dimension.getTable() + " WHERE id = :id",
+                new MapSqlParameterSource("id", id), String.class);
+        values.put(id, name);
+        return name;
+    }
+
+    private Integer select(Dimension dimension, String name) {
+        try {
+            return jdbcTemplate.queryForObject("SELECT id FROM " + dimension.getTable() + " WHERE name = :name",
+                    new MapSqlParameterSource("name", name), Integer.class);
+        } catch (EmptyResultDataAccessException e) {
+            return null;
+        }
+    }
+
+    // values inserted by the current transaction, null outside of one
+    @SuppressWarnings("unchecked")
+    private Map<String, Integer> pending(Dimension dimension) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Map<Dimension, Map<String, Integer>> pending =
+                (Map<Dimension, Map<String, Integer>>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Map<Dimension, Map<String, Integer>> inserted = new EnumMap<>(Dimension.class);
+            TransactionSynchronizationManager.bindResource(this, inserted);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    inserted.forEach((d, names) -> names.forEach((n, id) -> interned.get(d).put(id, n)));
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResource(DimensionRepository.this);
+                }
+            });
+            pending = inserted;
+        }
+        return pending.computeIfAbsent(dimension, d -> new HashMap<>());
+    }
+
+    private static class Interned {
+
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final Map<Integer, String> names = new ConcurrentHashMap<>();
+        // another instance may add a value meanwhile, so a miss is only trusted briefly
+        private final Cache<String, Boolean> missing = Caffeine.newBuilder()
+                .maximumSize(MAX_MISSING)
+                .expireAfterWrite(MISSING_TTL)
+                .build();
+
+        private void put(int id, String name) {
+            names.put(id, name);
+            ids.put(name, id);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package ru.practicum.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import ru.practicum.config.StatsProperties;
+import ru.practicum.model.Dimension;
+import ru.practicum.model.Hit;
+import ru.practicum.model.TimeRange;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Moves raw hits out of {@code hits} into archive segments and keeps the list of segments that
+ * were committed. Rows are read in timestamp order through {@code idx_hits_timestamp_covering}.
+ */
+@Repository
+public class HitArchiveRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate cursorTemplate;
+    private final DimensionRepository dimensionRepository;
+
+    public HitArchiveRepository(JdbcTemplate jdbcTemplate,
+                                DimensionRepository dimensionRepository,
+                                StatsProperties statsProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dimensionRepository = dimensionRepository;
+        this.cursorTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        cursorTemplate.setFetchSize(statsProperties.getStream().getFetchSize());
+    }
+
+    public LocalDateTime findOldestHitBefore(LocalDateTime cutoff) {
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM hits WHERE timestamp < ?",
+                Timestamp.class, Timestamp.valueOf(cutoff));
+        return oldest == null ? null : oldest.toLocalDateTime();
+    }
+
+    /**
+     * Hands the hits of the range to the consumer in timestamp order, with their packed ips.
+     * Only fetched in chunks when this runs inside a transaction.
+     */
+    public void export(TimeRange range, BiConsumer<Hit, byte[]> consumer) {
+        cursorTemplate.query("SELECT app_id, uri_id, ip, timestamp FROM hits "
+                        + "WHERE timestamp >= ? AND timestamp < ? ORDER BY timestamp",
+                (RowCallbackHandler) rs -> consumer.accept(new Hit(null,
+                        dimensionRepository.nameOf(Dimension.APP, rs.getInt("app_id")),
+                        null,
+                        dimensionRepository.nameOf(Dimension.URI, rs.getInt("uri_id")),
+                        rs.getTimestamp("timestamp").toLocalDateTime()), rs.getBytes("ip")),
+                Timestamp.valueOf(range.from()), Timestamp.valueOf(range.to()));
+    }
+
+    public int delete(TimeRange range) {
+        return jdbcTemplate.update("DELETE FROM hits WHERE timestamp >= ? AND timestamp < ?",
+                Timestamp.valueOf(range.from()), Timestamp.valueOf(range.to()));
+    }
+
+    public List<String> findSegments() {
+        return jdbcTemplate.queryForList("SELECT name FROM hits_archive", String.class);
+    }
+
+    public List<String> findSegmentsEndingBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.queryForList("SELECT name FROM hits_archive WHERE range_to <= ?", String.class,
+                Timestamp.valueOf(cutoff));
+    }
+
+    public void saveSegment(String name, TimeRange range, long hits) {
+        jdbcTemplate.update("INSERT INTO hits_archive (name, range_from, range_to, hits) VALUES (?, ?, ?, ?)",
+                name, Timestamp.valueOf(range.from()), Timestamp.valueOf(range.to()), hits);
+    }
+
+    public void deleteSegment(String name) {
+        jdbcTemplate.update("DELETE FROM hits_archive WHERE name = ?", name);
+    }
+}
@@ -0,0 +1,51 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import ru.practicum.mapper.IpMapper;
+import ru.practicum.model.Dimension;
+import ru.practicum.model.Hit;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class HitJdbcRepository {
+
+    private static final String INSERT_HIT = "INSERT INTO hits (app_id, uri_id, ip, timestamp) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DimensionRepository dimensionRepository;
+
+    public Hit save(Hit hit) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_HIT, new String[]{"id"});
+            setValues(ps, hit);
+            return ps;
+        }, keyHolder);
+        hit.setId(keyHolder.getKeyAs(Long.class));
+        return hit;
+    }
+
+    public void saveAll(List<Hit> hits) {
+        // new values are added in sorted order, so that concurrent batches cannot deadlock on them
+        hits.stream().map(Hit::getApp).distinct().sorted()
+                .forEach(app -> dimensionRepository.idOf(Dimension.APP, app));
+        hits.stream().map(Hit::getUri).distinct().sorted()
+                .forEach(uri -> dimensionRepository.idOf(Dimension.URI, uri));
+        jdbcTemplate.batchUpdate(INSERT_HIT, hits, hits.size(), this::setValues);
+    }
+
+    private void setValues(PreparedStatement ps, Hit hit) throws SQLException {
+        ps.setInt(1, dimensionRepository.idOf(Dimension.APP, hit.getApp()));
+        ps.setInt(2, dimensionRepository.idOf(Dimension.URI, hit.getUri()));
+        ps.setBytes(3, IpMapper.pack(hit.getIp()));
+        ps.setObject(4, hit.getTimestamp());
+    }
+}
@@ -0,0 +1,77 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DDL for the range partitions of {@code hits} on PostgreSQL. Partition names are generated by
+ * the application and never come from user input.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HitPartitionRepository {
+
+    private static final String DEFAULT_PARTITION = "hits_default";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public boolean isPartitioned() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pg_partitioned_table "
+                + "WHERE partrelid = to_regclass('hits')", Integer.class);
+        return count != null && count > 0;
+    }
+
+    public List<String> findPartitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i "
+                + "JOIN pg_class c ON c.oid = i.inhrelid "
+                + "WHERE i.inhparent = to_regclass('hits') AND c.relname <> ?", String.class, DEFAULT_PARTITION);
+    }
+
+    /**
+     * Creates the partition for [from, to). Hits of that range which already landed in the default
+     * partition are moved into the new table before it is attached, and the default partition stays
+     * locked meanwhile so that no new ones arrive there.
+     */
+    @Transactional
+    public void create(String name, LocalDateTime from, LocalDateTime to) {
+        jdbcTemplate.execute("LOCK TABLE " + DEFAULT_PARTITION + " IN ACCESS EXCLUSIVE MODE");
+        jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE hits INCLUDING DEFAULTS)");
+        jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION
+                + " WHERE timestamp >= ? AND timestamp < ? RETURNING *) "
+                + "INSERT INTO " + name + " SELECT * FROM moved", Timestamp.valueOf(from), Timestamp.valueOf(to));
+        jdbcTemplate.execute("ALTER TABLE hits ATTACH PARTITION " + name
+                + " FOR VALUES FROM ('" + Timestamp.valueOf(from) + "') TO ('" + Timestamp.valueOf(to) + "')");
+    }
+
+    public void drop(String name) {
+        jdbcTemplate.execute("DROP TABLE " + name);
+    }
+
+    /**
+     * Drops the partition unless it still holds hits; the lock keeps new ones out while it is checked.
+     */
+    @Transactional
+    public boolean dropIfEmpty(String name) {
+        jdbcTemplate.execute("LOCK TABLE " + name + " IN ACCESS EXCLUSIVE MODE");
+        Boolean empty = jdbcTemplate.queryForObject("SELECT NOT EXISTS (SELECT 1 FROM " + name + ")", Boolean.class);
+        if (!Boolean.TRUE.equals(empty)) {
+            return false;
+        }
+        drop(name);
+        return true;
+    }
+
+    /**
+     * The default partition only holds stray hits far from "now", so old ones are simply deleted.
+     */
+    public int deleteDefaultBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE timestamp < ?",
+                Timestamp.valueOf(cutoff));
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practicum.repository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.StatsDto;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Times the repository queries and records the size of their results, tagged by query and by whether
+ * the query is filtered by uris ({@code shape=filtered}) or covers all of them ({@code shape=all}).
+ */
+@Component
+@RequiredArgsConstructor
+public class QueryMetrics {
+
+    private final MeterRegistry registry;
+
+    public <T> List<T> record(String query, List<String> uris, Supplier<List<T>> execution) {
+        String shape = shape(uris);
+        List<T> rows = timer(query, shape).record(execution);
+        DistributionSummary.builder("stats.repository.rows")
+                .tag("query", query)
+                .tag("shape", shape)
+                .register(registry)
+                .record(rows == null ? 0 : rows.size());
+        return rows;
+    }
+
+    /**
+     * Like {@link #record}, for a query counting raw hits, whose counts add up to the number of hit rows
+     * the database had to read to produce them.
+     */
+    public List<StatsDto> recordCount(String query, List<String> uris, Supplier<List<StatsDto>> execution) {
+        List<StatsDto> rows = record(query, uris, execution);
+        DistributionSummary.builder("stats.repository.rows.scanned")
+                .tag("query", query)
+                .tag("shape", shape(uris))
+                .register(registry)
+                .record(rows.stream().mapToLong(StatsDto::getHits).sum());
+        return rows;
+    }
+
+    /**
+     * Times a query whose rows are handed on while they are fetched, so the time includes the consumer.
+     */
+    public void record(String query, List<String> uris, Runnable execution) {
+        timer(query, shape(uris)).record(execution);
+    }
+
+    public static String shape(List<String> uris) {
+        return uris == null || uris.isEmpty() ? "all" : "filtered";
+    }
+
+    private Timer timer(String query, String shape) {
+        return Timer.builder("stats.repository.query")
+                .tag("query", query)
+                .tag("shape", shape)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
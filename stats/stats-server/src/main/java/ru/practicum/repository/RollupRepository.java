@@ -0,0 +1,115 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import ru.practicum.StatsDto;
+import ru.practicum.model.RollupDelta;
+import ru.practicum.model.RollupLevel;
+import ru.practicum.model.SeriesInterval;
+import ru.practicum.model.TimeRange;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class RollupRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final QueryMetrics queryMetrics;
+
+    /**
+     * Adds the deltas to the bucket counters. The zero row is created first so that the increment
+     * itself is a plain row-locking UPDATE and concurrent writers never lose each other's counts.
+     */
+    public void increment(RollupLevel level, List<RollupDelta> deltas) {
+        SqlParameterSource[] params = deltas.stream()
+                .map(delta -> new MapSqlParameterSource()
+                        .addValue("bucket", delta.bucket())
+                        .addValue("app", delta.app())
+                        .addValue("uri", delta.uri())
+                        .addValue("hits", delta.hits()))
+                .toArray(SqlParameterSource[]::new);
+
+        jdbcTemplate.batchUpdate("INSERT INTO " + level.getTable() + " (bucket, app, uri, hits) "
+                + "VALUES (:bucket, :app, :uri, 0) ON CONFLICT DO NOTHING", params);
+        jdbcTemplate.batchUpdate("UPDATE " + level.getTable() + " SET hits = hits + :hits "
+                + "WHERE bucket = :bucket AND app = :app AND uri = :uri", params);
+    }
+
+    public int deleteBefore(RollupLevel level, LocalDateTime bucket) {
+        return jdbcTemplate.update("DELETE FROM " + level.getTable() + " WHERE bucket < :bucket",
+                new MapSqlParameterSource("bucket", bucket));
+    }
+
+    public List<StatsDto> sum(RollupLevel level, List<TimeRange> ranges, List<String> uris) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        List<String> conditions = new ArrayList<>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            conditions.add("(bucket >= :from" + i + " AND bucket < :to" + i + ")");
+            params.addValue("from" + i, ranges.get(i).from());
+            params.addValue("to" + i, ranges.get(i).to());
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT app, uri, SUM(hits) AS hits FROM ")
+                .append(level.getTable())
+                .append(" WHERE (")
+                .append(String.join(" OR ", conditions))
+                .append(')');
+        if (uris != null && !uris.isEmpty()) {
+            sql.append(" AND uri IN (:uris)");
+            params.addValue("uris", uris);
+        }
+        sql.append(" GROUP BY app, uri");
+
+        return queryMetrics.record("rollup-" + level.name().toLowerCase(), uris,
+                () -> jdbcTemplate.query(sql.toString(), params,
+                        (rs, rowNum) -> new StatsDto(rs.getString("app"), rs.getString("uri"), rs.getLong("hits"))));
+    }
+
+    public List<RollupDelta> findBuckets(RollupLevel level, LocalDateTime from) {
+        return queryMetrics.record("rollup-" + level.name().toLowerCase() + "-buckets", null,
+                () -> jdbcTemplate.query("SELECT bucket, app, uri, hits FROM " + level.getTable() + " WHERE bucket >= :from",
+                        new MapSqlParameterSource("from", from),
+                        (rs, rowNum) -> new RollupDelta(rs.getString("app"), rs.getString("uri"),
+                                rs.getTimestamp("bucket").toLocalDateTime(), rs.getLong("hits"))));
+    }
+
+    /**
+     * Hits per app, uri and interval in the range, summed from the buckets of the interval's rollup.
+     * The range must start and end on interval boundaries.
+     */
+    public List<RollupDelta> series(SeriesInterval interval, TimeRange range, List<String> uris) {
+        String bucket = "DATE_TRUNC('" + interval.field() + "', bucket)";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", range.from())
+                .addValue("to", range.to());
+        StringBuilder sql = new StringBuilder("SELECT app, uri, ").append(bucket).append(" AS series_bucket, ")
+                .append("SUM(hits) AS hits FROM ").append(interval.getRollupLevel().getTable())
+                .append(" WHERE bucket >= :from AND bucket < :to");
+        if (uris != null && !uris.isEmpty()) {
+            sql.append(" AND uri IN (:uris)");
+            params.addValue("uris", uris);
+        }
+        sql.append(" GROUP BY app, uri, ").append(bucket);
+
+        return queryMetrics.record("rollup-series-" + interval.field(), uris,
+                () -> jdbcTemplate.query(sql.toString(), params,
+                        (rs, rowNum) -> new RollupDelta(rs.getString("app"), rs.getString("uri"),
+                                rs.getTimestamp("series_bucket").toLocalDateTime(), rs.getLong("hits"))));
+    }
+
+    public long findCheckpoint() {
+        Long segment = jdbcTemplate.getJdbcTemplate()
+                .queryForObject("SELECT segment FROM ingest_checkpoint WHERE id = 1", Long.class);
+        return segment != null ? segment : 0;
+    }
+
+    public void saveCheckpoint(long segment) {
+        jdbcTemplate.getJdbcTemplate().update("UPDATE ingest_checkpoint SET segment = ? WHERE id = 1", segment);
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.BucketKey;
+import ru.practicum.model.TimeRange;
+import ru.practicum.sketch.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class SketchRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public Map<BucketKey, HyperLogLog> find(TimeRange range, List<String> uris) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", range.from())
+                .addValue("to", range.to());
+        String sql = "SELECT bucket, app, uri, sketch FROM hits_hour_sketch WHERE bucket >= :from AND bucket < :to";
+        if (uris != null && !uris.isEmpty()) {
+            sql += " AND uri IN (:uris)";
+            params.addValue("uris", uris);
+        }
+
+        return jdbcTemplate.query(sql, params, rs -> {
+            Map<BucketKey, HyperLogLog> sketches = new HashMap<>();
+            while (rs.next()) {
+                BucketKey key = new BucketKey(rs.getObject("bucket", LocalDateTime.class),
+                        rs.getString("app"), rs.getString("uri"));
+                sketches.put(key, HyperLogLog.fromBytes(rs.getBytes("sketch")));
+            }
+            return sketches;
+        });
+    }
+
+    /**
+     * Folds the sketch into the stored one for the same bucket. Must run inside a transaction:
+     * the stored row is locked while it is merged so concurrent flushes cannot overwrite each other.
+     */
+    public void merge(BucketKey key, HyperLogLog sketch) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("bucket", key.bucket())
+                .addValue("app", key.app())
+                .addValue("uri", key.uri())
+                .addValue("sketch", sketch.toBytes());
+
+        int inserted = jdbcTemplate.update("INSERT INTO hits_hour_sketch (bucket, app, uri, sketch) "
+                + "VALUES (:bucket, :app, :uri, :sketch) ON CONFLICT DO NOTHING", params);
+        if (inserted > 0) {
+            return;
+        }
+
+        byte[] stored = jdbcTemplate.queryForObject("SELECT sketch FROM hits_hour_sketch "
+                + "WHERE bucket = :bucket AND app = :app AND uri = :uri FOR UPDATE", params, byte[].class);
+        params.addValue("sketch", HyperLogLog.fromBytes(stored).union(sketch).toBytes());
+        jdbcTemplate.update("UPDATE hits_hour_sketch SET sketch = :sketch "
+                + "WHERE bucket = :bucket AND app = :app AND uri = :uri", params);
+    }
+}
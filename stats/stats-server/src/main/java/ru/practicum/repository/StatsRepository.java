@@ -1,40 +1,255 @@
 package ru.practicum.repository;
 
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
-import ru.practicum.model.Hit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.config.StatsProperties;
+import ru.practicum.exception.ValidationException;
+import ru.practicum.mapper.IpMapper;
+import ru.practicum.model.Dimension;
+import ru.practicum.model.RollupDelta;
+import ru.practicum.model.SeriesInterval;
+import ru.practicum.model.SeriesVisit;
+import ru.practicum.model.TimeRange;
+import ru.practicum.model.Visit;
 import ru.practicum.StatsDto;
 
 import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Consumer;
 
-public interface StatsRepository extends JpaRepository<Hit, Long> {
-    @Query(value = """
-        SELECT new ru.practicum.StatsDto(app, uri, COUNT(DISTINCT ip) AS hits)
-        FROM Hit
-        WHERE timestamp BETWEEN :start AND :end
-        AND (uri IN :uris OR :uris IS NULL)
-        GROUP BY app, uri
-        ORDER BY hits DESC
-    """)
-    List<StatsDto> findUniqueStatsByUrisAndTimestampBetween(
-            @Param("start") LocalDateTime start,
-            @Param("end") LocalDateTime end,
-            @Param("uris") List<String> uris
-    );
-
-    @Query(value = """
-        SELECT new ru.practicum.StatsDto(app, uri, COUNT(ip) AS hits)
-        FROM Hit
-        WHERE timestamp BETWEEN :start AND :end
-        AND (uri IN :uris OR :uris IS NULL)
-        GROUP BY app, uri
-        ORDER BY hits DESC
-    """)
-    List<StatsDto> findStatsByUrisAndTimestampBetween(
-            @Param("start") LocalDateTime start,
-            @Param("end") LocalDateTime end,
-            @Param("uris") List<String> uris
-    );
+/**
+ * Queries over the raw hits. Filtering, grouping and distinct counting all work on the
+ * fixed-width dimension ids and packed ips; names are only looked up for the result rows.
+ * <p>
+ * Queries over all uris and queries for a list of uris are different statements, each answered
+ * by an index-only scan: the first by {@code idx_hits_timestamp_covering}, the second by
+ * {@code idx_hits_uri_timestamp_covering}. A single statement with an optional filter would get
+ * one plan for both cases.
+ */
+@Repository
+public class StatsRepository {
+
+    static final String RANGE = "timestamp BETWEEN :start AND :end";
+    static final String EDGES = "((timestamp >= :headStart AND timestamp < :headEnd) "
+            + "OR (timestamp >= :tailStart AND timestamp <= :tailEnd))";
+    static final String URI_FILTER = " AND uri_id IN (:uriIds)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate cursorTemplate;
+    private final DimensionRepository dimensionRepository;
+    private final QueryMetrics queryMetrics;
+
+    public StatsRepository(NamedParameterJdbcTemplate jdbcTemplate,
+                           DimensionRepository dimensionRepository,
+                           QueryMetrics queryMetrics,
+                           StatsProperties statsProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dimensionRepository = dimensionRepository;
+        this.queryMetrics = queryMetrics;
+        JdbcTemplate cursor = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        cursor.setFetchSize(statsProperties.getStream().getFetchSize());
+        this.cursorTemplate = new NamedParameterJdbcTemplate(cursor);
+    }
+
+    public long count() {
+        Long count = jdbcTemplate.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM hits", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    public List<StatsDto> findUniqueStatsByUrisAndTimestampBetween(LocalDateTime start, LocalDateTime end,
+                                                                   List<String> uris) {
+        return queryMetrics.record("unique", uris,
+                () -> findStats("COUNT(DISTINCT ip)", RANGE, range(start, end), uris, true));
+    }
+
+    public List<StatsDto> findStatsByUrisAndTimestampBetween(LocalDateTime start, LocalDateTime end,
+                                                             List<String> uris) {
+        return queryMetrics.recordCount("count", uris,
+                () -> findStats("COUNT(*)", RANGE, range(start, end), uris, true));
+    }
+
+    public List<StatsDto> findStatsByUrisAndTimestampEdges(LocalDateTime headStart, LocalDateTime headEnd,
+                                                           LocalDateTime tailStart, LocalDateTime tailEnd,
+                                                           List<String> uris) {
+        return queryMetrics.recordCount("count-edges", uris,
+                () -> findStats("COUNT(*)", EDGES, edges(headStart, headEnd, tailStart, tailEnd), uris, false));
+    }
+
+    public List<Visit> findVisitsByUrisAndTimestampBetween(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return queryMetrics.record("visits", uris, () -> findVisits(RANGE, range(start, end), uris));
+    }
+
+    public List<Visit> findVisitsByUrisAndTimestampEdges(LocalDateTime headStart, LocalDateTime headEnd,
+                                                         LocalDateTime tailStart, LocalDateTime tailEnd,
+                                                         List<String> uris) {
+        return queryMetrics.record("visits-edges", uris,
+                () -> findVisits(EDGES, edges(headStart, headEnd, tailStart, tailEnd), uris));
+    }
+
+    /**
+     * Hits, or distinct ips when {@code unique}, per app, uri and interval in the range, in one grouped pass.
+     */
+    public List<RollupDelta> findSeries(SeriesInterval interval, TimeRange range, List<String> uris, boolean unique) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", range.from())
+                .addValue("to", range.to());
+        String uriFilter = uriFilter(uris, params);
+        if (uriFilter == null) {
+            return List.of();
+        }
+        String bucket = "DATE_TRUNC('" + interval.field() + "', timestamp)";
+        String sql = "SELECT app_id, uri_id, " + bucket + " AS bucket, "
+                + (unique ? "COUNT(DISTINCT ip)" : "COUNT(*)") + " AS hits FROM hits "
+                + "WHERE timestamp >= :from AND timestamp < :to" + uriFilter
+                + " GROUP BY app_id, uri_id, " + bucket;
+        return queryMetrics.record(unique ? "series-unique" : "series", uris, () -> jdbcTemplate.query(sql, params,
+                (rs, rowNum) -> new RollupDelta(
+                        dimensionRepository.nameOf(Dimension.APP, rs.getInt("app_id")),
+                        dimensionRepository.nameOf(Dimension.URI, rs.getInt("uri_id")),
+                        rs.getTimestamp("bucket").toLocalDateTime(),
+                        rs.getLong("hits"))));
+    }
+
+    /**
+     * Distinct ips per app, uri and interval in the range, to be merged with those of the archive.
+     */
+    public List<SeriesVisit> findSeriesVisits(SeriesInterval interval, TimeRange range, List<String> uris) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", range.from())
+                .addValue("to", range.to());
+        String uriFilter = uriFilter(uris, params);
+        if (uriFilter == null) {
+            return List.of();
+        }
+        String bucket = "DATE_TRUNC('" + interval.field() + "', timestamp)";
+        String sql = "SELECT DISTINCT app_id, uri_id, " + bucket + " AS bucket, ip FROM hits "
+                + "WHERE timestamp >= :from AND timestamp < :to" + uriFilter;
+        return queryMetrics.record("series-visits", uris, () -> jdbcTemplate.query(sql, params,
+                (rs, rowNum) -> new SeriesVisit(
+                        rs.getTimestamp("bucket").toLocalDateTime(),
+                        dimensionRepository.nameOf(Dimension.APP, rs.getInt("app_id")),
+                        dimensionRepository.nameOf(Dimension.URI, rs.getInt("uri_id")),
+                        IpMapper.unpack(rs.getBytes("ip")))));
+    }
+
+    /**
+     * The order of {@link #streamStats}, for rows that are ranked in memory, so that a page position
+     * means the same whichever way the next page is served.
+     */
+    public Comparator<StatsDto> streamOrder() {
+        return Comparator.comparing(StatsDto::getHits).reversed()
+                .thenComparing(dto -> order(Dimension.APP, dto.getApp()))
+                .thenComparing(dto -> order(Dimension.URI, dto.getUri()));
+    }
+
+    // ids of values that were never recorded cannot be in the table, so they come last
+    private int order(Dimension dimension, String name) {
+        Integer id = dimensionRepository.findId(dimension, name);
+        return id != null ? id : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Hands the rows to the consumer as they are fetched, ordered by hits descending and then by ids.
+     * {@code after} is the last row of the previous page. PostgreSQL only fetches in chunks instead of
+     * reading the whole result when this runs inside a transaction.
+     */
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                            Integer limit, StatsDto after, Consumer<StatsDto> consumer) {
+        String aggregate = unique ? "COUNT(DISTINCT ip)" : "COUNT(*)";
+        MapSqlParameterSource params = range(start, end);
+        String uriFilter = uriFilter(uris, params);
+        if (uriFilter == null) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder("SELECT app_id, uri_id, ")
+                .append(aggregate).append(" AS hits FROM hits WHERE ").append(RANGE).append(uriFilter)
+                .append(" GROUP BY app_id, uri_id");
+        if (after != null) {
+            Integer appId = dimensionRepository.findId(Dimension.APP, after.getApp());
+            Integer uriId = dimensionRepository.findId(Dimension.URI, after.getUri());
+            if (appId == null || uriId == null) {
+                throw new ValidationException("Unknown page position: " + after.getApp() + " " + after.getUri());
+            }
+            sql.append(" HAVING ").append(aggregate).append(" < :afterHits OR (").append(aggregate)
+                    .append(" = :afterHits AND (app_id > :afterApp OR (app_id = :afterApp AND uri_id > :afterUri)))");
+            params.addValue("afterHits", after.getHits())
+                    .addValue("afterApp", appId)
+                    .addValue("afterUri", uriId);
+        }
+        sql.append(" ORDER BY hits DESC, app_id, uri_id");
+        if (limit != null) {
+            sql.append(" LIMIT :limit");
+            params.addValue("limit", limit);
+        }
+
+        RowMapper<StatsDto> mapper = statsMapper();
+        queryMetrics.record(unique ? "stream-unique" : "stream", uris, () -> cursorTemplate.query(sql.toString(), params,
+                (RowCallbackHandler) rs -> consumer.accept(mapper.mapRow(rs, 0))));
+    }
+
+    private List<StatsDto> findStats(String aggregate, String condition, MapSqlParameterSource params,
+                                     List<String> uris, boolean ordered) {
+        String uriFilter = uriFilter(uris, params);
+        if (uriFilter == null) {
+            return List.of();
+        }
+        return jdbcTemplate.query(statsSql(aggregate, condition, !uriFilter.isEmpty(), ordered), params, statsMapper());
+    }
+
+    private List<Visit> findVisits(String condition, MapSqlParameterSource params, List<String> uris) {
+        String uriFilter = uriFilter(uris, params);
+        if (uriFilter == null) {
+            return List.of();
+        }
+        return jdbcTemplate.query("SELECT DISTINCT app_id, uri_id, ip FROM hits WHERE " + condition + uriFilter, params,
+                (rs, rowNum) -> new Visit(
+                        dimensionRepository.nameOf(Dimension.APP, rs.getInt("app_id")),
+                        dimensionRepository.nameOf(Dimension.URI, rs.getInt("uri_id")),
+                        IpMapper.unpack(rs.getBytes("ip"))));
+    }
+
+    static String statsSql(String aggregate, String condition, boolean filtered, boolean ordered) {
+        return "SELECT app_id, uri_id, " + aggregate + " AS hits FROM hits WHERE " + condition
+                + (filtered ? URI_FILTER : "") + " GROUP BY app_id, uri_id" + (ordered ? " ORDER BY hits DESC" : "");
+    }
+
+    // null when none of the requested uris was ever hit, so there is nothing to query
+    private String uriFilter(List<String> uris, MapSqlParameterSource params) {
+        if (uris == null || uris.isEmpty()) {
+            return "";
+        }
+        List<Integer> uriIds = dimensionRepository.findIds(Dimension.URI, uris);
+        if (uriIds.isEmpty()) {
+            return null;
+        }
+        params.addValue("uriIds", uriIds);
+        return URI_FILTER;
+    }
+
+    private RowMapper<StatsDto> statsMapper() {
+        return (rs, rowNum) -> new StatsDto(
+                dimensionRepository.nameOf(Dimension.APP, rs.getInt("app_id")),
+                dimensionRepository.nameOf(Dimension.URI, rs.getInt("uri_id")),
+                rs.getLong("hits"));
+    }
+
+    private MapSqlParameterSource range(LocalDateTime start, LocalDateTime end) {
+        return new MapSqlParameterSource()
+                .addValue("start", start)
+                .addValue("end", end);
+    }
+
+    private MapSqlParameterSource edges(LocalDateTime headStart, LocalDateTime headEnd,
+                                        LocalDateTime tailStart, LocalDateTime tailEnd) {
+        return new MapSqlParameterSource()
+                .addValue("headStart", headStart)
+                .addValue("headEnd", headEnd)
+                .addValue("tailStart", tailStart)
+                .addValue("tailEnd", tailEnd);
+    }
 }
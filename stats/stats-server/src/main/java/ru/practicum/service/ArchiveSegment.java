@@ -0,0 +1,330 @@
+package ru.practicum.service;
+
+import ru.practicum.model.TimeRange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * One immutable file of archived hits, stored column by column: timestamps as varint deltas in
+ * microseconds, apps and uris as varint indexes into dictionaries kept in the file, and ips as
+ * length-prefixed packed addresses. Each column is deflated on its own, so a scan only inflates
+ * the columns it reads, straight from the memory-mapped file.
+ */
+class ArchiveSegment {
+
+    static final String SUFFIX = ".seg";
+
+    private static final int MAGIC = 0x48534547;
+    private static final byte VERSION = 1;
+    private static final int COLUMNS = 4;
+    private static final int TIMESTAMPS = 0;
+    private static final int APPS = 1;
+    private static final int URIS = 2;
+    private static final int IPS = 3;
+
+    private final String name;
+    private final TimeRange range;
+    private final int rows;
+    private final String[] apps;
+    private final String[] uris;
+    private final Map<String, Integer> uriIndexes;
+    private final ByteBuffer[] columns = new ByteBuffer[COLUMNS];
+    private final int[] rawLengths = new int[COLUMNS];
+
+    private ArchiveSegment(String name, MappedByteBuffer buffer) {
+        this.name = name;
+        if (buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+            throw new IllegalStateException("Not an archive segment: " + name);
+        }
+        this.range = new TimeRange(toTime(buffer.getLong()), toTime(buffer.getLong()));
+        this.rows = buffer.getInt();
+        this.apps = readDictionary(buffer);
+        this.uris = readDictionary(buffer);
+        this.uriIndexes = new HashMap<>();
+        for (int i = 0; i < uris.length; i++) {
+            uriIndexes.put(uris[i], i);
+        }
+        for (int column = 0; column < COLUMNS; column++) {
+            rawLengths[column] = buffer.getInt();
+            int length = buffer.getInt();
+            columns[column] = buffer.slice(buffer.position(), length);
+            buffer.position(buffer.position() + length);
+        }
+    }
+
+    static ArchiveSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new ArchiveSegment(path.getFileName().toString(),
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    static boolean isSegment(Path path) {
+        return path.getFileName().toString().endsWith(SUFFIX);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    TimeRange getRange() {
+        return range;
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    String app(int index) {
+        return apps[index];
+    }
+
+    String uri(int index) {
+        return uris[index];
+    }
+
+    int appCount() {
+        return apps.length;
+    }
+
+    int uriCount() {
+        return uris.length;
+    }
+
+    /**
+     * Calls the visitor for every row in {@code [start, end]}, restricted to the given uris unless
+     * they are empty, in timestamp order. Ips are only inflated when asked for, otherwise the visitor gets null.
+     */
+    void scan(LocalDateTime start, LocalDateTime end, Collection<String> uriFilter, boolean withIps,
+              RowVisitor visitor) {
+        boolean[] wanted = null;
+        if (uriFilter != null && !uriFilter.isEmpty()) {
+            wanted = new boolean[uris.length];
+            boolean any = false;
+            for (String uri : uriFilter) {
+                Integer index = uriIndexes.get(uri);
+                if (index != null) {
+                    wanted[index] = true;
+                    any = true;
+                }
+            }
+            if (!any) {
+                return;
+            }
+        }
+        long from = toMicros(start);
+        long to = toMicros(end);
+        ByteBuffer timestamps = inflate(TIMESTAMPS);
+        ByteBuffer appColumn = inflate(APPS);
+        ByteBuffer uriColumn = inflate(URIS);
+        ByteBuffer ipColumn = withIps ? inflate(IPS) : null;
+        long micros = toMicros(range.from());
+        for (int row = 0; row < rows; row++) {
+            micros += readVarLong(timestamps);
+            int app = (int) readVarLong(appColumn);
+            int uri = (int) readVarLong(uriColumn);
+            byte[] ip = null;
+            if (ipColumn != null) {
+                ip = new byte[ipColumn.get()];
+                ipColumn.get(ip);
+            }
+            // rows are in timestamp order
+            if (micros > to) {
+                return;
+            }
+            if (micros >= from && (wanted == null || wanted[uri])) {
+                visitor.visit(micros, app, uri, ip);
+            }
+        }
+    }
+
+    private ByteBuffer inflate(int column) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(columns[column].duplicate());
+            byte[] raw = new byte[rawLengths[column]];
+            int length = 0;
+            while (length < raw.length) {
+                int inflated = inflater.inflate(raw, length, raw.length - length);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new DataFormatException("column " + column + " is truncated");
+                }
+                length += inflated;
+            }
+            return ByteBuffer.wrap(raw);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt archive segment " + name, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static String[] readDictionary(ByteBuffer buffer) {
+        String[] values = new String[(int) readVarLong(buffer)];
+        for (int i = 0; i < values.length; i++) {
+            byte[] bytes = new byte[(int) readVarLong(buffer)];
+            buffer.get(bytes);
+            values[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long toMicros(LocalDateTime time) {
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+        return seconds * 1_000_000 + time.getNano() / 1000;
+    }
+
+    static LocalDateTime toTime(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1000, ZoneOffset.UTC);
+    }
+
+    @FunctionalInterface
+    interface RowVisitor {
+
+        void visit(long micros, int app, int uri, byte[] ip);
+    }
+
+    /**
+     * Collects hits of one time range, which must arrive in timestamp order, and writes them as a segment.
+     */
+    static class Writer {
+
+        private final TimeRange range;
+        private final Map<String, Integer> apps = new LinkedHashMap<>();
+        private final Map<String, Integer> uris = new LinkedHashMap<>();
+        private final ByteArrayOutputStream[] columns = new ByteArrayOutputStream[COLUMNS];
+        private long lastMicros;
+        private int rows;
+
+        Writer(TimeRange range) {
+            this.range = range;
+            this.lastMicros = toMicros(range.from());
+            for (int column = 0; column < COLUMNS; column++) {
+                columns[column] = new ByteArrayOutputStream();
+            }
+        }
+
+        void add(String app, String uri, byte[] ip, LocalDateTime timestamp) {
+            long micros = toMicros(timestamp);
+            if (micros < lastMicros || !timestamp.isBefore(range.to())) {
+                throw new IllegalArgumentException("Hit at " + timestamp + " is out of order or outside " + range);
+            }
+            writeVarLong(columns[TIMESTAMPS], micros - lastMicros);
+            writeVarLong(columns[APPS], apps.computeIfAbsent(app, key -> apps.size()));
+            writeVarLong(columns[URIS], uris.computeIfAbsent(uri, key -> uris.size()));
+            columns[IPS].write(ip.length);
+            columns[IPS].writeBytes(ip);
+            lastMicros = micros;
+            rows++;
+        }
+
+        int getRows() {
+            return rows;
+        }
+
+        /**
+         * Writes the segment next to its final path, forces it to disk and then moves it into place,
+         * so that a segment file is either complete or absent.
+         */
+        void write(Path path) throws IOException {
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            ByteBuffer fixed = ByteBuffer.allocate(Integer.BYTES + 1 + 2 * Long.BYTES + Integer.BYTES)
+                    .putInt(MAGIC)
+                    .put(VERSION)
+                    .putLong(toMicros(range.from()))
+                    .putLong(toMicros(range.to()))
+                    .putInt(rows);
+            header.writeBytes(fixed.array());
+            writeDictionary(header, apps);
+            writeDictionary(header, uris);
+
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeFully(channel, ByteBuffer.wrap(header.toByteArray()));
+                Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+                try {
+                    for (ByteArrayOutputStream column : columns) {
+                        byte[] compressed = deflate(deflater, column.toByteArray());
+                        writeFully(channel, ByteBuffer.allocate(2 * Integer.BYTES)
+                                .putInt(column.size())
+                                .putInt(compressed.length)
+                                .flip());
+                        writeFully(channel, ByteBuffer.wrap(compressed));
+                    }
+                } finally {
+                    deflater.end();
+                }
+                channel.force(true);
+            }
+            Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private static void writeDictionary(ByteArrayOutputStream out, Map<String, Integer> dictionary) {
+            writeVarLong(out, dictionary.size());
+            for (String value : dictionary.keySet()) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(out, bytes.length);
+                out.writeBytes(bytes);
+            }
+        }
+
+        private static byte[] deflate(Deflater deflater, byte[] raw) {
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        }
+
+        private static void writeFully(FileChannel channel, ByteBuffer bytes) throws IOException {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package ru.practicum.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.config.StatsProperties;
+import ru.practicum.model.AppUri;
+import ru.practicum.model.BucketKey;
+import ru.practicum.model.Hit;
+import ru.practicum.model.IngestMode;
+import ru.practicum.model.RollupLevel;
+import ru.practicum.model.TimeRange;
+import ru.practicum.repository.RollupRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Buffered ingest: hits are appended to a write-ahead segment and counted in {@link LongAdder}s
+ * keyed by (app, uri, minute). Writers never block each other or the flusher. Every flush seals the
+ * current generation (counters plus its segment), starts a new one, waits for the writers still
+ * inside the sealed generation and then adds its counters to the rollup tables together with a
+ * checkpoint of the segment id, in one transaction. Segments that survive a crash are replayed on
+ * startup unless the checkpoint shows they were already flushed.
+ * <p>
+ * Hits of an ingest transaction are appended right before it commits, so a failed append rolls the
+ * transaction back instead of losing the hits, and are counted once it has committed. A rollback
+ * after the append writes an abort line that replay honours; only a crash while the commit itself is
+ * in flight may replay a batch whose transaction did not make it. The generation stays open until
+ * the transaction completes. Visitor sketches are recorded inside the generation too, so a flush
+ * stores them before the segment is deleted. A flushed generation is dropped from the pending counts while its commit
+ * holds the write side of a gate that queries over rollups and pending counts take for reading.
+ * With replicas those queries read the rollups from the primary, as a lagging replica may not have
+ * the counters yet that were just dropped from the pending counts.
+ */
+@Slf4j
+@Component
+public class HitAggregator implements MeterBinder {
+
+    private final StatsProperties.Ingest properties;
+    private final RollupRepository rollupRepository;
+    private final UniqueSketchService uniqueSketchService;
+    private final TransactionTemplate transactionTemplate;
+    // null without replicas
+    private final TransactionTemplate primaryReads;
+    private final ObjectMapper objectMapper;
+    private final boolean sketches;
+
+    private final Deque<Generation> unflushed = new ArrayDeque<>();
+    // held across the JDBC flush, so not a monitor that would pin a virtual scheduler thread
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ReentrantReadWriteLock flushGate = new ReentrantReadWriteLock();
+    private volatile Generation current;
+    private long nextSegmentId;
+
+    public HitAggregator(StatsProperties statsProperties,
+                         RollupRepository rollupRepository,
+                         UniqueSketchService uniqueSketchService,
+                         PlatformTransactionManager transactionManager,
+                         ObjectMapper objectMapper) {
+        this.properties = statsProperties.getIngest();
+        this.rollupRepository = rollupRepository;
+        this.uniqueSketchService = uniqueSketchService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.sketches = statsProperties.sketchesEnabled();
+        if (statsProperties.getReplica().getDatasources().isEmpty()) {
+            this.primaryReads = null;
+        } else {
+            // not read-only, so that the routing data source hands out a primary connection
+            this.primaryReads = new TransactionTemplate(transactionManager);
+            this.primaryReads.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        }
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (properties.getMode() != IngestMode.BUFFERED) {
+            return;
+        }
+        Path dir = properties.getWalDir();
+        Files.createDirectories(dir);
+        long checkpoint = rollupRepository.findCheckpoint();
+
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(dir)) {
+            segments = files.filter(WalSegment::isSegment)
+                    .sorted(Comparator.comparingLong(WalSegment::idOf))
+                    .toList();
+        }
+        nextSegmentId = Math.max(checkpoint, segments.isEmpty() ? 0 : WalSegment.idOf(segments.getLast())) + 1;
+        current = newGeneration();
+
+        for (Path segment : segments) {
+            if (WalSegment.idOf(segment) > checkpoint) {
+                List<Hit> hits = WalSegment.read(segment, objectMapper);
+                // sketch merges are idempotent, so IPs that did reach the stored sketches may be added again
+                record(hits);
+                log.info("{} hits have been replayed from {}.", hits.size(), segment);
+            }
+            Files.delete(segment);
+        }
+    }
+
+    public boolean isEnabled() {
+        return current != null;
+    }
+
+    /**
+     * Inside a transaction the hits are written ahead before it commits and counted after it has;
+     * otherwise, as on replay, right away.
+     */
+    public void record(List<Hit> hits) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Appended appended = append(hits);
+            complete(appended, hits, true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private Appended appended;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                appended = append(hits);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (appended != null) {
+                    complete(appended, hits, status == STATUS_COMMITTED);
+                }
+            }
+        });
+    }
+
+    // the generation keeps a writer registered until complete(), so that it is not flushed meanwhile
+    private Appended append(List<Hit> hits) {
+        while (true) {
+            Generation generation = current;
+            generation.writers.increment();
+            if (generation != current) {
+                generation.writers.decrement();
+                continue;
+            }
+            try {
+                return new Appended(generation, generation.segment.append(hits));
+            } catch (RuntimeException e) {
+                generation.writers.decrement();
+                throw e;
+            }
+        }
+    }
+
+    private void complete(Appended appended, List<Hit> hits, boolean committed) {
+        Generation generation = appended.generation();
+        try {
+            if (committed) {
+                for (Hit hit : hits) {
+                    BucketKey key = new BucketKey(hit.getTimestamp().truncatedTo(ChronoUnit.MINUTES),
+                            hit.getApp(), hit.getUri());
+                    generation.counters.computeIfAbsent(key, k -> new LongAdder()).increment();
+                }
+                if (sketches) {
+                    uniqueSketchService.record(hits);
+                }
+            } else {
+                generation.segment.abort(appended.batch());
+            }
+        } catch (UncheckedIOException e) {
+            log.error("Rolled-back batch {} of segment {} could not be aborted and would be replayed: {}",
+                    appended.batch(), generation.segment.getId(), e.getMessage());
+        } finally {
+            generation.writers.decrement();
+        }
+    }
+
+    /**
+     * Runs a read of the rollup tables and of the pending counts during which no flush commits.
+     */
+    public <T> T snapshot(Supplier<T> read) {
+        if (current == null) {
+            return read.get();
+        }
+        if (primaryReads != null) {
+            return primaryReads.execute(status -> gated(read));
+        }
+        return gated(read);
+    }
+
+    private <T> T gated(Supplier<T> read) {
+        flushGate.readLock().lock();
+        try {
+            return read.get();
+        } finally {
+            flushGate.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts not yet flushed to the rollup tables, for minute buckets inside the range.
+     */
+    public Map<AppUri, Long> pending(TimeRange range, Collection<String> uris) {
+        Map<AppUri, Long> totals = new HashMap<>();
+        pendingBuckets(range, uris).forEach((key, hits) -> totals.merge(new AppUri(key.app(), key.uri()), hits, Long::sum));
+        return totals;
+    }
+
+    /**
+     * Per-minute counts of the range that are not in the rollups yet.
+     */
+    public Map<BucketKey, Long> pendingBuckets(TimeRange range, Collection<String> uris) {
+        Map<BucketKey, Long> buckets = new HashMap<>();
+        if (current == null) {
+            return buckets;
+        }
+        Set<String> uriFilter = uris == null || uris.isEmpty() ? null : Set.copyOf(uris);
+        for (Generation generation : generations()) {
+            generation.counters.forEach((key, hits) -> {
+                boolean inRange = !key.bucket().isBefore(range.from()) && key.bucket().isBefore(range.to());
+                if (inRange && (uriFilter == null || uriFilter.contains(key.uri()))) {
+                    buckets.merge(key, hits.sum(), Long::sum);
+                }
+            });
+        }
+        return buckets;
+    }
+
+    @Scheduled(fixedDelayString = "${stats.ingest.flush-interval:PT5S}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushLocked() {
+        if (current == null) {
+            return;
+        }
+        if (!current.counters.isEmpty()) {
+            Generation sealed = current;
+            Generation next = newGeneration();
+            // swapped together, so that a query never sees the sealed generation twice
+            synchronized (unflushed) {
+                unflushed.addLast(sealed);
+                current = next;
+            }
+            // writers may be waiting for their ingest transaction to commit
+            while (sealed.writers.sum() != 0) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            }
+        }
+
+        // the segments are about to be deleted, so the visitor sketches of their hits must be stored first
+        uniqueSketchService.flush();
+        while (true) {
+            Generation generation;
+            synchronized (unflushed) {
+                generation = unflushed.peekFirst();
+            }
+            if (generation == null) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> persist(generation));
+            } catch (RuntimeException e) {
+                log.error("Error flushing hit counters of segment {}: {}", generation.segment.getId(), e.getMessage());
+                return;
+            }
+            try {
+                generation.segment.delete();
+            } catch (IOException e) {
+                log.warn("Flushed segment {} could not be deleted: {}", generation.segment.getId(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        flush();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("stats.ingest.pending.keys", this, aggregator -> aggregator.generations().stream()
+                        .mapToInt(generation -> generation.counters.size())
+                        .sum())
+                .register(registry);
+    }
+
+    private void persist(Generation generation) {
+        for (RollupLevel level : RollupLevel.values()) {
+            Map<BucketKey, Long> counts = new HashMap<>();
+            generation.counters.forEach((key, hits) -> counts.merge(
+                    new BucketKey(key.bucket().truncatedTo(level.getUnit()), key.app(), key.uri()), hits.sum(), Long::sum));
+            rollupRepository.increment(level, RollupService.toDeltas(counts));
+        }
+        rollupRepository.saveCheckpoint(generation.segment.getId());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCompletion() {
+                flushGate.writeLock().lock();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        synchronized (unflushed) {
+                            unflushed.removeFirst();
+                        }
+                    }
+                } finally {
+                    flushGate.writeLock().unlock();
+                }
+            }
+        });
+    }
+
+    private List<Generation> generations() {
+        synchronized (unflushed) {
+            Generation active = current;
+            return active == null ? List.copyOf(unflushed) : Stream.concat(unflushed.stream(), Stream.of(active)).toList();
+        }
+    }
+
+    private Generation newGeneration() {
+        try {
+            return new Generation(WalSegment.create(properties.getWalDir(), nextSegmentId++, objectMapper,
+                    properties.isWalSync()));
+        } catch (UncheckedIOException e) {
+            throw new IllegalStateException("Cannot open write-ahead segment in " + properties.getWalDir(), e);
+        }
+    }
+
+    private record Appended(Generation generation, long batch) {
+    }
+
+    private static class Generation {
+
+        private final ConcurrentMap<BucketKey, LongAdder> counters = new ConcurrentHashMap<>();
+        private final LongAdder writers = new LongAdder();
+        private final WalSegment segment;
+
+        Generation(WalSegment segment) {
+            this.segment = segment;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.config.StatsProperties;
+import ru.practicum.mapper.IpMapper;
+import ru.practicum.model.AppUri;
+import ru.practicum.model.BucketKey;
+import ru.practicum.model.SeriesInterval;
+import ru.practicum.model.SeriesVisit;
+import ru.practicum.model.TimeRange;
+import ru.practicum.model.Visit;
+import ru.practicum.repository.HitArchiveRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Cold storage for raw hits: whole days older than {@code stats.archive.after} are moved out of
+ * {@code hits} into {@link ArchiveSegment} files, so that the table and its indexes only hold recent
+ * hits. A day is exported, deleted and recorded in {@code hits_archive} in one repeatable-read
+ * transaction: hits inserted meanwhile stay in the table for the next run, and a segment file whose
+ * transaction did not commit is deleted on startup. The files are local, so only one instance should
+ * archive, and only that one can answer queries that reach before {@link #getHorizon()}.
+ */
+@Slf4j
+@Component
+public class HitArchive implements MeterBinder {
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final StatsProperties.Archive properties;
+    private final HitArchiveRepository archiveRepository;
+    private final HitPartitionManager partitionManager;
+    private final TransactionTemplate transactionTemplate;
+    private final List<ArchiveSegment> segments = new CopyOnWriteArrayList<>();
+
+    // end of the newest archived day, null while nothing is archived
+    private volatile LocalDateTime horizon;
+
+    public HitArchive(StatsProperties statsProperties,
+                      HitArchiveRepository archiveRepository,
+                      HitPartitionManager partitionManager,
+                      PlatformTransactionManager transactionManager) {
+        this.properties = statsProperties.getArchive();
+        this.archiveRepository = archiveRepository;
+        this.partitionManager = partitionManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Path dir = properties.getDir();
+        Files.createDirectories(dir);
+        Set<String> committed = new HashSet<>(archiveRepository.findSegments());
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (ArchiveSegment.isSegment(file) && committed.remove(name)) {
+                    segments.add(ArchiveSegment.open(file));
+                } else if (ArchiveSegment.isSegment(file) || name.endsWith(".tmp")) {
+                    Files.delete(file);
+                    log.warn("Archive segment {} was never committed and has been deleted.", name);
+                }
+            }
+        }
+        if (!committed.isEmpty()) {
+            log.error("Archive segments {} are missing from {}, their hits are lost.", committed, dir);
+        }
+        updateHorizon();
+        log.info("{} archive segments have been opened, archived up to {}.", segments.size(), horizon);
+    }
+
+    public LocalDateTime getHorizon() {
+        return horizon;
+    }
+
+    /**
+     * Whether some of the hits from {@code start} on are only in the archive.
+     */
+    public boolean covers(LocalDateTime start) {
+        LocalDateTime until = horizon;
+        return until != null && start.isBefore(until);
+    }
+
+    public Map<AppUri, Long> count(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        Map<AppUri, Long> counts = new HashMap<>();
+        for (ArchiveSegment segment : overlapping(start, end)) {
+            int uriCount = segment.uriCount();
+            long[] hits = new long[Math.multiplyExact(segment.appCount(), uriCount)];
+            segment.scan(start, end, uris, false, (micros, app, uri, ip) -> hits[app * uriCount + uri]++);
+            for (int i = 0; i < hits.length; i++) {
+                if (hits[i] > 0) {
+                    counts.merge(new AppUri(segment.app(i / uriCount), segment.uri(i % uriCount)), hits[i], Long::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    public Set<Visit> visits(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        Set<Visit> visits = new HashSet<>();
+        for (ArchiveSegment segment : overlapping(start, end)) {
+            segment.scan(start, end, uris, true, (micros, app, uri, ip) ->
+                    visits.add(new Visit(segment.app(app), segment.uri(uri), IpMapper.unpack(ip))));
+        }
+        return visits;
+    }
+
+    /**
+     * Hits per app, uri and interval of the range, which must start on an interval boundary.
+     */
+    public Map<BucketKey, Long> countSeries(SeriesInterval interval, TimeRange range, List<String> uris) {
+        Map<BucketKey, Long> counts = new HashMap<>();
+        LocalDateTime last = range.to().minus(1, ChronoUnit.MICROS);
+        for (ArchiveSegment segment : overlapping(range.from(), last)) {
+            Buckets buckets = new Buckets(interval);
+            segment.scan(range.from(), last, uris, false, (micros, app, uri, ip) -> counts.merge(
+                    new BucketKey(buckets.of(micros), segment.app(app), segment.uri(uri)), 1L, Long::sum));
+        }
+        return counts;
+    }
+
+    public Set<SeriesVisit> seriesVisits(SeriesInterval interval, TimeRange range, List<String> uris) {
+        Set<SeriesVisit> visits = new HashSet<>();
+        LocalDateTime last = range.to().minus(1, ChronoUnit.MICROS);
+        for (ArchiveSegment segment : overlapping(range.from(), last)) {
+            Buckets buckets = new Buckets(interval);
+            segment.scan(range.from(), last, uris, true, (micros, app, uri, ip) -> visits.add(new SeriesVisit(
+                    buckets.of(micros), segment.app(app), segment.uri(uri), IpMapper.unpack(ip))));
+        }
+        return visits;
+    }
+
+    @Scheduled(fixedDelayString = "${stats.archive.check-interval:PT1H}",
+            initialDelayString = "${stats.archive.check-interval:PT1H}")
+    public void archive() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            archive(LocalDateTime.now());
+        } catch (RuntimeException | IOException e) {
+            log.error("Hit archiving failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("stats.archive.segments", segments, List::size)
+                .register(registry);
+        Gauge.builder("stats.archive.hits", segments, s -> s.stream().mapToLong(ArchiveSegment::getRows).sum())
+                .register(registry);
+    }
+
+    synchronized void archive(LocalDateTime now) throws IOException {
+        LocalDateTime cutoff = now.minus(properties.getAfter()).truncatedTo(ChronoUnit.DAYS);
+        LocalDateTime oldest;
+        while ((oldest = archiveRepository.findOldestHitBefore(cutoff)) != null) {
+            LocalDateTime day = oldest.truncatedTo(ChronoUnit.DAYS);
+            if (!archive(new TimeRange(day, day.plusDays(1)))) {
+                break;
+            }
+            partitionManager.dropIfEmpty(day);
+        }
+
+        if (properties.getRetention().isZero()) {
+            return;
+        }
+        for (String name : archiveRepository.findSegmentsEndingBefore(now.minus(properties.getRetention()))) {
+            archiveRepository.deleteSegment(name);
+            segments.removeIf(segment -> segment.getName().equals(name));
+            Files.deleteIfExists(properties.getDir().resolve(name));
+            log.info("Archive segment {} is past retention and has been deleted.", name);
+        }
+        updateHorizon();
+    }
+
+    private boolean archive(TimeRange day) throws IOException {
+        // a day archived again holds hits that arrived after the first run, in a segment of its own
+        String name = "hits-" + DAY.format(day.from()) + "-" + System.currentTimeMillis() + ArchiveSegment.SUFFIX;
+        Path path = properties.getDir().resolve(name);
+        ArchiveSegment.Writer writer = new ArchiveSegment.Writer(day);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                archiveRepository.export(day, (hit, ip) -> writer.add(hit.getApp(), hit.getUri(), ip, hit.getTimestamp()));
+                if (writer.getRows() == 0) {
+                    return;
+                }
+                try {
+                    writer.write(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                int deleted = archiveRepository.delete(day);
+                if (deleted != writer.getRows()) {
+                    throw new IllegalStateException("Exported " + writer.getRows() + " hits of " + day.from()
+                            + " but would delete " + deleted);
+                }
+                archiveRepository.saveSegment(name, day, writer.getRows());
+            });
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        if (writer.getRows() == 0) {
+            return false;
+        }
+        segments.add(ArchiveSegment.open(path));
+        updateHorizon();
+        log.info("{} hits of {} have been archived to {}.", writer.getRows(), day.from().toLocalDate(), name);
+        return true;
+    }
+
+    private List<ArchiveSegment> overlapping(LocalDateTime start, LocalDateTime end) {
+        return segments.stream()
+                .filter(segment -> !segment.getRange().from().isAfter(end) && segment.getRange().to().isAfter(start))
+                .toList();
+    }
+
+    private void updateHorizon() {
+        horizon = segments.stream()
+                .map(segment -> segment.getRange().to())
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+    }
+
+    // rows arrive in timestamp order, so the bucket only has to be computed when a row leaves the current one
+    private static final class Buckets {
+
+        private final SeriesInterval interval;
+        private LocalDateTime bucket;
+        private long from = Long.MAX_VALUE;
+        private long to = Long.MIN_VALUE;
+
+        private Buckets(SeriesInterval interval) {
+            this.interval = interval;
+        }
+
+        private LocalDateTime of(long micros) {
+            if (micros < from || micros >= to) {
+                bucket = ArchiveSegment.toTime(micros).truncatedTo(interval.getUnit());
+                from = ArchiveSegment.toMicros(bucket);
+                to = ArchiveSegment.toMicros(bucket.plus(1, interval.getUnit()));
+            }
+            return bucket;
+        }
+    }
+}
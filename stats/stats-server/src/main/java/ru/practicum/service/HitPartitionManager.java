@@ -0,0 +1,112 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.config.StatsProperties;
+import ru.practicum.model.PartitionInterval;
+import ru.practicum.repository.HitPartitionRepository;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps the range partitions of {@code hits} ahead of the clock and enforces retention by
+ * dropping whole partitions, which is cheap compared to deleting rows and leaves no bloat.
+ * Queries need nothing special: their {@code timestamp} bounds let PostgreSQL prune partitions.
+ */
+@Slf4j
+@Component
+public class HitPartitionManager {
+
+    private final StatsProperties.Partition properties;
+    private final HitPartitionRepository partitionRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private Boolean supported;
+
+    public HitPartitionManager(StatsProperties statsProperties,
+                               HitPartitionRepository partitionRepository,
+                               JdbcTemplate jdbcTemplate) {
+        this.properties = statsProperties.getPartition();
+        this.partitionRepository = partitionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Scheduled(fixedDelayString = "${stats.partition.check-interval:PT1H}")
+    public synchronized void maintain() {
+        if (!properties.isEnabled() || !isSupported()) {
+            return;
+        }
+        try {
+            maintain(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.error("Hit partition maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    void maintain(LocalDateTime now) {
+        PartitionInterval interval = properties.getInterval();
+        Set<LocalDateTime> existing = new HashSet<>();
+        for (String name : partitionRepository.findPartitions()) {
+            LocalDateTime start = interval.parse(name);
+            if (start != null) {
+                existing.add(start);
+            }
+        }
+
+        LocalDateTime start = interval.start(now);
+        for (int i = 0; i <= properties.getPremake(); i++) {
+            LocalDateTime end = interval.next(start);
+            if (!existing.contains(start)) {
+                partitionRepository.create(interval.name(start), start, end);
+                log.info("Hit partition {} has been created.", interval.name(start));
+            }
+            start = end;
+        }
+
+        if (properties.getRetention().isZero()) {
+            return;
+        }
+        LocalDateTime cutoff = now.minus(properties.getRetention());
+        for (LocalDateTime partition : existing) {
+            if (!interval.next(partition).isAfter(cutoff)) {
+                partitionRepository.drop(interval.name(partition));
+                log.info("Hit partition {} is past retention and has been dropped.", interval.name(partition));
+            }
+        }
+        int deleted = partitionRepository.deleteDefaultBefore(cutoff);
+        if (deleted > 0) {
+            log.info("{} hits past retention have been deleted from the default partition.", deleted);
+        }
+    }
+
+    /**
+     * Drops the partition that holds the given time once nothing is left in it, e.g. after its hits were archived.
+     */
+    public synchronized void dropIfEmpty(LocalDateTime time) {
+        if (!properties.isEnabled() || !isSupported()) {
+            return;
+        }
+        PartitionInterval interval = properties.getInterval();
+        String name = interval.name(interval.start(time));
+        if (partitionRepository.findPartitions().contains(name) && partitionRepository.dropIfEmpty(name)) {
+            log.info("Hit partition {} is empty and has been dropped.", name);
+        }
+    }
+
+    private boolean isSupported() {
+        if (supported == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            supported = "PostgreSQL".equals(product) && partitionRepository.isPartitioned();
+            if (!supported) {
+                log.info("Hits table is not partitioned on {}, partition maintenance is off.", product);
+            }
+        }
+        return supported;
+    }
+}
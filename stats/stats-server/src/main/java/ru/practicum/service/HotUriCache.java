@@ -0,0 +1,179 @@
+package ru.practicum.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import ru.practicum.StatsDto;
+import ru.practicum.config.StatsProperties;
+import ru.practicum.model.Hit;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Live hit counters for the URIs that are asked for most often. A counter is keyed by URI and the
+ * start of an open-ended window ("published to now"), is loaded from the database on the first
+ * request and from then on is incremented by ingest, so repeated requests need no query.
+ * <p>
+ * Ingest holds the read side of a gate from before its hits become visible until they have been
+ * recorded after the commit, and windows are loaded under the write side. So every hit is either in
+ * the load or recorded into the published window afterwards, never both and never neither. Loads
+ * of concurrent misses are serialized by the gate: the later one finds the window already published.
+ * A miss therefore briefly holds back ingest commits, which is why only misses take the gate.
+ * <p>
+ * The cache is off when {@code stats.replica.datasources} are set: queries run in read-only
+ * transactions there, so windows would be loaded from a replica, and the hits it has not replayed
+ * yet would be missing from them for as long as they live.
+ */
+@Component
+public class HotUriCache implements MeterBinder {
+
+    private final boolean enabled;
+    private final Cache<String, UriCounters> cache;
+    private final int maxWindowsPerUri;
+    private final Duration openEndTolerance;
+    private final ReentrantReadWriteLock ingestGate = new ReentrantReadWriteLock();
+
+    public HotUriCache(StatsProperties statsProperties) {
+        StatsProperties.Cache properties = statsProperties.getCache();
+        this.enabled = properties.isEnabled() && statsProperties.getReplica().getDatasources().isEmpty();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxUris())
+                .expireAfterAccess(properties.getExpireAfterAccess())
+                .recordStats()
+                .build();
+        this.maxWindowsPerUri = properties.getMaxWindowsPerUri();
+        this.openEndTolerance = properties.getOpenEndTolerance();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isOpenEnded(LocalDateTime end) {
+        return !end.isBefore(LocalDateTime.now().minus(openEndTolerance));
+    }
+
+    /**
+     * Serves the counts of the given URIs from the window starting at {@code start}. URIs without
+     * a counter are loaded in one call to {@code loader}, which must count them up to now from the
+     * primary database: hits it does not see are never recorded into the window later.
+     */
+    public List<StatsDto> get(LocalDateTime start, Collection<String> uris,
+                              Function<List<String>, Collection<StatsDto>> loader) {
+        List<StatsDto> result = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        for (String uri : new LinkedHashSet<>(uris)) {
+            Map<String, LongAdder> window = window(uri, start);
+            if (window != null) {
+                addTo(result, uri, window);
+            } else {
+                missing.add(uri);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            ingestGate.writeLock().lock();
+            try {
+                List<String> load = new ArrayList<>();
+                for (String uri : missing) {
+                    Map<String, LongAdder> window = window(uri, start);
+                    if (window != null) {
+                        addTo(result, uri, window);
+                    } else {
+                        load.add(uri);
+                    }
+                }
+                if (!load.isEmpty()) {
+                    Map<String, ConcurrentMap<String, LongAdder>> windows = new HashMap<>();
+                    load.forEach(uri -> windows.put(uri, new ConcurrentHashMap<>()));
+                    for (StatsDto dto : loader.apply(load)) {
+                        ConcurrentMap<String, LongAdder> window = windows.get(dto.getUri());
+                        if (window != null) {
+                            window.computeIfAbsent(dto.getApp(), app -> new LongAdder()).add(dto.getHits());
+                        }
+                    }
+                    windows.forEach((uri, window) -> {
+                        cache.asMap().computeIfAbsent(uri, k -> new UriCounters()).publish(start, window, maxWindowsPerUri);
+                        addTo(result, uri, window);
+                    });
+                }
+            } finally {
+                ingestGate.writeLock().unlock();
+            }
+        }
+
+        result.sort(Comparator.comparing(StatsDto::getHits).reversed());
+        return result;
+    }
+
+    /**
+     * Called in the ingest transaction before its hits can be seen by a query, and
+     * {@link #endIngest()} after they have been recorded or rolled back, on the same thread.
+     */
+    public void beginIngest() {
+        ingestGate.readLock().lock();
+    }
+
+    public void endIngest() {
+        ingestGate.readLock().unlock();
+    }
+
+    public void record(Collection<Hit> hits) {
+        for (Hit hit : hits) {
+            UriCounters counters = cache.asMap().get(hit.getUri());
+            if (counters == null) {
+                continue;
+            }
+            counters.windows.headMap(hit.getTimestamp(), true).values()
+                    .forEach(window -> window.computeIfAbsent(hit.getApp(), app -> new LongAdder()).increment());
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "stats.hot-uri");
+    }
+
+    private Map<String, LongAdder> window(String uri, LocalDateTime start) {
+        UriCounters counters = cache.getIfPresent(uri);
+        return counters != null ? counters.windows.get(start) : null;
+    }
+
+    private static void addTo(List<StatsDto> result, String uri, Map<String, LongAdder> window) {
+        window.forEach((app, hits) -> result.add(new StatsDto(app, uri, hits.sum())));
+    }
+
+    private static class UriCounters {
+
+        private final ConcurrentSkipListMap<LocalDateTime, ConcurrentMap<String, LongAdder>> windows =
+                new ConcurrentSkipListMap<>();
+
+        void publish(LocalDateTime start, ConcurrentMap<String, LongAdder> window, int maxWindows) {
+            while (!windows.containsKey(start) && windows.size() >= maxWindows) {
+                windows.pollFirstEntry();
+            }
+            windows.put(start, window);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.practicum.StatsDto;
+import ru.practicum.config.StatsProperties;
+import ru.practicum.model.AppUri;
+import ru.practicum.model.BucketKey;
+import ru.practicum.model.Hit;
+import ru.practicum.model.RollupDelta;
+import ru.practicum.model.RollupLevel;
+import ru.practicum.model.SeriesInterval;
+import ru.practicum.model.TimeRange;
+import ru.practicum.repository.RollupRepository;
+import ru.practicum.repository.StatsRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps per-minute and per-hour hit counters per (app, uri) and answers non-unique stats queries
+ * from them. A window is split into whole hours, whole minutes around them and sub-minute edges;
+ * only the edges are counted from raw hits, and so is the part before {@code stats.rollup.retention}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RollupService {
+
+    private static final Comparator<RollupDelta> DELTA_ORDER = Comparator.comparing(RollupDelta::bucket)
+            .thenComparing(RollupDelta::app)
+            .thenComparing(RollupDelta::uri);
+
+    private final RollupRepository rollupRepository;
+    private final StatsRepository statsRepository;
+    private final HitAggregator hitAggregator;
+    private final StatsProperties statsProperties;
+
+    public void record(Collection<Hit> hits) {
+        for (RollupLevel level : RollupLevel.values()) {
+            Map<BucketKey, Long> counts = new HashMap<>();
+            for (Hit hit : hits) {
+                BucketKey key = new BucketKey(hit.getTimestamp().truncatedTo(level.getUnit()), hit.getApp(), hit.getUri());
+                counts.merge(key, 1L, Long::sum);
+            }
+            rollupRepository.increment(level, toDeltas(counts));
+        }
+    }
+
+    // a stable row order keeps concurrent ingest transactions from deadlocking on the same buckets
+    static List<RollupDelta> toDeltas(Map<BucketKey, Long> counts) {
+        return counts.entrySet().stream()
+                .map(e -> new RollupDelta(e.getKey().app(), e.getKey().uri(), e.getKey().bucket(), e.getValue()))
+                .sorted(DELTA_ORDER)
+                .toList();
+    }
+
+    /**
+     * Deletes the buckets that ended before {@code stats.rollup.retention}. Queries read raw hits before
+     * {@link #rolledUpFrom}, so windows that old are counted from what {@code hits} still keeps.
+     */
+    @Scheduled(fixedDelayString = "${stats.rollup.check-interval:PT1H}")
+    public void prune() {
+        try {
+            prune(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.error("Rollup retention failed: {}", e.getMessage(), e);
+        }
+    }
+
+    void prune(LocalDateTime now) {
+        Duration retention = statsProperties.getRollup().getRetention();
+        if (retention.isZero()) {
+            return;
+        }
+        LocalDateTime cutoff = now.minus(retention);
+        for (RollupLevel level : RollupLevel.values()) {
+            int deleted = rollupRepository.deleteBefore(level, cutoff.truncatedTo(level.getUnit()));
+            if (deleted > 0) {
+                log.info("{} {} buckets past retention have been deleted.", deleted, level.getTable());
+            }
+        }
+    }
+
+    /**
+     * Start of the buckets that are certainly still kept: retention is checked against the clock of
+     * the query, which is never earlier than the one of the last pruning.
+     */
+    private LocalDateTime rolledUpFrom() {
+        Duration retention = statsProperties.getRollup().getRetention();
+        return retention.isZero() ? null : TimeBuckets.ceil(LocalDateTime.now().minus(retention), ChronoUnit.HOURS);
+    }
+
+    public List<StatsDto> count(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        LocalDateTime rolledUpFrom = rolledUpFrom();
+        if (rolledUpFrom == null || !start.isBefore(rolledUpFrom)) {
+            return countRollups(start, end, uris);
+        }
+        if (!end.isAfter(rolledUpFrom)) {
+            return statsRepository.findStatsByUrisAndTimestampBetween(start, end, uris);
+        }
+        // BETWEEN is inclusive, and timestamps have microsecond precision on PostgreSQL
+        Map<AppUri, Long> totals = new HashMap<>();
+        merge(totals, statsRepository.findStatsByUrisAndTimestampBetween(start, rolledUpFrom.minusNanos(1000), uris));
+        merge(totals, countRollups(rolledUpFrom, end, uris));
+        return sorted(totals);
+    }
+
+    /**
+     * Without raw hits the sub-minute edges cannot be counted, so the window is widened to the whole
+     * minutes containing {@code start} and {@code end}.
+     */
+    private List<StatsDto> countRollups(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        boolean raw = statsProperties.getIngest().isStoreRaw();
+        LocalDateTime minuteFrom = raw ? TimeBuckets.ceil(start, ChronoUnit.MINUTES) : start.truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime minuteTo = raw ? end.truncatedTo(ChronoUnit.MINUTES) : end.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        if (raw && !minuteFrom.isBefore(minuteTo)) {
+            return statsRepository.findStatsByUrisAndTimestampBetween(start, end, uris);
+        }
+
+        Map<AppUri, Long> totals = hitAggregator.snapshot(() -> countMinutes(minuteFrom, minuteTo, uris));
+        if (raw) {
+            merge(totals, statsRepository.findStatsByUrisAndTimestampEdges(start, minuteFrom, minuteTo, end, uris));
+        }
+        return sorted(totals);
+    }
+
+    private static List<StatsDto> sorted(Map<AppUri, Long> totals) {
+        return totals.entrySet().stream()
+                .map(e -> new StatsDto(e.getKey().app(), e.getKey().uri(), e.getValue()))
+                .sorted(Comparator.comparing(StatsDto::getHits).reversed())
+                .toList();
+    }
+
+    /**
+     * Hits per app, uri and interval of the range from the rollups, together with what has not
+     * been flushed to them yet. The range must start and end on interval boundaries; the part before
+     * the retention of the rollups is read from raw hits.
+     */
+    public List<RollupDelta> series(SeriesInterval interval, TimeRange range, List<String> uris) {
+        return hitAggregator.snapshot(() -> {
+            Map<BucketKey, Long> counts = new HashMap<>();
+            LocalDateTime split = range.from();
+            LocalDateTime rolledUpFrom = rolledUpFrom();
+            if (rolledUpFrom != null && split.isBefore(rolledUpFrom)) {
+                split = range.to().isBefore(rolledUpFrom) ? range.to() : rolledUpFrom;
+                mergeBuckets(counts, statsRepository.findSeries(interval, new TimeRange(range.from(), split), uris, false));
+            }
+            if (split.isBefore(range.to())) {
+                mergeBuckets(counts, rollupRepository.series(interval, new TimeRange(split, range.to()), uris));
+            }
+            hitAggregator.pendingBuckets(range, uris).forEach((key, hits) -> counts.merge(
+                    new BucketKey(key.bucket().truncatedTo(interval.getUnit()), key.app(), key.uri()), hits, Long::sum));
+            return toDeltas(counts);
+        });
+    }
+
+    private Map<AppUri, Long> countMinutes(LocalDateTime minuteFrom, LocalDateTime minuteTo, List<String> uris) {
+        Map<AppUri, Long> totals = new HashMap<>(hitAggregator.pending(new TimeRange(minuteFrom, minuteTo), uris));
+
+        LocalDateTime hourFrom = TimeBuckets.ceil(minuteFrom, ChronoUnit.HOURS);
+        LocalDateTime hourTo = minuteTo.truncatedTo(ChronoUnit.HOURS);
+        if (hourFrom.isBefore(hourTo)) {
+            merge(totals, rollupRepository.sum(RollupLevel.HOUR, List.of(new TimeRange(hourFrom, hourTo)), uris));
+            List<TimeRange> minutes = nonEmpty(new TimeRange(minuteFrom, hourFrom), new TimeRange(hourTo, minuteTo));
+            if (!minutes.isEmpty()) {
+                merge(totals, rollupRepository.sum(RollupLevel.MINUTE, minutes, uris));
+            }
+        } else {
+            merge(totals, rollupRepository.sum(RollupLevel.MINUTE, List.of(new TimeRange(minuteFrom, minuteTo)), uris));
+        }
+        return totals;
+    }
+
+    private static List<TimeRange> nonEmpty(TimeRange... ranges) {
+        return Arrays.stream(ranges)
+                .filter(range -> !range.isEmpty())
+                .toList();
+    }
+
+    private static void mergeBuckets(Map<BucketKey, Long> counts, List<RollupDelta> rows) {
+        for (RollupDelta row : rows) {
+            counts.merge(new BucketKey(row.bucket(), row.app(), row.uri()), row.hits(), Long::sum);
+        }
+    }
+
+    private static void merge(Map<AppUri, Long> totals, List<StatsDto> stats) {
+        for (StatsDto dto : stats) {
+            totals.merge(new AppUri(dto.getApp(), dto.getUri()), dto.getHits(), Long::sum);
+        }
+    }
+}
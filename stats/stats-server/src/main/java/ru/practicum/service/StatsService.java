@@ -1,15 +1,42 @@
 package ru.practicum.service;
 
+import ru.practicum.BatchResultDto;
 import ru.practicum.HitDto;
+import ru.practicum.SeriesDto;
 import ru.practicum.StatsDto;
+import ru.practicum.model.SeriesInterval;
+import ru.practicum.model.TopWindow;
+import ru.practicum.model.UniqueMode;
 
 import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatsService {
 
     HitDto create(HitDto hitDto);
 
-    Collection<StatsDto> get(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique);
+    BatchResultDto createAll(Iterator<HitDto> hitDtos);
+
+    Collection<StatsDto> get(LocalDateTime start, LocalDateTime end, List<String> uris, UniqueMode unique);
+
+    /**
+     * Passes the counts to the consumer ordered by hits descending, at most {@code limit} of them
+     * and only those after the {@code after} row when it is given.
+     */
+    void stream(LocalDateTime start, LocalDateTime end, List<String> uris, UniqueMode unique,
+                Integer limit, StatsDto after, Consumer<StatsDto> consumer);
+
+    /**
+     * The {@code k} most hit uris of the app over the window up to now, from the in-memory leaderboards.
+     */
+    List<StatsDto> top(String app, TopWindow window, int k);
+
+    /**
+     * Counts per interval of the window, which is widened to whole intervals, one series per app and uri.
+     */
+    List<SeriesDto> series(LocalDateTime start, LocalDateTime end, List<String> uris,
+                           SeriesInterval interval, boolean unique);
 }
@@ -1,18 +1,49 @@
 package ru.practicum.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import jakarta.validation.ValidationException;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.config.StatsProperties;
+import ru.practicum.mapper.IpMapper;
+import ru.practicum.model.AppUri;
+import ru.practicum.model.BucketKey;
 import ru.practicum.model.Hit;
+import ru.practicum.model.RollupDelta;
+import ru.practicum.model.SeriesInterval;
+import ru.practicum.model.SeriesVisit;
+import ru.practicum.model.TimeRange;
+import ru.practicum.model.TopWindow;
+import ru.practicum.model.UniqueMode;
+import ru.practicum.model.Visit;
+import ru.practicum.repository.HitJdbcRepository;
+import ru.practicum.repository.QueryMetrics;
 import ru.practicum.repository.StatsRepository;
+import ru.practicum.BatchResultDto;
 import ru.practicum.HitDto;
+import ru.practicum.SeriesDto;
 import ru.practicum.StatsDto;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static ru.practicum.mapper.HitMapper.toHit;
 import static ru.practicum.mapper.HitMapper.toHitDto;
@@ -23,27 +54,317 @@ import static ru.practicum.mapper.HitMapper.toHitDto;
 @Transactional(readOnly = true)
 public class StatsServiceImpl implements StatsService {
 
+    private static final Comparator<StatsDto> BY_HITS = Comparator.comparing(StatsDto::getHits).reversed()
+            .thenComparing(StatsDto::getApp)
+            .thenComparing(StatsDto::getUri);
+
     private final StatsRepository statsRepository;
+    private final HitJdbcRepository hitJdbcRepository;
+    private final RollupService rollupService;
+    private final UniqueSketchService uniqueSketchService;
+    private final HotUriCache hotUriCache;
+    private final TopUriTracker topUriTracker;
+    private final HitAggregator hitAggregator;
+    private final HitArchive hitArchive;
+    private final StatsProperties statsProperties;
+    private final Validator validator;
+    private final ObservationRegistry observationRegistry;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong createdHits = new AtomicLong();
 
     @Transactional
     @Override
     public HitDto create(HitDto hitDto) {
+        return Observation.createNotStarted("stats.ingest", observationRegistry)
+                .lowCardinalityKeyValue("kind", "single")
+                .observe(() -> createHit(hitDto));
+    }
+
+    private HitDto createHit(HitDto hitDto) {
         Hit createdHit = toHit(hitDto);
-        Hit hit = statsRepository.save(createdHit);
-        log.info("The hit {} has been created.", createdHit);
+        try {
+            createdHit.setIp(IpMapper.normalize(createdHit.getIp()));
+        } catch (ru.practicum.exception.ValidationException e) {
+            countIngested("single", 0, 1);
+            throw e;
+        }
+        Hit hit = statsProperties.getIngest().isStoreRaw() ? hitJdbcRepository.save(createdHit) : createdHit;
+        record(List.of(hit));
+        countIngested("single", 1, 0);
+
+        // logging every hit costs more than storing it, so only every n-th one is shown
+        long created = createdHits.incrementAndGet();
+        if (log.isDebugEnabled() && created % statsProperties.getIngest().getLogSampleRate() == 0) {
+            log.debug("The hit {} has been created: app={}, uri={}, {} hits since start.",
+                    hit.getId(), hit.getApp(), hit.getUri(), created);
+        }
         return toHitDto(hit);
     }
 
+    @Transactional
+    @Override
+    public BatchResultDto createAll(Iterator<HitDto> hitDtos) {
+        return Observation.createNotStarted("stats.ingest", observationRegistry)
+                .lowCardinalityKeyValue("kind", "batch")
+                .observe(() -> createBatch(hitDtos));
+    }
+
+    private BatchResultDto createBatch(Iterator<HitDto> hitDtos) {
+        int batchSize = statsProperties.getIngest().getBatchSize();
+        List<Hit> batch = new ArrayList<>(batchSize);
+        long accepted = 0;
+        long rejected = 0;
+
+        while (hitDtos.hasNext()) {
+            HitDto hitDto = hitDtos.next();
+            if (hitDto == null || !validator.validate(hitDto).isEmpty()) {
+                rejected++;
+                continue;
+            }
+            Hit hit = toHit(hitDto);
+            try {
+                hit.setIp(IpMapper.normalize(hit.getIp()));
+            } catch (ru.practicum.exception.ValidationException e) {
+                rejected++;
+                continue;
+            }
+            batch.add(hit);
+            if (batch.size() == batchSize) {
+                saveAll(batch);
+                accepted += batch.size();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            saveAll(batch);
+            accepted += batch.size();
+        }
+
+        countIngested("batch", accepted, rejected);
+        log.info("Batch of hits has been saved: accepted={}, rejected={}.", accepted, rejected);
+        return new BatchResultDto(accepted, rejected);
+    }
+
     @Override
-    public Collection<StatsDto> get(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+    public Collection<StatsDto> get(LocalDateTime start, LocalDateTime end, List<String> uris, UniqueMode unique) {
 
         if (start.isAfter(end))
             throw new ValidationException("The start date must be earlier than the end date.");
 
-        if (unique) {
+        Observation observation = Observation.createNotStarted("stats.query", observationRegistry)
+                .lowCardinalityKeyValue("shape", QueryMetrics.shape(uris))
+                .lowCardinalityKeyValue("unique", unique.name().toLowerCase());
+        return observation.observe(() -> query(observation, start, end, uris, unique));
+    }
+
+    private Collection<StatsDto> query(Observation observation, LocalDateTime start, LocalDateTime end,
+                                       List<String> uris, UniqueMode unique) {
+        if (isEstimated(unique)) {
+            observation.lowCardinalityKeyValue("source", "sketch");
+            return uniqueSketchService.estimate(start, end, uris);
+        }
+        if (hitArchive.covers(start)) {
+            observation.lowCardinalityKeyValue("source", "archive");
+            return archived(start, end, uris, unique != UniqueMode.NONE);
+        }
+        if (unique != UniqueMode.NONE) {
+            observation.lowCardinalityKeyValue("source", "raw");
             return statsRepository.findUniqueStatsByUrisAndTimestampBetween(start, end, uris);
         }
+        if (hotUriCache.isEnabled() && uris != null && !uris.isEmpty() && hotUriCache.isOpenEnded(end)) {
+            observation.lowCardinalityKeyValue("source", "cache");
+            return hotUriCache.get(start, uris, missing -> countHits(start, LocalDateTime.now(), missing));
+        }
+        observation.lowCardinalityKeyValue("source", rollupsEnabled() ? "rollup" : "raw");
+        return countHits(start, end, uris);
+    }
+
+    /**
+     * Archived days are answered from the segments plus whatever arrived for them after they were
+     * archived and still waits in {@code hits}; the rest of the window is queried as usual.
+     */
+    private Collection<StatsDto> archived(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        Map<AppUri, Long> counts = new HashMap<>();
+        if (unique) {
+            Set<Visit> visits = hitArchive.visits(start, end, uris);
+            visits.addAll(statsRepository.findVisitsByUrisAndTimestampBetween(start, end, uris));
+            visits.forEach(visit -> counts.merge(new AppUri(visit.app(), visit.uri()), 1L, Long::sum));
+        } else {
+            LocalDateTime horizon = hitArchive.getHorizon();
+            counts.putAll(hitArchive.count(start, end, uris));
+            // BETWEEN is inclusive, and timestamps have microsecond precision on PostgreSQL
+            LocalDateTime archivedEnd = end.isBefore(horizon) ? end : horizon.minusNanos(1000);
+            merge(counts, statsRepository.findStatsByUrisAndTimestampBetween(start, archivedEnd, uris));
+            if (!end.isBefore(horizon)) {
+                merge(counts, countHits(horizon, end, uris));
+            }
+        }
+        return counts.entrySet().stream()
+                .map(e -> new StatsDto(e.getKey().app(), e.getKey().uri(), e.getValue()))
+                .sorted(BY_HITS)
+                .toList();
+    }
+
+    private static void merge(Map<AppUri, Long> counts, Collection<StatsDto> stats) {
+        stats.forEach(dto -> counts.merge(new AppUri(dto.getApp(), dto.getUri()), dto.getHits(), Long::sum));
+    }
+
+    @Override
+    public void stream(LocalDateTime start, LocalDateTime end, List<String> uris, UniqueMode unique,
+                       Integer limit, StatsDto after, Consumer<StatsDto> consumer) {
+        if (statsProperties.getIngest().isStoreRaw() && !isEstimated(unique) && !hitArchive.covers(start)) {
+            statsRepository.streamStats(start, end, uris, unique != UniqueMode.NONE, limit, after, consumer);
+            return;
+        }
+        // estimates and archived windows are built in memory anyway, they are only ordered and paged the same way here
+        Comparator<StatsDto> order = statsRepository.streamOrder();
+        Stream<StatsDto> stats = get(start, end, uris, unique).stream()
+                .sorted(order);
+        if (after != null) {
+            stats = stats.filter(dto -> order.compare(dto, after) > 0);
+        }
+        if (limit != null) {
+            stats = stats.limit(limit);
+        }
+        stats.forEach(consumer);
+    }
+
+    private Collection<StatsDto> countHits(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        if (rollupsEnabled()) {
+            return rollupService.count(start, end, uris);
+        }
         return statsRepository.findStatsByUrisAndTimestampBetween(start, end, uris);
     }
 
+    @Override
+    public List<StatsDto> top(String app, TopWindow window, int k) {
+        return topUriTracker.top(app, window, k);
+    }
+
+    @Override
+    public List<SeriesDto> series(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                  SeriesInterval interval, boolean unique) {
+        ChronoUnit unit = interval.getUnit();
+        TimeRange range = new TimeRange(start.truncatedTo(unit), end.truncatedTo(unit).plus(1, unit));
+        List<RollupDelta> buckets = hitArchive.covers(range.from())
+                ? archivedSeries(interval, range, uris, unique)
+                : liveSeries(interval, range, uris, unique);
+
+        int size = (int) unit.between(range.from(), range.to());
+        Map<AppUri, long[]> series = new HashMap<>();
+        for (RollupDelta bucket : buckets) {
+            long[] hits = series.computeIfAbsent(new AppUri(bucket.app(), bucket.uri()), key -> new long[size]);
+            hits[(int) unit.between(range.from(), bucket.bucket())] += bucket.hits();
+        }
+        return series.entrySet().stream()
+                .map(e -> new SeriesDto(e.getKey().app(), e.getKey().uri(), range.from(), interval.name(), e.getValue()))
+                .sorted(Comparator.comparing(SeriesDto::getApp).thenComparing(SeriesDto::getUri))
+                .toList();
+    }
+
+    private List<RollupDelta> liveSeries(SeriesInterval interval, TimeRange range, List<String> uris, boolean unique) {
+        return unique || !rollupsEnabled()
+                ? statsRepository.findSeries(interval, range, uris, unique)
+                : rollupService.series(interval, range, uris);
+    }
+
+    /**
+     * Like {@link #archived}: archived days come from the segments plus what arrived for them later,
+     * the rest of the range from the live series. The horizon is a day boundary, so it splits no interval.
+     */
+    private List<RollupDelta> archivedSeries(SeriesInterval interval, TimeRange range, List<String> uris,
+                                             boolean unique) {
+        Map<BucketKey, Long> counts = new HashMap<>();
+        if (unique) {
+            Set<SeriesVisit> visits = hitArchive.seriesVisits(interval, range, uris);
+            visits.addAll(statsRepository.findSeriesVisits(interval, range, uris));
+            visits.forEach(visit -> counts.merge(
+                    new BucketKey(visit.bucket(), visit.app(), visit.uri()), 1L, Long::sum));
+        } else {
+            LocalDateTime horizon = hitArchive.getHorizon();
+            counts.putAll(hitArchive.countSeries(interval, range, uris));
+            LocalDateTime archivedTo = range.to().isBefore(horizon) ? range.to() : horizon;
+            mergeBuckets(counts, statsRepository.findSeries(interval, new TimeRange(range.from(), archivedTo), uris, false));
+            if (range.to().isAfter(horizon)) {
+                mergeBuckets(counts, liveSeries(interval, new TimeRange(horizon, range.to()), uris, false));
+            }
+        }
+        return counts.entrySet().stream()
+                .map(e -> new RollupDelta(e.getKey().app(), e.getKey().uri(), e.getKey().bucket(), e.getValue()))
+                .toList();
+    }
+
+    private static void mergeBuckets(Map<BucketKey, Long> counts, List<RollupDelta> rows) {
+        rows.forEach(row -> counts.merge(new BucketKey(row.bucket(), row.app(), row.uri()), row.hits(), Long::sum));
+    }
+
+    private void countIngested(String kind, long accepted, long rejected) {
+        if (accepted > 0) {
+            meterRegistry.counter("stats.ingest.hits", "kind", kind, "outcome", "accepted").increment(accepted);
+        }
+        if (rejected > 0) {
+            meterRegistry.counter("stats.ingest.hits", "kind", kind, "outcome", "rejected").increment(rejected);
+        }
+    }
+
+    private void saveAll(List<Hit> hits) {
+        if (statsProperties.getIngest().isStoreRaw()) {
+            hitJdbcRepository.saveAll(hits);
+        }
+        record(hits);
+    }
+
+    private void record(List<Hit> hits) {
+        // in-memory structures only see hits that are actually committed
+        List<Hit> committed = List.copyOf(hits);
+        boolean cached = hotUriCache.isEnabled();
+        boolean buffered = hitAggregator.isEnabled();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                // the aggregator records the sketches itself, inside the generation of its segment
+                if (!buffered && sketchesEnabled()) {
+                    uniqueSketchService.record(committed);
+                }
+                if (cached) {
+                    hotUriCache.record(committed);
+                }
+                if (topUriTracker.isEnabled()) {
+                    topUriTracker.record(committed);
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (cached) {
+                    hotUriCache.endIngest();
+                }
+            }
+        });
+        if (cached) {
+            // held until the hits are recorded after the commit
+            hotUriCache.beginIngest();
+        }
+        if (buffered) {
+            // written ahead before the commit and counted after it
+            hitAggregator.record(committed);
+        } else if (rollupsEnabled()) {
+            rollupService.record(hits);
+        }
+    }
+
+    private boolean rollupsEnabled() {
+        return statsProperties.rollupsEnabled();
+    }
+
+    private boolean isEstimated(UniqueMode unique) {
+        return unique == UniqueMode.APPROX && sketchesEnabled()
+                || unique != UniqueMode.NONE && !statsProperties.getIngest().isStoreRaw();
+    }
+
+    private boolean sketchesEnabled() {
+        return statsProperties.sketchesEnabled();
+    }
+
 }
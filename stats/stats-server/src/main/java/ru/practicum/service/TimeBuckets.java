@@ -0,0 +1,15 @@
+package ru.practicum.service;
+
+import lombok.experimental.UtilityClass;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+@UtilityClass
+public class TimeBuckets {
+
+    public static LocalDateTime ceil(LocalDateTime time, ChronoUnit unit) {
+        LocalDateTime truncated = time.truncatedTo(unit);
+        return truncated.equals(time) ? time : truncated.plus(1, unit);
+    }
+}
@@ -0,0 +1,221 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.StatsDto;
+import ru.practicum.config.StatsProperties;
+import ru.practicum.exception.ValidationException;
+import ru.practicum.model.Hit;
+import ru.practicum.model.RollupDelta;
+import ru.practicum.model.TopWindow;
+import ru.practicum.repository.RollupRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Leaderboards of the most hit uris per app over the last hour, day or week, kept up to date on
+ * ingest so that /stats/top is answered from memory in time proportional to k. A window is split
+ * into slots and moves one slot at a time: the counts of a slot that falls out are subtracted again.
+ * Beyond {@code max-uris} per app a new uri takes over the slot counts of the least hit one, as in
+ * space-saving: a rising uri can always climb the board, and its count is over by at most that minimum.
+ * The leaderboards belong to this instance and are rebuilt from the rollups on startup.
+ */
+@Slf4j
+@Component
+public class TopUriTracker implements MeterBinder {
+
+    private final StatsProperties statsProperties;
+    private final RollupRepository rollupRepository;
+    private final Map<TopWindow, ConcurrentMap<String, Leaderboard>> leaderboards = new EnumMap<>(TopWindow.class);
+
+    public TopUriTracker(StatsProperties statsProperties, RollupRepository rollupRepository) {
+        this.statsProperties = statsProperties;
+        this.rollupRepository = rollupRepository;
+        if (statsProperties.getTop().isEnabled()) {
+            statsProperties.getTop().getWindows().forEach(window -> leaderboards.put(window, new ConcurrentHashMap<>()));
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        if (!isEnabled() || !statsProperties.rollupsEnabled()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (TopWindow window : leaderboards.keySet()) {
+            List<RollupDelta> buckets = rollupRepository.findBuckets(window.getRollupLevel(), now.minus(window.getLength()));
+            for (RollupDelta bucket : buckets) {
+                leaderboard(window, bucket.app()).add(bucket.uri(), millis(bucket.bucket()), bucket.hits(), millis(now));
+            }
+            log.info("The {} leaderboards have been rebuilt from {} rollup rows.", window, buckets.size());
+        }
+    }
+
+    public boolean isEnabled() {
+        return !leaderboards.isEmpty();
+    }
+
+    public void record(Collection<Hit> hits) {
+        record(hits, LocalDateTime.now());
+    }
+
+    public List<StatsDto> top(String app, TopWindow window, int k) {
+        return top(app, window, k, LocalDateTime.now());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        leaderboards.forEach((window, boards) -> Gauge.builder("stats.top.uris", boards,
+                        b -> b.values().stream().mapToInt(Leaderboard::size).sum())
+                .tag("window", window.name().toLowerCase())
+                .register(registry));
+    }
+
+    void record(Collection<Hit> hits, LocalDateTime now) {
+        long nowMillis = millis(now);
+        for (TopWindow window : leaderboards.keySet()) {
+            for (Hit hit : hits) {
+                leaderboard(window, hit.getApp()).add(hit.getUri(), millis(hit.getTimestamp()), 1, nowMillis);
+            }
+        }
+    }
+
+    List<StatsDto> top(String app, TopWindow window, int k, LocalDateTime now) {
+        ConcurrentMap<String, Leaderboard> boards = leaderboards.get(window);
+        if (boards == null) {
+            throw new ValidationException("The " + window.name().toLowerCase() + " window is not tracked.");
+        }
+        Leaderboard board = boards.get(app);
+        return board == null ? List.of() : board.top(app, k, millis(now));
+    }
+
+    private Leaderboard leaderboard(TopWindow window, String app) {
+        StatsProperties.Top properties = statsProperties.getTop();
+        return leaderboards.get(window).computeIfAbsent(app, a -> new Leaderboard(
+                window.getLength().toMillis() / properties.getSlots(), properties.getSlots(), properties.getMaxUris()));
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private record Ranked(String uri, long hits) {
+
+        static final Comparator<Ranked> ORDER = Comparator.comparingLong(Ranked::hits).reversed()
+                .thenComparing(Ranked::uri);
+    }
+
+    private static class Leaderboard {
+
+        private final long slotMillis;
+        private final int maxUris;
+        // hits per uri in each slot of the window, indexed by the absolute slot number modulo their count
+        private final List<Map<String, Long>> slots;
+        private final Map<String, Long> totals = new HashMap<>();
+        private final TreeSet<Ranked> ranking = new TreeSet<>(Ranked.ORDER);
+        private long newestSlot;
+
+        Leaderboard(long slotMillis, int slotCount, int maxUris) {
+            this.slotMillis = slotMillis;
+            this.maxUris = maxUris;
+            this.slots = new ArrayList<>(slotCount);
+            for (int i = 0; i < slotCount; i++) {
+                slots.add(new HashMap<>());
+            }
+        }
+
+        synchronized void add(String uri, long timeMillis, long hits, long nowMillis) {
+            advance(nowMillis / slotMillis);
+            // hits stamped ahead of this clock count as current
+            long slot = Math.min(timeMillis / slotMillis, newestSlot);
+            if (slot <= newestSlot - slots.size()) {
+                return;
+            }
+            long total = totals.getOrDefault(uri, 0L);
+            if (total == 0 && totals.size() >= maxUris && !ranking.isEmpty()) {
+                total = replace(ranking.last(), uri);
+            }
+            slots.get(index(slot)).merge(uri, hits, Long::sum);
+            update(uri, total, total + hits);
+        }
+
+        synchronized List<StatsDto> top(String app, int k, long nowMillis) {
+            advance(nowMillis / slotMillis);
+            List<StatsDto> top = new ArrayList<>(Math.min(k, ranking.size()));
+            Iterator<Ranked> ranked = ranking.iterator();
+            while (top.size() < k && ranked.hasNext()) {
+                Ranked next = ranked.next();
+                top.add(new StatsDto(app, next.uri(), next.hits()));
+            }
+            return top;
+        }
+
+        synchronized int size() {
+            return totals.size();
+        }
+
+        private void advance(long slot) {
+            if (slot <= newestSlot) {
+                return;
+            }
+            // slots up to slot - slots.size() leave the window, at most all that are in it now
+            long last = Math.min(slot - slots.size(), newestSlot);
+            for (long expired = newestSlot - slots.size() + 1; expired <= last; expired++) {
+                Map<String, Long> counts = slots.get(index(expired));
+                counts.forEach((uri, hits) -> {
+                    Long total = totals.get(uri);
+                    if (total != null) {
+                        update(uri, total, total - hits);
+                    }
+                });
+                counts.clear();
+            }
+            newestSlot = slot;
+        }
+
+        private void update(String uri, long oldTotal, long newTotal) {
+            if (oldTotal > 0) {
+                ranking.remove(new Ranked(uri, oldTotal));
+            }
+            if (newTotal > 0) {
+                totals.put(uri, newTotal);
+                ranking.add(new Ranked(uri, newTotal));
+            } else {
+                totals.remove(uri);
+            }
+        }
+
+        // the counts move per slot, so that they still leave the window when their slot does
+        private long replace(Ranked least, String uri) {
+            ranking.remove(least);
+            totals.remove(least.uri());
+            for (Map<String, Long> counts : slots) {
+                Long hits = counts.remove(least.uri());
+                if (hits != null) {
+                    counts.merge(uri, hits, Long::sum);
+                }
+            }
+            return least.hits();
+        }
+
+        private int index(long slot) {
+            return (int) Math.floorMod(slot, (long) slots.size());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.StatsDto;
+import ru.practicum.config.StatsProperties;
+import ru.practicum.model.AppUri;
+import ru.practicum.model.BucketKey;
+import ru.practicum.model.Hit;
+import ru.practicum.model.TimeRange;
+import ru.practicum.model.Visit;
+import ru.practicum.repository.SketchRepository;
+import ru.practicum.repository.StatsRepository;
+import ru.practicum.sketch.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps one HyperLogLog sketch of visitor IPs per (app, uri, hour). New IPs go into in-memory
+ * sketches that are periodically merged into {@code hits_hour_sketch}; approximate unique queries
+ * merge the stored and pending sketches of the whole hours in the window and add the raw IPs of
+ * the partial hours at both ends.
+ */
+@Slf4j
+@Service
+public class UniqueSketchService {
+
+    private final SketchRepository sketchRepository;
+    private final StatsRepository statsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int precision;
+    private final boolean storeRaw;
+
+    private final ConcurrentMap<BucketKey, HyperLogLog> pending = new ConcurrentHashMap<>();
+
+    public UniqueSketchService(SketchRepository sketchRepository,
+                               StatsRepository statsRepository,
+                               PlatformTransactionManager transactionManager,
+                               StatsProperties statsProperties) {
+        this.sketchRepository = sketchRepository;
+        this.statsRepository = statsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.precision = HyperLogLog.precisionFor(statsProperties.getUnique().getRelativeError());
+        this.storeRaw = statsProperties.getIngest().isStoreRaw();
+    }
+
+    public void record(Collection<Hit> hits) {
+        for (Hit hit : hits) {
+            BucketKey key = new BucketKey(hit.getTimestamp().truncatedTo(ChronoUnit.HOURS), hit.getApp(), hit.getUri());
+            // compute() is atomic per key, so an IP is either in the sketch taken by flush() or in its successor
+            pending.compute(key, (k, sketch) -> {
+                HyperLogLog target = sketch != null ? sketch : new HyperLogLog(precision);
+                target.add(hit.getIp());
+                return target;
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats.unique.flush-interval:PT10S}")
+    public void flush() {
+        int flushed = 0;
+        for (BucketKey key : pending.keySet()) {
+            HyperLogLog sketch = pending.remove(key);
+            if (sketch == null) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> sketchRepository.merge(key, sketch));
+                flushed++;
+            } catch (RuntimeException e) {
+                // merging is idempotent, so the sketch can simply be retried with the next flush
+                pending.merge(key, sketch, HyperLogLog::union);
+                log.error("Error flushing unique sketch {}: {}", key, e.getMessage());
+            }
+        }
+        if (flushed > 0) {
+            log.debug("{} unique sketches have been flushed.", flushed);
+        }
+    }
+
+    /**
+     * Without raw hits the partial hours at both ends cannot be read, so the window is widened to
+     * the whole hours containing {@code start} and {@code end}.
+     */
+    public List<StatsDto> estimate(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        boolean raw = storeRaw;
+        LocalDateTime hourFrom = raw ? TimeBuckets.ceil(start, ChronoUnit.HOURS) : start.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime hourTo = raw ? end.truncatedTo(ChronoUnit.HOURS) : end.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        if (raw && !hourFrom.isBefore(hourTo)) {
+            return statsRepository.findUniqueStatsByUrisAndTimestampBetween(start, end, uris);
+        }
+
+        TimeRange hours = new TimeRange(hourFrom, hourTo);
+        Set<String> uriFilter = uris == null || uris.isEmpty() ? null : new HashSet<>(uris);
+        Map<AppUri, HyperLogLog> merged = new HashMap<>();
+
+        sketchRepository.find(hours, uris).forEach((key, sketch) -> union(merged, key, sketch));
+        pending.forEach((key, sketch) -> {
+            boolean inRange = !key.bucket().isBefore(hourFrom) && key.bucket().isBefore(hourTo);
+            if (inRange && (uriFilter == null || uriFilter.contains(key.uri()))) {
+                union(merged, key, sketch);
+            }
+        });
+        List<Visit> edges = raw
+                ? statsRepository.findVisitsByUrisAndTimestampEdges(start, hourFrom, hourTo, end, uris)
+                : List.of();
+        for (Visit visit : edges) {
+            merged.computeIfAbsent(new AppUri(visit.app(), visit.uri()), k -> new HyperLogLog(precision))
+                    .add(visit.ip());
+        }
+
+        return merged.entrySet().stream()
+                .map(e -> new StatsDto(e.getKey().app(), e.getKey().uri(), e.getValue().estimate()))
+                .sorted(Comparator.comparing(StatsDto::getHits).reversed())
+                .toList();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    // stored and pending sketches are never mutated here, the accumulator always starts from a copy
+    private static void union(Map<AppUri, HyperLogLog> merged, BucketKey key, HyperLogLog sketch) {
+        merged.compute(new AppUri(key.app(), key.uri()), (k, acc) -> acc == null ? sketch.copy() : acc.union(sketch));
+    }
+}
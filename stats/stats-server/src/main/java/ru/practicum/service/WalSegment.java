@@ -0,0 +1,169 @@
+package ru.practicum.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import ru.practicum.HitDto;
+import ru.practicum.mapper.HitMapper;
+import ru.practicum.model.Hit;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One append-only write-ahead file with a batch of hits per line. A batch can be cancelled by a
+ * later abort line when the transaction it was written for rolls back. A segment is deleted once
+ * the counters of its generation are committed to the rollup tables.
+ */
+class WalSegment implements Closeable {
+
+    private static final String SUFFIX = ".wal";
+
+    private final long id;
+    private final Path path;
+    private final FileChannel channel;
+    private final ObjectMapper objectMapper;
+    private final boolean sync;
+    private final AtomicLong batches = new AtomicLong();
+    // not a monitor: a virtual thread blocked in fsync inside synchronized would pin its carrier thread
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    private WalSegment(long id, Path path, ObjectMapper objectMapper, boolean sync) throws IOException {
+        this.id = id;
+        this.path = path;
+        this.objectMapper = objectMapper;
+        this.sync = sync;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    static WalSegment create(Path dir, long id, ObjectMapper objectMapper, boolean sync) {
+        try {
+            return new WalSegment(id, dir.resolve(id + SUFFIX), objectMapper, sync);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static long idOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    static boolean isSegment(Path path) {
+        return path.getFileName().toString().matches("\\d+\\" + SUFFIX);
+    }
+
+    /**
+     * The hits of the batches that were not aborted, in the order they were written.
+     */
+    static List<Hit> read(Path path, ObjectMapper objectMapper) throws IOException {
+        ObjectReader reader = objectMapper.readerFor(HitDto.class);
+        Map<Long, List<Hit>> batches = new LinkedHashMap<>();
+        Set<Long> aborted = new HashSet<>();
+        try (BufferedReader lines = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode record;
+                try {
+                    record = objectMapper.readTree(line);
+                } catch (JsonProcessingException e) {
+                    // a torn last line means the process died before the batch could commit
+                    continue;
+                }
+                if (record.has("abort")) {
+                    aborted.add(record.get("abort").asLong());
+                } else if (!record.has("batch")) {
+                    // a single hit per line, as written before batches were numbered
+                    batches.put(-(long) batches.size() - 1, List.of(HitMapper.toHit(reader.readValue(record))));
+                } else {
+                    List<Hit> hits = new ArrayList<>();
+                    for (JsonNode hit : record.get("hits")) {
+                        hits.add(HitMapper.toHit(reader.readValue(hit)));
+                    }
+                    batches.put(record.get("batch").asLong(), hits);
+                }
+            }
+        }
+        List<Hit> hits = new ArrayList<>();
+        batches.forEach((batch, batchHits) -> {
+            if (!aborted.contains(batch)) {
+                hits.addAll(batchHits);
+            }
+        });
+        return hits;
+    }
+
+    long getId() {
+        return id;
+    }
+
+    /**
+     * Writes the hits as one batch and returns its number within the segment.
+     */
+    long append(List<Hit> hits) {
+        long batch = batches.incrementAndGet();
+        ObjectNode record = objectMapper.createObjectNode().put("batch", batch);
+        record.set("hits", objectMapper.valueToTree(hits.stream().map(HitMapper::toHitDto).toList()));
+        write(record);
+        return batch;
+    }
+
+    void abort(long batch) {
+        write(objectMapper.createObjectNode().put("abort", batch));
+    }
+
+    private void write(ObjectNode record) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+            objectMapper.writeValue(buffer, record);
+            buffer.write('\n');
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            appendLock.lock();
+            try {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                if (sync) {
+                    channel.force(false);
+                }
+            } finally {
+                appendLock.unlock();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
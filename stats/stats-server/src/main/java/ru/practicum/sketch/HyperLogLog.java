@@ -0,0 +1,189 @@
+package ru.practicum.sketch;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * HyperLogLog distinct counter with one byte per register. Sketches of equal precision merge by
+ * taking the register-wise maximum, so merging is associative and idempotent: the same sketch can
+ * be folded into a stored one any number of times without changing the estimate.
+ */
+public class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 16;
+
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Smallest precision whose standard error {@code 1.04 / sqrt(2^p)} does not exceed the given bound.
+     */
+    public static int precisionFor(double relativeError) {
+        int precision = (int) Math.ceil(Math.log(Math.pow(1.04 / relativeError, 2)) / Math.log(2));
+        return Math.max(MIN_PRECISION, Math.min(MAX_PRECISION, precision));
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        HyperLogLog sketch = new HyperLogLog(buffer.get());
+        if (buffer.get() == DENSE) {
+            buffer.get(sketch.registers);
+        } else {
+            while (buffer.hasRemaining()) {
+                int index = Short.toUnsignedInt(buffer.getShort());
+                sketch.registers[index] = buffer.get();
+            }
+        }
+        return sketch;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public synchronized void add(String value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (Long.SIZE - precision));
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (registers[index] < rank) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * Returns a new sketch counting the union of both inputs. Sketches of different precision are
+     * combined at the lower one, so changing the configured error bound keeps stored sketches usable.
+     */
+    public HyperLogLog union(HyperLogLog other) {
+        int unionPrecision = Math.min(precision, other.precision);
+        HyperLogLog union = reduce(unionPrecision);
+        union.mergeRegisters(other.reduce(unionPrecision).registers);
+        return union;
+    }
+
+    public HyperLogLog copy() {
+        return reduce(precision);
+    }
+
+    private HyperLogLog reduce(int targetPrecision) {
+        byte[] snapshot = snapshot();
+        HyperLogLog reduced = new HyperLogLog(targetPrecision);
+        if (targetPrecision == precision) {
+            System.arraycopy(snapshot, 0, reduced.registers, 0, snapshot.length);
+            return reduced;
+        }
+        int shift = precision - targetPrecision;
+        for (int i = 0; i < snapshot.length; i++) {
+            if (snapshot[i] == 0) {
+                continue;
+            }
+            // index bits dropped by the lower precision become the leading bits of the rank word
+            int low = i & ((1 << shift) - 1);
+            int rank = low == 0
+                    ? shift + snapshot[i]
+                    : Integer.numberOfLeadingZeros(low) - (Integer.SIZE - shift) + 1;
+            int index = i >>> shift;
+            if (reduced.registers[index] < rank) {
+                reduced.registers[index] = (byte) rank;
+            }
+        }
+        return reduced;
+    }
+
+    private synchronized void mergeRegisters(byte[] otherRegisters) {
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] < otherRegisters[i]) {
+                registers[i] = otherRegisters[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        byte[] snapshot = snapshot();
+        int m = snapshot.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : snapshot) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Serializes the sketch as {@code [precision, encoding, payload]}. Sparse sketches, typical for
+     * quiet URIs, are written as (index, register) pairs instead of the full register array.
+     */
+    public byte[] toBytes() {
+        byte[] snapshot = snapshot();
+        int nonZero = 0;
+        for (byte register : snapshot) {
+            if (register != 0) {
+                nonZero++;
+            }
+        }
+        if (nonZero * 3 < snapshot.length) {
+            ByteBuffer buffer = ByteBuffer.allocate(2 + nonZero * 3)
+                    .put((byte) precision)
+                    .put(SPARSE);
+            for (int i = 0; i < snapshot.length; i++) {
+                if (snapshot[i] != 0) {
+                    buffer.putShort((short) i).put(snapshot[i]);
+                }
+            }
+            return buffer.array();
+        }
+        return ByteBuffer.allocate(2 + snapshot.length)
+                .put((byte) precision)
+                .put(DENSE)
+                .put(snapshot)
+                .array();
+    }
+
+    private synchronized byte[] snapshot() {
+        return Arrays.copyOf(registers, registers.length);
+    }
+
+    private static double alpha(int m) {
+        return switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+    }
+
+    // FNV-1a over the UTF-8 bytes followed by the MurmurHash3 finalizer to spread the bits.
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
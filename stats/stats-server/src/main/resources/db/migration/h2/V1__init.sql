@@ -0,0 +1,46 @@
+CREATE TABLE hits (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    app VARCHAR(64) NOT NULL,
+    uri VARCHAR(256) NOT NULL,
+    ip VARCHAR(64) NOT NULL,
+    timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+CREATE INDEX idx_hits_uri_timestamp ON hits(uri, timestamp);
+
+CREATE TABLE hits_minute (
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app VARCHAR(64) NOT NULL,
+    uri VARCHAR(256) NOT NULL,
+    hits BIGINT NOT NULL,
+    PRIMARY KEY (bucket, app, uri)
+);
+
+CREATE INDEX idx_hits_minute_uri ON hits_minute(uri, bucket);
+
+CREATE TABLE hits_hour (
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app VARCHAR(64) NOT NULL,
+    uri VARCHAR(256) NOT NULL,
+    hits BIGINT NOT NULL,
+    PRIMARY KEY (bucket, app, uri)
+);
+
+CREATE INDEX idx_hits_hour_uri ON hits_hour(uri, bucket);
+
+CREATE TABLE hits_hour_sketch (
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app VARCHAR(64) NOT NULL,
+    uri VARCHAR(256) NOT NULL,
+    sketch BYTEA NOT NULL,
+    PRIMARY KEY (bucket, app, uri)
+);
+
+CREATE INDEX idx_hits_hour_sketch_uri ON hits_hour_sketch(uri, bucket);
+
+CREATE TABLE ingest_checkpoint (
+    id INT PRIMARY KEY,
+    segment BIGINT NOT NULL
+);
+
+INSERT INTO ingest_checkpoint (id, segment) VALUES (1, 0);
@@ -0,0 +1,24 @@
+-- H2 only backs the in-memory local and test profiles, so there are never hits to carry over.
+
+CREATE TABLE apps (
+    id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(64) NOT NULL UNIQUE
+);
+
+CREATE TABLE uris (
+    id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(256) NOT NULL UNIQUE
+);
+
+DROP INDEX idx_hits_uri_timestamp;
+DROP TABLE hits;
+
+CREATE TABLE hits (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    app_id INT NOT NULL,
+    uri_id INT NOT NULL,
+    ip VARBINARY(16) NOT NULL,
+    timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+CREATE INDEX idx_hits_uri_timestamp ON hits(uri_id, timestamp);
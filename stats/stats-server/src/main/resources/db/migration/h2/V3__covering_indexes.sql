@@ -0,0 +1,6 @@
+-- H2 has no INCLUDE, so the covered columns are trailing key columns.
+CREATE INDEX idx_hits_uri_timestamp_covering ON hits(uri_id, timestamp, app_id, ip);
+
+CREATE INDEX idx_hits_timestamp_covering ON hits(timestamp, app_id, uri_id, ip);
+
+DROP INDEX idx_hits_uri_timestamp;
@@ -0,0 +1,76 @@
+-- Before migrations the schema was recreated on every start; whatever the last run left behind is kept.
+ALTER TABLE IF EXISTS hits RENAME TO hits_legacy;
+
+CREATE TABLE hits (
+    id BIGSERIAL,
+    app VARCHAR(64) NOT NULL,
+    uri VARCHAR(256) NOT NULL,
+    ip VARCHAR(64) NOT NULL,
+    timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+-- Rows outside of the partitions created by HitPartitionManager; they are moved out when their partition is made.
+CREATE TABLE hits_default PARTITION OF hits DEFAULT;
+
+CREATE INDEX idx_hits_uri_timestamp ON hits(uri, timestamp);
+
+DO $$
+BEGIN
+    IF to_regclass('hits_legacy') IS NOT NULL THEN
+        INSERT INTO hits (app, uri, ip, timestamp) SELECT app, uri, ip, timestamp FROM hits_legacy;
+        DROP TABLE hits_legacy;
+    END IF;
+END $$;
+
+CREATE TABLE IF NOT EXISTS hits_minute (
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app VARCHAR(64) NOT NULL,
+    uri VARCHAR(256) NOT NULL,
+    hits BIGINT NOT NULL,
+    PRIMARY KEY (bucket, app, uri)
+);
+
+CREATE INDEX IF NOT EXISTS idx_hits_minute_uri ON hits_minute(uri, bucket);
+
+CREATE TABLE IF NOT EXISTS hits_hour (
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app VARCHAR(64) NOT NULL,
+    uri VARCHAR(256) NOT NULL,
+    hits BIGINT NOT NULL,
+    PRIMARY KEY (bucket, app, uri)
+);
+
+CREATE INDEX IF NOT EXISTS idx_hits_hour_uri ON hits_hour(uri, bucket);
+
+-- Non-unique queries are answered from the rollups, so they are rebuilt from the hits kept above.
+-- Rollups left behind by the last run already count those hits, or more of them when raw rows were
+-- not stored, so the larger count wins.
+INSERT INTO hits_minute (bucket, app, uri, hits)
+SELECT date_trunc('minute', timestamp), app, uri, COUNT(*) FROM hits GROUP BY 1, 2, 3
+ON CONFLICT (bucket, app, uri) DO UPDATE SET hits = GREATEST(hits_minute.hits, EXCLUDED.hits);
+
+INSERT INTO hits_hour (bucket, app, uri, hits)
+SELECT date_trunc('hour', timestamp), app, uri, COUNT(*) FROM hits GROUP BY 1, 2, 3
+ON CONFLICT (bucket, app, uri) DO UPDATE SET hits = GREATEST(hits_hour.hits, EXCLUDED.hits);
+
+CREATE TABLE IF NOT EXISTS hits_hour_sketch (
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app VARCHAR(64) NOT NULL,
+    uri VARCHAR(256) NOT NULL,
+    sketch BYTEA NOT NULL,
+    PRIMARY KEY (bucket, app, uri)
+);
+
+CREATE INDEX IF NOT EXISTS idx_hits_hour_sketch_uri ON hits_hour_sketch(uri, bucket);
+
+-- The sketches are built by UniqueSketchService and cannot be computed here, so hours from before this
+-- migration have none unless the last run left them behind: unique=approx undercounts those hours,
+-- while unique=exact, the default, still counts them from the raw hits.
+
+CREATE TABLE IF NOT EXISTS ingest_checkpoint (
+    id INT PRIMARY KEY,
+    segment BIGINT NOT NULL
+);
+
+INSERT INTO ingest_checkpoint (id, segment) VALUES (1, 0) ON CONFLICT DO NOTHING;
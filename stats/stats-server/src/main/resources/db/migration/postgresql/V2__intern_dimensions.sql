@@ -0,0 +1,36 @@
+CREATE TABLE apps (
+    id SERIAL PRIMARY KEY,
+    name VARCHAR(64) NOT NULL UNIQUE
+);
+
+CREATE TABLE uris (
+    id SERIAL PRIMARY KEY,
+    name VARCHAR(256) NOT NULL UNIQUE
+);
+
+INSERT INTO apps (name) SELECT DISTINCT app FROM hits;
+INSERT INTO uris (name) SELECT DISTINCT uri FROM hits;
+
+-- 4 bytes for IPv4, 16 for IPv6: inet_send prefixes the address with family, bits, is_cidr and length.
+-- Text that is no address is kept as an address of the discard-only prefix 100::/64 made from its hash,
+-- so that the hit still counts, and distinct values still count as distinct visitors.
+CREATE FUNCTION pack_ip(value TEXT) RETURNS BYTEA AS $$
+BEGIN
+    RETURN substring(inet_send(value::inet) FROM 5);
+EXCEPTION WHEN invalid_text_representation THEN
+    RETURN decode('0100000000000000', 'hex') || substring(decode(md5(value), 'hex') FROM 1 FOR 8);
+END $$ LANGUAGE plpgsql IMMUTABLE;
+
+ALTER TABLE hits ADD COLUMN app_id INT, ADD COLUMN uri_id INT, ADD COLUMN ip_address BYTEA;
+
+UPDATE hits h SET app_id = a.id, uri_id = u.id, ip_address = pack_ip(h.ip)
+FROM apps a, uris u
+WHERE a.name = h.app AND u.name = h.uri;
+
+DROP FUNCTION pack_ip(TEXT);
+
+ALTER TABLE hits DROP COLUMN app, DROP COLUMN uri, DROP COLUMN ip;
+ALTER TABLE hits RENAME COLUMN ip_address TO ip;
+ALTER TABLE hits ALTER COLUMN app_id SET NOT NULL, ALTER COLUMN uri_id SET NOT NULL, ALTER COLUMN ip SET NOT NULL;
+
+CREATE INDEX idx_hits_uri_timestamp ON hits(uri_id, timestamp);
@@ -0,0 +1,8 @@
+-- Both shapes of the hits queries are answered from an index alone, without visiting the table:
+-- a list of uris by equality on uri_id and a timestamp range, all uris by the timestamp range only.
+-- Partitions attached later by HitPartitionManager get the same indexes.
+CREATE INDEX idx_hits_uri_timestamp_covering ON hits(uri_id, timestamp) INCLUDE (app_id, ip);
+
+CREATE INDEX idx_hits_timestamp_covering ON hits(timestamp) INCLUDE (app_id, uri_id, ip);
+
+DROP INDEX idx_hits_uri_timestamp;
@@ -0,0 +1,7 @@
+-- segment files in stats.archive.dir; a file without a row here was never committed and is discarded
+CREATE TABLE hits_archive (
+    name VARCHAR(64) PRIMARY KEY,
+    range_from TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    range_to TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits BIGINT NOT NULL
+);
@@ -1,13 +0,0 @@
-DROP TABLE IF EXISTS hits;
-
-CREATE TABLE IF NOT EXISTS hits (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    app VARCHAR(64) NOT NULL,
-    uri VARCHAR(256) NOT NULL,
-    ip VARCHAR(64) NOT NULL,
-    timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL
-);
-
-CREATE INDEX idx_hit_timestamp ON hits(timestamp);
-CREATE INDEX idx_hit_uri ON hits(uri);
-CREATE INDEX idx_hit_ip ON hits(ip);
\ No newline at end of file
@@ -0,0 +1,137 @@
+package ru.practicum;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bursts of concurrent hit POSTs against stats-server in platform-thread and in virtual-thread mode.
+ * Requests may be shed with 503 under overload, anything else counts as an error.
+ * Run with {@code mvn -Pload -pl stats/stats-server -am test}; the burst can be changed with
+ * {@code -Dload.requests}, {@code -Dload.concurrency} and {@code -Dload.ingest-mode}.
+ */
+@Slf4j
+@Tag("load")
+class ThreadModeLoadTest {
+
+    private static final int REQUESTS = Integer.getInteger("load.requests", 20_000);
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 1_000);
+    private static final String INGEST_MODE = System.getProperty("load.ingest-mode", "direct");
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @TempDir
+    Path walDir;
+
+    @Test
+    void hitBurst_InBothThreadModes_ShouldBeServedWithoutErrors() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        log.info("mode      requests  ok      503   errors  req/s    p50 ms  p99 ms  max ms");
+        log.info(platform.format("platform"));
+        log.info(virtual.format("virtual"));
+        assertEquals(0, platform.errors);
+        assertEquals(0, virtual.errors);
+        assertTrue(virtual.ok > 0);
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        // command line arguments, so that they win over application.yaml
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(StatApplication.class).run(
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--spring.datasource.url=jdbc:h2:mem:load-" + virtualThreads + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "--stats.ingest.wal-dir=" + walDir.resolve(String.valueOf(virtualThreads)),
+                "--stats.ingest.mode=" + INGEST_MODE,
+                "--server.port=0")) {
+            assertEquals(virtualThreads, context.getEnvironment().getProperty("spring.threads.virtual.enabled", Boolean.class));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            burst(port, 1_000, 100);
+            return burst(port, REQUESTS, CONCURRENCY);
+        }
+    }
+
+    private Result burst(int port, int requests, int concurrency) throws InterruptedException {
+        URI uri = URI.create("http://localhost:" + port + "/hit");
+        String timestamp = LocalDateTime.now().format(FORMATTER);
+        long[] latencies = new long[requests];
+        AtomicInteger ok = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(concurrency);
+
+        long started = System.nanoTime();
+        try (HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < requests; i++) {
+                int n = i;
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        HttpRequest request = HttpRequest.newBuilder(uri)
+                                .header("Content-Type", "application/json")
+                                .POST(HttpRequest.BodyPublishers.ofString("{\"app\":\"ewm-main-service\",\"uri\":\"/events/"
+                                        + n % 500 + "\",\"ip\":\"10.0." + n % 250 + ".1\",\"timestamp\":\"" + timestamp + "\"}"))
+                                .build();
+                        long sent = System.nanoTime();
+                        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                        int status = response.statusCode();
+                        latencies[n] = System.nanoTime() - sent;
+                        if (status == 201) {
+                            ok.incrementAndGet();
+                        } else if (status == 503) {
+                            rejected.incrementAndGet();
+                        } else if (errors.getAndIncrement() == 0) {
+                            log.warn("Request failed with {}: {}", status, response.body());
+                        }
+                    } catch (Exception e) {
+                        if (errors.getAndIncrement() == 0) {
+                            log.warn("Request failed", e);
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        Arrays.sort(latencies);
+        return new Result(requests, ok.get(), rejected.get(), errors.get(), requests * 1e9 / elapsed,
+                percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[latencies.length - 1] / 1e6);
+    }
+
+    private double percentile(long[] sorted, double quantile) {
+        return sorted[(int) Math.ceil(quantile * sorted.length) - 1] / 1e6;
+    }
+
+    private record Result(int requests, int ok, int rejected, int errors, double throughput,
+                          double p50, double p99, double max) {
+
+        String format(String mode) {
+            return String.format("%-9s %-9d %-7d %-5d %-7d %-8.0f %-7.1f %-7.1f %.1f",
+                    mode, requests, ok, rejected, errors, throughput, p50, p99, max);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ru.practicum.config;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.practicum.HitDto;
+import ru.practicum.StatsDto;
+import ru.practicum.model.UniqueMode;
+import ru.practicum.service.HitAggregator;
+import ru.practicum.service.StatsService;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Like {@link ReplicaRoutingTest}, with a replica that never receives the flushed rollups.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stat-buffered-primary;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "stats.replica.datasources[0].url=" + BufferedReplicaRoutingTest.REPLICA_URL,
+        "stats.replica.lag-query=SELECT 0",
+        "stats.replica.check-interval=PT1H",
+        "stats.ingest.mode=buffered",
+        "stats.ingest.store-raw=false",
+        "stats.ingest.wal-sync=false",
+        "stats.ingest.flush-interval=PT1H"
+})
+class BufferedReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:stat-buffered-replica;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+    private static final LocalDateTime ORIGIN = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    @TempDir
+    static Path walDir;
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private HitAggregator hitAggregator;
+
+    @Autowired
+    private ReplicaDataSource replicaDataSource;
+
+    @DynamicPropertySource
+    static void walDir(DynamicPropertyRegistry registry) {
+        registry.add("stats.ingest.wal-dir", () -> walDir.toString());
+    }
+
+    @BeforeAll
+    static void createReplica() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(REPLICA_URL, "sa", "");
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration/h2").load().migrate();
+    }
+
+    @Test
+    void get_AfterFlush_ShouldReadRollupsFromPrimary() {
+        HitDto hit = new HitDto();
+        hit.setApp("ewm-main-service");
+        hit.setUri("/buffered");
+        hit.setIp("10.0.0.1");
+        hit.setTimestamp(ORIGIN.plusHours(1));
+        statsService.create(hit);
+        replicaDataSource.checkLag();
+        assertEquals(1, replicaDataSource.getUsableReplicas());
+        assertEquals(List.of(1L), hits(), "pending");
+
+        hitAggregator.flush();
+
+        assertEquals(List.of(1L), hits(), "flushed to the primary's rollups only");
+    }
+
+    private List<Long> hits() {
+        return statsService.get(ORIGIN, ORIGIN.plusDays(1), List.of("/buffered"), UniqueMode.NONE).stream()
+                .map(StatsDto::getHits)
+                .toList();
+    }
+}
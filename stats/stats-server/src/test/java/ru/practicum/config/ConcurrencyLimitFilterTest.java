@@ -0,0 +1,34 @@
+package ru.practicum.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitFilterTest {
+
+    private final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(new StatsProperties(), new ObjectMapper());
+
+    @Test
+    void doFilter_ShouldReleaseSlotWhenChainReturns() throws Exception {
+        filter.doFilter(new MockHttpServletRequest("GET", "/stats"), new MockHttpServletResponse(),
+                (request, response) -> assertEquals(1, filter.getActiveRequests()));
+
+        assertEquals(0, filter.getActiveRequests());
+    }
+
+    @Test
+    void doFilter_WhenRequestGoesAsync_ShouldKeepSlotUntilAsyncCompletes() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/stats/stream");
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+        assertEquals(1, filter.getActiveRequests(), "the response is still being streamed");
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertEquals(0, filter.getActiveRequests());
+    }
+}
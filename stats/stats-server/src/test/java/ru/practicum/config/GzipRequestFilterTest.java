@@ -0,0 +1,73 @@
+package ru.practicum.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "stats.ingest.max-inflated-body=4KB")
+@AutoConfigureMockMvc
+@Transactional
+class GzipRequestFilterTest {
+
+    private static final String HIT = "{\"app\":\"gzip-test\",\"uri\":\"/events/1\",\"ip\":\"10.0.0.1\","
+            + "\"timestamp\":\"2025-06-01 12:00:00\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void createAll_WithGzippedBatch_ShouldInflateIt() throws Exception {
+        String body = "[" + String.join(",", HIT, HIT, HIT) + "]";
+
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .content(gzip(body)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.accepted").value(3));
+    }
+
+    @Test
+    void createAll_WhenBodyInflatesBeyondCap_ShouldReturnPayloadTooLarge() throws Exception {
+        String[] hits = new String[100];
+        Arrays.fill(hits, HIT);
+
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .content(gzip(String.join("\n", hits))))
+                .andExpect(status().isPayloadTooLarge());
+    }
+
+    @Test
+    void createAll_WithBodyThatIsNoGzip_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .content("[" + HIT + "]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static byte[] gzip(String body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,82 @@
+package ru.practicum.config;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.practicum.HitDto;
+import ru.practicum.StatsDto;
+import ru.practicum.model.UniqueMode;
+import ru.practicum.service.StatsService;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two H2 databases stand in for a primary and a replica that does not receive the primary's writes,
+ * so whichever one answered a query shows in its result. The replica reports its lag from a table.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stat-primary;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "stats.replica.datasources[0].url=" + ReplicaRoutingTest.REPLICA_URL,
+        "stats.replica.lag-query=SELECT seconds FROM replica_lag",
+        "stats.replica.max-lag=PT5S",
+        "stats.replica.check-interval=PT1H"
+})
+class ReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:stat-replica;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+    private static final LocalDateTime ORIGIN = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    private static JdbcTemplate replica;
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private ReplicaDataSource replicaDataSource;
+
+    @BeforeAll
+    static void createReplica() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(REPLICA_URL, "sa", "");
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration/h2").load().migrate();
+        replica = new JdbcTemplate(dataSource);
+        replica.execute("CREATE TABLE IF NOT EXISTS replica_lag (seconds DOUBLE PRECISION)");
+        replica.update("DELETE FROM replica_lag");
+        replica.update("INSERT INTO replica_lag VALUES (0)");
+    }
+
+    @Test
+    void get_ShouldReadFromReplicaUntilItLags() {
+        HitDto hit = new HitDto();
+        hit.setApp("ewm-main-service");
+        hit.setUri("/routing");
+        hit.setIp("10.0.0.1");
+        hit.setTimestamp(ORIGIN.plusHours(1));
+        statsService.create(hit);
+
+        replicaDataSource.checkLag();
+        assertEquals(1, replicaDataSource.getUsableReplicas());
+        assertTrue(get().isEmpty(), "read from the replica, which did not receive the hit");
+
+        replica.update("UPDATE replica_lag SET seconds = 60");
+        replicaDataSource.checkLag();
+        assertEquals(0, replicaDataSource.getUsableReplicas());
+        assertEquals(List.of(1L), get().stream().map(StatsDto::getHits).toList(), "read from the primary");
+
+        replica.update("UPDATE replica_lag SET seconds = 1");
+        replicaDataSource.checkLag();
+        assertEquals(1, replicaDataSource.getUsableReplicas());
+    }
+
+    private Collection<StatsDto> get() {
+        return statsService.get(ORIGIN, ORIGIN.plusDays(1), List.of("/routing"), UniqueMode.NONE);
+    }
+}
@@ -0,0 +1,67 @@
+package ru.practicum.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// rolled back, so that the hits do not end up in the data set of the other tests
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class StatsControllerTest {
+
+    private static final String VALID = "{\"app\":\"controller-test\",\"uri\":\"/events/1\",\"ip\":\"10.0.0.1\","
+            + "\"timestamp\":\"2025-06-01 12:00:00\"}";
+    private static final String BAD_TIMESTAMP = "{\"app\":\"controller-test\",\"uri\":\"/events/1\",\"ip\":\"10.0.0.1\","
+            + "\"timestamp\":\"yesterday\"}";
+    private static final String NO_APP = "{\"uri\":\"/events/1\",\"ip\":\"10.0.0.1\",\"timestamp\":\"2025-06-01 12:00:00\"}";
+    private static final String BAD_IP = "{\"app\":\"controller-test\",\"uri\":\"/events/1\",\"ip\":\"not-an-ip\","
+            + "\"timestamp\":\"2025-06-01 12:00:00\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void createAll_WithJsonArray_ShouldCountMalformedElementsAsRejected() throws Exception {
+        String body = "[" + String.join(",", VALID, BAD_TIMESTAMP, VALID, NO_APP, "\"hit\"", BAD_IP, "null") + "]";
+
+        mockMvc.perform(post("/hit/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(5));
+    }
+
+    @Test
+    void createAll_WithNdjson_ShouldCountMalformedLinesAsRejected() throws Exception {
+        String body = String.join("\n", VALID, BAD_TIMESTAMP, VALID, NO_APP, "\"hit\"", BAD_IP, "{not json") + "\n";
+
+        mockMvc.perform(post("/hit/batch").contentType(MediaType.APPLICATION_NDJSON).content(body))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(5));
+    }
+
+    @Test
+    void createAll_WithEmptyJsonArray_ShouldAcceptNothing() throws Exception {
+        mockMvc.perform(post("/hit/batch").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.accepted").value(0))
+                .andExpect(jsonPath("$.rejected").value(0));
+    }
+
+    @Test
+    void createAll_WithBodyThatIsNoJsonArray_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/hit/batch").contentType(MediaType.APPLICATION_JSON).content(VALID))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/hit/batch").contentType(MediaType.APPLICATION_JSON).content("[" + VALID + ",{"))
+                .andExpect(status().isBadRequest());
+    }
+}
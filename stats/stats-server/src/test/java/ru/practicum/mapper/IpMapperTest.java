@@ -0,0 +1,30 @@
+package ru.practicum.mapper;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.exception.ValidationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IpMapperTest {
+
+    @Test
+    void pack_ShouldUseFourBytesForIpv4AndSixteenForIpv6() {
+        assertArrayEquals(new byte[]{10, 0, 0, (byte) 255}, IpMapper.pack("10.0.0.255"));
+        assertEquals(16, IpMapper.pack("2001:db8::1").length);
+    }
+
+    @Test
+    void normalize_ShouldMapSpellingsOfTheSameAddressToOneForm() {
+        assertEquals(IpMapper.normalize("2001:db8:0:0:0:0:0:1"), IpMapper.normalize("2001:DB8::1"));
+        assertEquals("192.168.0.1", IpMapper.normalize("::ffff:192.168.0.1"));
+    }
+
+    @Test
+    void pack_WhenNotAnIpLiteral_ShouldThrowValidationException() {
+        assertThrows(ValidationException.class, () -> IpMapper.pack("256.0.0.1"));
+        assertThrows(ValidationException.class, () -> IpMapper.pack("10.0.0"));
+        assertThrows(ValidationException.class, () -> IpMapper.pack("localhost"));
+        assertThrows(ValidationException.class, () -> IpMapper.pack("example.com:80"));
+        assertThrows(ValidationException.class, () -> IpMapper.pack("1::2::3"));
+    }
+}
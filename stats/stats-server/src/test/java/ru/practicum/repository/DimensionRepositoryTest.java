@@ -0,0 +1,44 @@
+package ru.practicum.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.Dimension;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class DimensionRepositoryTest {
+
+    @Autowired
+    private DimensionRepository dimensionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void idOf_ShouldInsertOnCallersConnectionAndOnlyCacheCommittedIds() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        assertNull(dimensionRepository.findId(Dimension.URI, "/rolled-back"));
+
+        transaction.executeWithoutResult(status -> {
+            int id = dimensionRepository.idOf(Dimension.URI, "/rolled-back");
+            assertEquals(id, dimensionRepository.idOf(Dimension.URI, "/rolled-back"));
+            assertEquals(1, ((HikariDataSource) dataSource).getHikariPoolMXBean().getActiveConnections());
+            status.setRollbackOnly();
+        });
+        assertNull(dimensionRepository.findId(Dimension.URI, "/rolled-back"));
+
+        Integer committed = transaction.execute(status -> dimensionRepository.idOf(Dimension.URI, "/committed"));
+        assertEquals(committed, dimensionRepository.findId(Dimension.URI, "/committed"));
+        assertEquals("/committed", dimensionRepository.nameOf(Dimension.URI, committed));
+    }
+}
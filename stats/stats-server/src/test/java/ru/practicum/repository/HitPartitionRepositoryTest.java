@@ -0,0 +1,93 @@
+package ru.practicum.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.model.Hit;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the partition DDL against PostgreSQL, in a transaction that is rolled back. Needs the same
+ * database as {@link StatsQueryPlanTest}, e.g.
+ * {@code mvn -pl stats/stats-server -am test -Dtest=HitPartitionRepositoryTest -Dsurefire.failIfNoSpecifiedTests=false
+ * -Dstats.explain.url=jdbc:postgresql://localhost:5432/stats_explain -Dstats.explain.username=postgres
+ * -Dstats.explain.password=12345}.
+ */
+@SpringBootTest
+@Transactional
+@EnabledIfSystemProperty(named = "stats.explain.url", matches = ".+")
+class HitPartitionRepositoryTest {
+
+    private static final String APP = "partition-test";
+    private static final String PARTITION = "hits_p20990101";
+    private static final LocalDateTime FROM = LocalDateTime.of(2099, 1, 1, 0, 0);
+
+    @Autowired
+    private HitPartitionRepository partitionRepository;
+
+    @Autowired
+    private HitJdbcRepository hitRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("stats.explain.url"));
+        registry.add("spring.datasource.username", () -> System.getProperty("stats.explain.username", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getProperty("stats.explain.password", ""));
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("stats.partition.enabled", () -> "false");
+    }
+
+    @Test
+    void create_ShouldMoveHitsOutOfDefaultPartition() {
+        hitRepository.save(new Hit(null, APP, "10.0.0.1", "/events/1", FROM.plusHours(12)));
+        hitRepository.save(new Hit(null, APP, "10.0.0.1", "/events/1", FROM.plusDays(1)));
+        assertTrue(partitionRepository.isPartitioned());
+        assertEquals(2, count("hits_default"));
+
+        partitionRepository.create(PARTITION, FROM, FROM.plusDays(1));
+
+        assertTrue(partitionRepository.findPartitions().contains(PARTITION));
+        assertEquals(1, count(PARTITION));
+        assertEquals(1, count("hits_default"));
+        assertEquals(2, count("hits"));
+    }
+
+    @Test
+    void dropIfEmpty_ShouldKeepPartitionWithHits() {
+        partitionRepository.create(PARTITION, FROM, FROM.plusDays(1));
+        hitRepository.save(new Hit(null, APP, "10.0.0.1", "/events/1", FROM.plusHours(12)));
+
+        assertFalse(partitionRepository.dropIfEmpty(PARTITION));
+
+        jdbcTemplate.update("DELETE FROM " + PARTITION);
+        assertTrue(partitionRepository.dropIfEmpty(PARTITION));
+        assertFalse(partitionRepository.findPartitions().contains(PARTITION));
+    }
+
+    @Test
+    void deleteDefaultBefore_ShouldDeleteOnlyOlderHits() {
+        LocalDateTime old = LocalDateTime.of(1999, 1, 1, 0, 0);
+        hitRepository.save(new Hit(null, APP, "10.0.0.1", "/events/1", old));
+        hitRepository.save(new Hit(null, APP, "10.0.0.1", "/events/1", old.plusDays(2)));
+
+        assertEquals(1, partitionRepository.deleteDefaultBefore(old.plusDays(1)));
+        assertEquals(1, count("hits_default"));
+    }
+
+    private long count(String table) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table
+                + " WHERE app_id = (SELECT id FROM apps WHERE name = ?)", Long.class, APP);
+        return count == null ? 0 : count;
+    }
+}
@@ -0,0 +1,99 @@
+package ru.practicum.repository;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the hits queries are planned as index-only scans on PostgreSQL. Needs a database
+ * the test may write to, e.g.
+ * {@code mvn -pl stats/stats-server -am test -Dtest=StatsQueryPlanTest -Dsurefire.failIfNoSpecifiedTests=false
+ * -Dstats.explain.url=jdbc:postgresql://localhost:5432/stats_explain -Dstats.explain.username=postgres
+ * -Dstats.explain.password=12345}.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "stats.explain.url", matches = ".+")
+class StatsQueryPlanTest {
+
+    private static final String APP = "explain-app";
+    private static final int URIS = 1_000;
+    private static final int HITS = 200_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    private static boolean loaded;
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("stats.explain.url"));
+        registry.add("spring.datasource.username", () -> System.getProperty("stats.explain.username", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getProperty("stats.explain.password", ""));
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("stats.partition.enabled", () -> "false");
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "COUNT(*), false, idx_hits_timestamp_covering",
+            "COUNT(DISTINCT ip), false, idx_hits_timestamp_covering",
+            "COUNT(*), true, idx_hits_uri_timestamp_covering",
+            "COUNT(DISTINCT ip), true, idx_hits_uri_timestamp_covering"
+    })
+    void statsQuery_ShouldBeIndexOnlyScan(String aggregate, boolean filtered, String index) {
+        loadHits();
+        LocalDateTime now = LocalDateTime.now();
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", now.minusMinutes(10))
+                .addValue("end", now);
+        if (filtered) {
+            params.addValue("uriIds", jdbcTemplate.queryForList(
+                    "SELECT id FROM uris WHERE name IN ('/explain/1', '/explain/2', '/explain/3')", Integer.class));
+        }
+
+        String plan = explain(StatsRepository.statsSql(aggregate, StatsRepository.RANGE, filtered, true), params);
+
+        assertTrue(plan.contains("\"Index Only Scan\""), plan);
+        assertTrue(plan.contains(index), plan);
+        assertFalse(plan.contains("\"Seq Scan\""), plan);
+    }
+
+    private String explain(String sql, MapSqlParameterSource params) {
+        List<String> rows = namedJdbcTemplate.queryForList("EXPLAIN (FORMAT JSON) " + sql, params, String.class);
+        return String.join("\n", rows);
+    }
+
+    // one hit every second over the last HITS seconds, spread over URIS uris
+    private void loadHits() {
+        if (loaded) {
+            return;
+        }
+        jdbcTemplate.update("INSERT INTO apps (name) VALUES (?) ON CONFLICT DO NOTHING", APP);
+        jdbcTemplate.update("INSERT INTO uris (name) SELECT '/explain/' || g FROM generate_series(1, ?) g "
+                + "ON CONFLICT DO NOTHING", URIS);
+        jdbcTemplate.update("DELETE FROM hits WHERE app_id = (SELECT id FROM apps WHERE name = ?)", APP);
+        jdbcTemplate.update("INSERT INTO hits (app_id, uri_id, ip, timestamp) "
+                + "SELECT (SELECT id FROM apps WHERE name = ?), "
+                + "(SELECT id FROM uris WHERE name = '/explain/' || (g % ? + 1)), "
+                + "int4send(g % 50000), LOCALTIMESTAMP - g * INTERVAL '1 second' "
+                + "FROM generate_series(1, ?) g", APP, URIS, HITS);
+        // index-only scans skip the table only for pages that VACUUM marked all-visible
+        jdbcTemplate.execute("VACUUM ANALYZE hits");
+        loaded = true;
+    }
+}
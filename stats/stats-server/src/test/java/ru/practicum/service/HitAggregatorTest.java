@@ -0,0 +1,221 @@
+package ru.practicum.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.StatsDto;
+import ru.practicum.config.StatsProperties;
+import ru.practicum.model.AppUri;
+import ru.practicum.model.Hit;
+import ru.practicum.model.IngestMode;
+import ru.practicum.model.RollupLevel;
+import ru.practicum.model.TimeRange;
+import ru.practicum.repository.RollupRepository;
+import ru.practicum.repository.StatsRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class HitAggregatorTest {
+
+    private static final String APP = "hit-aggregator-test";
+    private static final LocalDateTime MINUTE = LocalDateTime.of(2025, 6, 1, 12, 0);
+    private static final TimeRange RANGE = new TimeRange(MINUTE.minusHours(1), MINUTE.plusHours(1));
+
+    @Autowired
+    private RollupRepository rollupRepository;
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    @Autowired
+    private UniqueSketchService uniqueSketchService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @TempDir
+    private Path walDir;
+
+    private final List<HitAggregator> aggregators = new ArrayList<>();
+
+    @AfterEach
+    void stopAggregators() {
+        aggregators.forEach(HitAggregator::stop);
+    }
+
+    @Test
+    void start_WithUncheckpointedSegment_ShouldReplayIt() throws Exception {
+        String uri = "/events/replay";
+        HitAggregator crashed = aggregator();
+        crashed.record(hits(uri, 3));
+
+        // a second instance on the same directory, as after a crash that left the segment behind
+        HitAggregator restarted = aggregator();
+
+        assertEquals(Map.of(new AppUri(APP, uri), 3L), restarted.pending(RANGE, List.of(uri)));
+        restarted.flush();
+        assertEquals(3L, stored(uri));
+        assertEquals(Map.of(), restarted.pending(RANGE, List.of(uri)));
+    }
+
+    @Test
+    void flush_ShouldAdvanceCheckpointAndSkipFlushedSegmentsOnStart() throws Exception {
+        String uri = "/events/checkpoint";
+        HitAggregator aggregator = aggregator();
+        aggregator.record(hits(uri, 2));
+        long before = rollupRepository.findCheckpoint();
+
+        aggregator.flush();
+
+        long checkpoint = rollupRepository.findCheckpoint();
+        assertTrue(checkpoint > before);
+        assertEquals(2L, stored(uri));
+
+        // a segment whose deletion failed after its counters were committed
+        try (WalSegment segment = WalSegment.create(walDir, checkpoint, objectMapper, false)) {
+            segment.append(hits(uri, 2));
+        }
+        HitAggregator restarted = aggregator();
+
+        assertEquals(Map.of(), restarted.pending(RANGE, List.of(uri)));
+        assertFalse(Files.exists(walDir.resolve(checkpoint + ".wal")));
+        assertEquals(2L, stored(uri));
+    }
+
+    @Test
+    void record_InsideTransaction_ShouldCountAfterCommit() throws Exception {
+        String uri = "/events/commit";
+        HitAggregator aggregator = aggregator();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            aggregator.record(hits(uri, 2));
+            assertEquals(Map.of(), aggregator.pending(RANGE, List.of(uri)));
+        });
+
+        assertEquals(Map.of(new AppUri(APP, uri), 2L), aggregator.pending(RANGE, List.of(uri)));
+    }
+
+    @Test
+    void record_WhenCommitFailsAfterAppend_ShouldNeitherCountNorReplay() throws Exception {
+        String uri = "/events/rollback";
+        HitAggregator aggregator = aggregator();
+
+        assertThrows(IllegalStateException.class, () -> new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> {
+                    aggregator.record(hits(uri, 2));
+                    // runs after the aggregator has written the batch ahead
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void beforeCommit(boolean readOnly) {
+                            throw new IllegalStateException("commit failed");
+                        }
+                    });
+                }));
+
+        assertEquals(Map.of(), aggregator.pending(RANGE, List.of(uri)));
+        HitAggregator restarted = aggregator();
+        assertEquals(Map.of(), restarted.pending(RANGE, List.of(uri)));
+    }
+
+    @Test
+    void count_InBufferedMode_ShouldMergePendingAndFlushedCounts() throws Exception {
+        String uri = "/events/merge";
+        HitAggregator aggregator = aggregator();
+        RollupService rollupService = new RollupService(rollupRepository, statsRepository, aggregator, properties());
+
+        aggregator.record(hits(uri, 2));
+        assertEquals(2L, counted(rollupService, uri));
+
+        aggregator.flush();
+        aggregator.record(hits(uri, 1));
+        assertEquals(3L, counted(rollupService, uri));
+        assertEquals(2L, stored(uri));
+    }
+
+    @Test
+    void count_WhileFlushing_ShouldNeverCountHitsTwice() throws Exception {
+        String uri = "/events/concurrent";
+        HitAggregator aggregator = aggregator();
+        RollupService rollupService = new RollupService(rollupRepository, statsRepository, aggregator, properties());
+        AtomicLong recorded = new AtomicLong();
+        AtomicBoolean done = new AtomicBoolean();
+
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 100; i++) {
+                // counted before it is recorded, so that it bounds what a reader may see
+                recorded.incrementAndGet();
+                aggregator.record(hits(uri, 1));
+                aggregator.flush();
+            }
+            done.set(true);
+        });
+        while (!done.get()) {
+            long counted = counted(rollupService, uri);
+            assertTrue(counted <= recorded.get(), counted + " hits counted, " + recorded.get() + " recorded");
+        }
+        writer.get(30, TimeUnit.SECONDS);
+
+        assertEquals(100L, counted(rollupService, uri));
+    }
+
+    private HitAggregator aggregator() throws Exception {
+        HitAggregator aggregator = new HitAggregator(properties(), rollupRepository, uniqueSketchService,
+                transactionManager, objectMapper);
+        aggregator.start();
+        aggregators.add(aggregator);
+        return aggregator;
+    }
+
+    private StatsProperties properties() {
+        StatsProperties properties = new StatsProperties();
+        properties.getIngest().setMode(IngestMode.BUFFERED);
+        properties.getIngest().setStoreRaw(false);
+        properties.getIngest().setWalDir(walDir);
+        properties.getIngest().setWalSync(false);
+        return properties;
+    }
+
+    private static List<Hit> hits(String uri, int count) {
+        List<Hit> hits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            hits.add(new Hit(null, APP, "10.0.0." + i, uri, MINUTE.plusSeconds(i)));
+        }
+        return hits;
+    }
+
+    private long stored(String uri) {
+        return rollupRepository.sum(RollupLevel.MINUTE, List.of(RANGE), List.of(uri)).stream()
+                .filter(stats -> stats.getApp().equals(APP))
+                .mapToLong(StatsDto::getHits)
+                .sum();
+    }
+
+    private static long counted(RollupService rollupService, String uri) {
+        return rollupService.count(RANGE.from(), RANGE.to(), List.of(uri)).stream()
+                .filter(stats -> stats.getApp().equals(APP))
+                .mapToLong(StatsDto::getHits)
+                .sum();
+    }
+}
@@ -0,0 +1,184 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.practicum.HitDto;
+import ru.practicum.SeriesDto;
+import ru.practicum.StatsDto;
+import ru.practicum.model.SeriesInterval;
+import ru.practicum.model.UniqueMode;
+import ru.practicum.repository.StatsRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stat-archive;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "stats.archive.enabled=true",
+        "stats.archive.after=P1D"
+})
+class HitArchiveTest {
+
+    private static final LocalDateTime ORIGIN = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final List<String> URIS = List.of("/events", "/events/1", "/events/2", "/events/3");
+
+    @TempDir
+    static Path archiveDir;
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    @Autowired
+    private HitArchive hitArchive;
+
+    @DynamicPropertySource
+    static void archiveDir(DynamicPropertyRegistry registry) {
+        registry.add("stats.archive.dir", () -> archiveDir.toString());
+    }
+
+    @Test
+    void get_AfterArchiving_ShouldMatchCountsFromDatabase() throws IOException {
+        Random random = new Random(42);
+        List<HitDto> hits = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            hits.add(hit(URIS.get(random.nextInt(URIS.size())), "10.0.0." + random.nextInt(50),
+                    ORIGIN.plusSeconds(random.nextInt(4 * 24 * 3600))));
+        }
+        statsService.createAll(hits.iterator());
+
+        List<LocalDateTime[]> windows = new ArrayList<>();
+        List<Set<StatsDto>> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            LocalDateTime start = ORIGIN.plusSeconds(random.nextInt(3 * 24 * 3600));
+            LocalDateTime end = start.plusSeconds(random.nextInt(2 * 24 * 3600));
+            windows.add(new LocalDateTime[]{start, end});
+            expected.add(get(start, end, UniqueMode.NONE));
+            expected.add(get(start, end, UniqueMode.EXACT));
+        }
+
+        hitArchive.archive(LocalDateTime.now());
+
+        assertTrue(statsRepository.findStatsByUrisAndTimestampBetween(ORIGIN, ORIGIN.plusDays(4), URIS).isEmpty());
+        try (var files = Files.list(archiveDir)) {
+            assertEquals(4, files.filter(file -> file.getFileName().toString().startsWith("hits-202601")).count());
+        }
+        for (int i = 0; i < windows.size(); i++) {
+            LocalDateTime[] window = windows.get(i);
+            String name = "window " + window[0] + " - " + window[1];
+            assertEquals(expected.get(2 * i), get(window[0], window[1], UniqueMode.NONE), name);
+            assertEquals(expected.get(2 * i + 1), get(window[0], window[1], UniqueMode.EXACT), name);
+        }
+    }
+
+    @Test
+    void get_WithHitsAfterArchiving_ShouldCountArchiveAndDatabase() throws IOException {
+        LocalDateTime day = ORIGIN.minusDays(10);
+        statsService.create(hit("/late", "10.0.0.1", day.plusHours(1)));
+        hitArchive.archive(LocalDateTime.now());
+        // arrives for a day that is archived already, and one that is not archived at all
+        statsService.create(hit("/late", "10.0.0.2", day.plusHours(2)));
+        LocalDateTime now = LocalDateTime.now();
+        statsService.create(hit("/late", "10.0.0.1", now.minusMinutes(1)));
+
+        assertEquals(Set.of(new StatsDto("ewm-main-service", "/late", 3L)),
+                get(day, now, List.of("/late"), UniqueMode.NONE));
+        assertEquals(Set.of(new StatsDto("ewm-main-service", "/late", 2L)),
+                get(day, now, List.of("/late"), UniqueMode.EXACT));
+
+        hitArchive.archive(now);
+        assertEquals(Set.of(new StatsDto("ewm-main-service", "/late", 3L)),
+                get(day, now, List.of("/late"), UniqueMode.NONE));
+    }
+
+    @Test
+    void series_AfterArchiving_ShouldCountArchivedDay() throws IOException {
+        LocalDateTime day = ORIGIN.minusDays(20);
+        statsService.create(hit("/series", "10.0.0.1", day.plusHours(1)));
+        statsService.create(hit("/series", "10.0.0.1", day.plusHours(1).plusMinutes(10)));
+        statsService.create(hit("/series", "10.0.0.2", day.plusHours(1).plusMinutes(20)));
+        statsService.create(hit("/series", "10.0.0.1", day.plusHours(5)));
+        hitArchive.archive(LocalDateTime.now());
+        // arrives for the day after it was archived
+        statsService.create(hit("/series", "10.0.0.3", day.plusHours(5)));
+        LocalDateTime end = day.plusHours(23);
+
+        long[] hits = new long[24];
+        hits[1] = 3;
+        hits[5] = 2;
+        assertArrayEquals(hits, series(day, end, SeriesInterval.HOUR, false));
+        hits[1] = 2;
+        assertArrayEquals(hits, series(day, end, SeriesInterval.HOUR, true));
+        assertArrayEquals(new long[]{5}, series(day, end, SeriesInterval.DAY, false));
+        assertArrayEquals(new long[]{3}, series(day, end, SeriesInterval.DAY, true));
+    }
+
+    @Test
+    void stream_WithTiesAcrossArchiving_ShouldPageInOneOrder() throws IOException {
+        LocalDateTime day = ORIGIN.minusDays(30);
+        LocalDateTime end = day.plusHours(23);
+        // interned in this order, so that ids and names order the ties differently
+        List<String> uris = List.of("/tie/z", "/tie/a", "/tie/m", "/tie/top");
+        for (String uri : uris) {
+            for (int i = 0; i < (uri.equals("/tie/top") ? 3 : 2); i++) {
+                statsService.create(hit(uri, "10.0.0." + i, day.plusHours(i + 1)));
+            }
+        }
+        List<StatsDto> expected = new ArrayList<>();
+        statsRepository.streamStats(day, end, uris, false, null, null, expected::add);
+
+        // the first pages come from the table, the rest from the archive
+        List<StatsDto> paged = new ArrayList<>();
+        statsRepository.streamStats(day, end, uris, false, 2, null, paged::add);
+        hitArchive.archive(LocalDateTime.now());
+        while (true) {
+            List<StatsDto> page = new ArrayList<>();
+            statsService.stream(day, end, uris, UniqueMode.NONE, 1, paged.getLast(), page::add);
+            if (page.isEmpty()) {
+                break;
+            }
+            paged.addAll(page);
+        }
+
+        assertEquals(4, expected.size());
+        assertEquals(expected, paged);
+    }
+
+    private long[] series(LocalDateTime start, LocalDateTime end, SeriesInterval interval, boolean unique) {
+        List<SeriesDto> series = statsService.series(start, end, List.of("/series"), interval, unique);
+        assertEquals(1, series.size());
+        return series.getFirst().getHits();
+    }
+
+    private Set<StatsDto> get(LocalDateTime start, LocalDateTime end, UniqueMode unique) {
+        return get(start, end, null, unique);
+    }
+
+    private Set<StatsDto> get(LocalDateTime start, LocalDateTime end, List<String> uris, UniqueMode unique) {
+        return new HashSet<>(statsService.get(start, end, uris, unique));
+    }
+
+    private static HitDto hit(String uri, String ip, LocalDateTime timestamp) {
+        HitDto hit = new HitDto();
+        hit.setApp("ewm-main-service");
+        hit.setUri(uri);
+        hit.setIp(ip);
+        hit.setTimestamp(timestamp);
+        return hit;
+    }
+}
@@ -0,0 +1,71 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.config.StatsProperties;
+import ru.practicum.model.PartitionInterval;
+import ru.practicum.repository.HitPartitionRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+class HitPartitionManagerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 10, 15, 30);
+
+    private final HitPartitionRepository partitionRepository = mock(HitPartitionRepository.class);
+    private final StatsProperties properties = new StatsProperties();
+
+    private HitPartitionManager manager;
+
+    @BeforeEach
+    void setUp() {
+        properties.getPartition().setInterval(PartitionInterval.DAY);
+        properties.getPartition().setPremake(2);
+        properties.getPartition().setRetention(Duration.ofDays(3));
+        manager = new HitPartitionManager(properties, partitionRepository, mock(JdbcTemplate.class));
+    }
+
+    @Test
+    void maintain_ShouldCreateMissingPartitionsAhead() {
+        when(partitionRepository.findPartitions()).thenReturn(List.of("hits_p20250610", "hits_default_old"));
+
+        manager.maintain(NOW);
+
+        verify(partitionRepository, never()).create(eq("hits_p20250610"), any(), any());
+        verify(partitionRepository).create("hits_p20250611",
+                LocalDateTime.of(2025, 6, 11, 0, 0), LocalDateTime.of(2025, 6, 12, 0, 0));
+        verify(partitionRepository).create("hits_p20250612",
+                LocalDateTime.of(2025, 6, 12, 0, 0), LocalDateTime.of(2025, 6, 13, 0, 0));
+        verify(partitionRepository, never()).create(eq("hits_p20250613"), any(), any());
+    }
+
+    @Test
+    void maintain_ShouldDropPartitionsPastRetentionAndOldDefaultHits() {
+        when(partitionRepository.findPartitions()).thenReturn(List.of(
+                "hits_p20250606", "hits_p20250607", "hits_p20250608", "hits_p20250610"));
+
+        manager.maintain(NOW);
+
+        // the cutoff 2025-06-07 15:30 lies inside hits_p20250607, which therefore stays
+        verify(partitionRepository).drop("hits_p20250606");
+        verify(partitionRepository, never()).drop("hits_p20250607");
+        verify(partitionRepository, never()).drop("hits_p20250608");
+        verify(partitionRepository).deleteDefaultBefore(NOW.minusDays(3));
+    }
+
+    @Test
+    void maintain_WithZeroRetention_ShouldKeepEverything() {
+        properties.getPartition().setRetention(Duration.ZERO);
+        when(partitionRepository.findPartitions()).thenReturn(List.of("hits_p20200101"));
+
+        manager.maintain(NOW);
+
+        verify(partitionRepository, never()).drop(anyString());
+        verify(partitionRepository, never()).deleteDefaultBefore(any());
+    }
+}
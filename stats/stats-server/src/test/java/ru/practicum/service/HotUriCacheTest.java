@@ -0,0 +1,102 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.StatsDto;
+import ru.practicum.config.StatsProperties;
+import ru.practicum.model.Hit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotUriCacheTest {
+
+    private static final String APP = "ewm-main-service";
+    private static final String URI = "/events/1";
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    private final HotUriCache cache = new HotUriCache(new StatsProperties());
+    // what the database would count
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void isEnabled_WithReplicas_ShouldBeFalse() {
+        StatsProperties properties = new StatsProperties();
+        properties.getReplica().getDatasources().add(new StatsProperties.Endpoint());
+
+        assertTrue(cache.isEnabled());
+        assertFalse(new HotUriCache(properties).isEnabled());
+    }
+
+    @Test
+    void get_ConcurrentMisses_ShouldLoadOnce() throws Exception {
+        stored.set(5);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<List<StatsDto>> first = CompletableFuture.supplyAsync(() -> cache.get(START, List.of(URI),
+                uris -> {
+                    loading.countDown();
+                    await(release);
+                    return load(uris);
+                }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<List<StatsDto>> second = CompletableFuture.supplyAsync(() -> cache.get(START, List.of(URI),
+                this::load));
+        Thread.sleep(100);
+        // the second miss waits for the first load instead of reading an empty window
+        assertFalse(second.isDone());
+        release.countDown();
+
+        assertEquals(List.of(new StatsDto(APP, URI, 5L)), first.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(new StatsDto(APP, URI, 5L)), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_WhileHitIsCommitted_ShouldCountItOnce() throws Exception {
+        stored.set(2);
+        cache.beginIngest();
+        CompletableFuture<List<StatsDto>> miss = CompletableFuture.supplyAsync(() -> cache.get(START, List.of(URI),
+                this::load));
+        Thread.sleep(100);
+        assertFalse(miss.isDone());
+        // the hit is committed and recorded while the miss waits, so it is part of the load only
+        stored.incrementAndGet();
+        cache.record(List.of(hit()));
+        cache.endIngest();
+        assertEquals(List.of(new StatsDto(APP, URI, 3L)), miss.get(5, TimeUnit.SECONDS));
+
+        // committed after the load, so only recorded into the window
+        cache.beginIngest();
+        stored.incrementAndGet();
+        cache.record(List.of(hit()));
+        cache.endIngest();
+        assertEquals(List.of(new StatsDto(APP, URI, 4L)), cache.get(START, List.of(URI), this::load));
+        assertEquals(1, loads.get());
+    }
+
+    private List<StatsDto> load(List<String> uris) {
+        loads.incrementAndGet();
+        return uris.contains(URI) ? List.of(new StatsDto(APP, URI, stored.get())) : List.of();
+    }
+
+    private static Hit hit() {
+        return new Hit(null, APP, "10.0.0.1", URI, START.plusHours(1));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
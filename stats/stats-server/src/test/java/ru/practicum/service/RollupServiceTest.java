@@ -0,0 +1,124 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.config.StatsProperties;
+import ru.practicum.StatsDto;
+import ru.practicum.model.Hit;
+import ru.practicum.model.RollupDelta;
+import ru.practicum.model.RollupLevel;
+import ru.practicum.model.SeriesInterval;
+import ru.practicum.model.TimeRange;
+import ru.practicum.repository.HitJdbcRepository;
+import ru.practicum.repository.RollupRepository;
+import ru.practicum.repository.StatsRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class RollupServiceTest {
+
+    private static final String APP = "rollup-retention-test";
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 10, 15, 30);
+    private static final LocalDateTime FROM = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    @Autowired
+    private RollupRepository rollupRepository;
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    @Autowired
+    private HitJdbcRepository hitJdbcRepository;
+
+    @Autowired
+    private HitAggregator hitAggregator;
+
+    @Autowired
+    private StatsProperties statsProperties;
+
+    @Test
+    void prune_ShouldDeleteBucketsPastRetention() {
+        RollupService rollupService = withRetention(Duration.ofDays(3));
+        LocalDateTime cutoff = NOW.minusDays(3);
+        for (RollupLevel level : RollupLevel.values()) {
+            LocalDateTime bucket = cutoff.truncatedTo(level.getUnit());
+            rollupRepository.increment(level, List.of(
+                    new RollupDelta(APP, "/events/old", bucket.minus(1, level.getUnit()), 1),
+                    new RollupDelta(APP, "/events/kept", bucket, 1)));
+        }
+
+        rollupService.prune(NOW);
+
+        for (RollupLevel level : RollupLevel.values()) {
+            List<String> uris = rollupRepository.findBuckets(level, FROM).stream()
+                    .filter(delta -> delta.app().equals(APP))
+                    .map(RollupDelta::uri)
+                    .toList();
+            assertEquals(List.of("/events/kept"), uris, level.name());
+        }
+    }
+
+    @Test
+    void prune_WithZeroRetention_ShouldKeepEverything() {
+        assertTrue(statsProperties.getRollup().getRetention().isZero());
+        RollupService rollupService = new RollupService(rollupRepository, statsRepository, hitAggregator,
+                statsProperties);
+        rollupRepository.increment(RollupLevel.HOUR,
+                List.of(new RollupDelta(APP, "/events/old", FROM, 1)));
+
+        rollupService.prune(NOW);
+
+        assertEquals(1, rollupRepository.findBuckets(RollupLevel.HOUR, FROM).stream()
+                .filter(delta -> delta.app().equals(APP))
+                .count());
+    }
+
+    @Test
+    void count_BeforeRetention_ShouldReadRawHits() {
+        RollupService rollupService = withRetention(Duration.ofDays(1));
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime old = now.minusDays(3);
+        LocalDateTime recent = now.truncatedTo(ChronoUnit.HOURS).minusHours(2);
+        hitJdbcRepository.saveAll(List.of(hit(old), hit(old.plusMinutes(5))));
+        // the buckets of the old hits are already pruned, the recent one only exists as rollups
+        for (RollupLevel level : RollupLevel.values()) {
+            rollupRepository.increment(level, List.of(new RollupDelta(APP, "/events/1", recent, 1)));
+        }
+        LocalDateTime end = now.truncatedTo(ChronoUnit.MINUTES);
+
+        assertEquals(2L, hits(rollupService.count(old.minusHours(1), now.minusDays(2), List.of("/events/1"))));
+        assertEquals(3L, hits(rollupService.count(old.minusHours(1), end, List.of("/events/1"))));
+
+        TimeRange days = new TimeRange(old.truncatedTo(ChronoUnit.DAYS), end.truncatedTo(ChronoUnit.DAYS).plusDays(1));
+        assertEquals(3L, rollupService.series(SeriesInterval.DAY, days, List.of("/events/1")).stream()
+                .filter(delta -> delta.app().equals(APP))
+                .mapToLong(RollupDelta::hits)
+                .sum());
+    }
+
+    private RollupService withRetention(Duration retention) {
+        StatsProperties properties = new StatsProperties();
+        properties.getRollup().setRetention(retention);
+        return new RollupService(rollupRepository, statsRepository, hitAggregator, properties);
+    }
+
+    private static Hit hit(LocalDateTime timestamp) {
+        return new Hit(null, APP, "10.0.0.1", "/events/1", timestamp);
+    }
+
+    private static long hits(List<StatsDto> stats) {
+        return stats.stream()
+                .filter(dto -> dto.getApp().equals(APP))
+                .mapToLong(StatsDto::getHits)
+                .sum();
+    }
+}
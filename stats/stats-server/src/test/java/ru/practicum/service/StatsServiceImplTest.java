@@ -0,0 +1,178 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.HitDto;
+import ru.practicum.SeriesDto;
+import ru.practicum.StatsDto;
+import ru.practicum.model.SeriesInterval;
+import ru.practicum.model.UniqueMode;
+import ru.practicum.repository.StatsRepository;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class StatsServiceImplTest {
+
+    private static final LocalDateTime ORIGIN = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final List<String> URIS = List.of("/events", "/events/1", "/events/2", "/events/3");
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    @Autowired
+    private UniqueSketchService uniqueSketchService;
+
+    @BeforeEach
+    void loadHits() {
+        if (statsRepository.count() > 0) {
+            return;
+        }
+        Random random = new Random(42);
+        List<HitDto> hits = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            HitDto hit = new HitDto();
+            hit.setApp(random.nextInt(10) == 0 ? "admin" : "ewm-main-service");
+            hit.setUri(URIS.get(random.nextInt(URIS.size())));
+            hit.setIp("10.0.0." + random.nextInt(50));
+            hit.setTimestamp(ORIGIN.plusSeconds(random.nextInt(4 * 24 * 3600)));
+            hits.add(hit);
+        }
+        hits.subList(0, 10).forEach(statsService::create);
+        statsService.createAll(hits.subList(10, hits.size()).iterator());
+    }
+
+    @Test
+    void get_WithRollups_ShouldMatchRawCounts() {
+        Random random = new Random(7);
+
+        for (int i = 0; i < 200; i++) {
+            LocalDateTime start = ORIGIN.plusSeconds(random.nextInt(3 * 24 * 3600));
+            LocalDateTime end = start.plusSeconds(random.nextInt(2 * 24 * 3600));
+            List<String> uris = random.nextBoolean() ? null : List.of(URIS.get(random.nextInt(URIS.size())));
+
+            Collection<StatsDto> expected = statsRepository.findStatsByUrisAndTimestampBetween(start, end, uris);
+            Collection<StatsDto> actual = statsService.get(start, end, uris, UniqueMode.NONE);
+
+            assertEquals(new HashSet<>(expected), new HashSet<>(actual), "window " + start + " - " + end);
+        }
+    }
+
+    @Test
+    void stream_WithKeysetPages_ShouldReturnEveryRowOnceInOrder() {
+        LocalDateTime end = ORIGIN.plusDays(4);
+        List<StatsDto> all = new ArrayList<>();
+        StatsDto after = null;
+        while (true) {
+            List<StatsDto> page = new ArrayList<>();
+            statsService.stream(ORIGIN, end, null, UniqueMode.NONE, 3, after, page::add);
+            if (page.isEmpty()) {
+                break;
+            }
+            all.addAll(page);
+            after = page.getLast();
+        }
+
+        assertEquals(new HashSet<>(statsService.get(ORIGIN, end, null, UniqueMode.NONE)), new HashSet<>(all));
+        assertEquals(all.size(), new HashSet<>(all).size());
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).getHits() >= all.get(i).getHits());
+        }
+    }
+
+    @Test
+    void get_ShouldOrderByHitsDescending() {
+        List<StatsDto> stats = new ArrayList<>(statsService.get(ORIGIN, ORIGIN.plusDays(4), null, UniqueMode.NONE));
+
+        assertFalse(stats.isEmpty());
+        for (int i = 1; i < stats.size(); i++) {
+            assertTrue(stats.get(i - 1).getHits() >= stats.get(i).getHits());
+        }
+    }
+
+    @Test
+    void get_WithApproxUnique_ShouldStayWithinErrorBound() {
+        uniqueSketchService.flush();
+        Random random = new Random(11);
+
+        for (int i = 0; i < 50; i++) {
+            LocalDateTime start = ORIGIN.plusSeconds(random.nextInt(2 * 24 * 3600));
+            LocalDateTime end = start.plusSeconds(random.nextInt(2 * 24 * 3600));
+
+            Map<String, Long> expected = byAppUri(statsService.get(start, end, null, UniqueMode.EXACT));
+            Map<String, Long> actual = byAppUri(statsService.get(start, end, null, UniqueMode.APPROX));
+
+            assertEquals(expected.keySet(), actual.keySet());
+            expected.forEach((key, hits) -> assertEquals(hits, actual.get(key), hits * 0.05 + 1, key));
+        }
+    }
+
+    @Test
+    void get_WithOpenEndedWindow_ShouldFollowIngestWithoutReload() {
+        List<String> uris = List.of("/events/1", "/events/2");
+        Map<String, Long> before = byAppUri(statsService.get(ORIGIN, LocalDateTime.now(), uris, UniqueMode.NONE));
+
+        HitDto hit = new HitDto();
+        hit.setApp("ewm-main-service");
+        hit.setUri("/events/1");
+        hit.setIp("10.0.0.1");
+        statsService.create(hit);
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Long> cached = byAppUri(statsService.get(ORIGIN, now, uris, UniqueMode.NONE));
+        Map<String, Long> raw = byAppUri(statsRepository.findStatsByUrisAndTimestampBetween(ORIGIN, now, uris));
+
+        assertEquals(before.get("ewm-main-service/events/1") + 1, cached.get("ewm-main-service/events/1"));
+        assertEquals(raw, cached);
+    }
+
+    @Test
+    void series_ShouldMatchCountsPerBucket() {
+        LocalDateTime start = ORIGIN.plusHours(5).plusMinutes(30);
+        for (boolean unique : List.of(false, true)) {
+            List<SeriesDto> series = statsService.series(start, ORIGIN.plusDays(3), null, SeriesInterval.DAY, unique);
+
+            assertFalse(series.isEmpty());
+            for (SeriesDto line : series) {
+                assertEquals(ORIGIN, line.getStart());
+                assertEquals(4, line.getHits().length);
+                for (int i = 0; i < line.getHits().length; i++) {
+                    LocalDateTime from = ORIGIN.plusDays(i);
+                    LocalDateTime to = from.plusDays(1).minusSeconds(1);
+                    Map<String, Long> expected = byAppUri(unique
+                            ? statsRepository.findUniqueStatsByUrisAndTimestampBetween(from, to, List.of(line.getUri()))
+                            : statsRepository.findStatsByUrisAndTimestampBetween(from, to, List.of(line.getUri())));
+                    assertEquals(expected.getOrDefault(line.getApp() + line.getUri(), 0L), line.getHits()[i],
+                            line.getApp() + line.getUri() + " on day " + i);
+                }
+            }
+        }
+
+        List<SeriesDto> rollups = statsService.series(start, ORIGIN.plusDays(2), URIS, SeriesInterval.HOUR, false);
+        Map<String, Long> totals = byAppUri(statsService.get(start.truncatedTo(ChronoUnit.HOURS),
+                ORIGIN.plusDays(2).plusHours(1).minusSeconds(1), URIS, UniqueMode.NONE));
+        assertEquals(totals, rollups.stream().collect(Collectors.toMap(
+                line -> line.getApp() + line.getUri(), line -> Arrays.stream(line.getHits()).sum())));
+    }
+
+    private Map<String, Long> byAppUri(Collection<StatsDto> stats) {
+        return stats.stream()
+                .collect(Collectors.toMap(dto -> dto.getApp() + dto.getUri(), StatsDto::getHits));
+    }
+}
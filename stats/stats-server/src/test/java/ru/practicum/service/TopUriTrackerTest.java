@@ -0,0 +1,90 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.StatsDto;
+import ru.practicum.config.StatsProperties;
+import ru.practicum.model.Hit;
+import ru.practicum.model.TopWindow;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopUriTrackerTest {
+
+    private static final String APP = "ewm-main-service";
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Test
+    void top_ShouldRankUrisByHitsPerApp() {
+        TopUriTracker tracker = new TopUriTracker(new StatsProperties(), null);
+        List<Hit> hits = new ArrayList<>();
+        hits.addAll(hits(APP, "/events/1", 3, NOW));
+        hits.addAll(hits(APP, "/events/2", 5, NOW));
+        hits.addAll(hits(APP, "/events/3", 1, NOW));
+        hits.addAll(hits("admin", "/events/3", 10, NOW));
+        tracker.record(hits, NOW);
+
+        assertEquals(List.of(new StatsDto(APP, "/events/2", 5L), new StatsDto(APP, "/events/1", 3L)),
+                tracker.top(APP, TopWindow.HOUR, 2, NOW));
+        assertEquals(List.of(new StatsDto("admin", "/events/3", 10L)), tracker.top("admin", TopWindow.DAY, 10, NOW));
+        assertTrue(tracker.top("other", TopWindow.DAY, 10, NOW).isEmpty());
+    }
+
+    @Test
+    void top_ShouldOnlyCountHitsInsideWindow() {
+        TopUriTracker tracker = new TopUriTracker(new StatsProperties(), null);
+        tracker.record(hits(APP, "/events/1", 3, NOW.minusMinutes(50)), NOW);
+        tracker.record(hits(APP, "/events/2", 1, NOW), NOW);
+        tracker.record(hits(APP, "/events/3", 7, NOW.minusHours(2)), NOW);
+
+        assertEquals(List.of(new StatsDto(APP, "/events/1", 3L), new StatsDto(APP, "/events/2", 1L)),
+                tracker.top(APP, TopWindow.HOUR, 10, NOW));
+        assertEquals(List.of(new StatsDto(APP, "/events/2", 1L)),
+                tracker.top(APP, TopWindow.HOUR, 10, NOW.plusMinutes(15)));
+        assertEquals(List.of(new StatsDto(APP, "/events/3", 7L), new StatsDto(APP, "/events/1", 3L),
+                new StatsDto(APP, "/events/2", 1L)), tracker.top(APP, TopWindow.DAY, 10, NOW.plusMinutes(15)));
+        assertTrue(tracker.top(APP, TopWindow.HOUR, 10, NOW.plusDays(3)).isEmpty());
+    }
+
+    @Test
+    void record_BeyondMaxUris_ShouldReplaceLeastHitUri() {
+        StatsProperties properties = new StatsProperties();
+        properties.getTop().setMaxUris(2);
+        TopUriTracker tracker = new TopUriTracker(properties, null);
+        tracker.record(hits(APP, "/events/1", 2, NOW), NOW);
+        tracker.record(hits(APP, "/events/2", 3, NOW), NOW);
+        tracker.record(hits(APP, "/events/3", 1, NOW), NOW);
+
+        // /events/3 inherits the 2 hits of /events/1, which bound its overcount
+        assertEquals(List.of(new StatsDto(APP, "/events/2", 3L), new StatsDto(APP, "/events/3", 3L)),
+                tracker.top(APP, TopWindow.WEEK, 10, NOW));
+    }
+
+    @Test
+    void record_WhenBoardIsFull_ShouldLetRisingUriOvertake() {
+        StatsProperties properties = new StatsProperties();
+        properties.getTop().setMaxUris(2);
+        TopUriTracker tracker = new TopUriTracker(properties, null);
+        tracker.record(hits(APP, "/events/1", 5, NOW), NOW);
+        tracker.record(hits(APP, "/events/2", 4, NOW), NOW);
+        for (int i = 0; i < 10; i++) {
+            tracker.record(hits(APP, "/events/3", 1, NOW), NOW);
+        }
+
+        assertEquals(List.of(new StatsDto(APP, "/events/3", 14L)), tracker.top(APP, TopWindow.WEEK, 1, NOW));
+        // the inherited hits leave the window with the slot they were counted in
+        tracker.record(hits(APP, "/events/3", 1, NOW.plusMinutes(50)), NOW.plusMinutes(50));
+        assertEquals(List.of(new StatsDto(APP, "/events/3", 1L)), tracker.top(APP, TopWindow.HOUR, 1, NOW.plusMinutes(70)));
+    }
+
+    private static List<Hit> hits(String app, String uri, int count, LocalDateTime timestamp) {
+        List<Hit> hits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            hits.add(new Hit(null, app, "10.0.0.1", uri, timestamp));
+        }
+        return hits;
+    }
+}
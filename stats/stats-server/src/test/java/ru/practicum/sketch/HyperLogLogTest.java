@@ -0,0 +1,67 @@
+package ru.practicum.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimate_WithManyDistinctValues_ShouldStayWithinErrorBound() {
+        HyperLogLog sketch = new HyperLogLog(HyperLogLog.precisionFor(0.02));
+        for (int i = 0; i < 200_000; i++) {
+            sketch.add(ip(i));
+            sketch.add(ip(i));
+        }
+
+        assertEquals(200_000, sketch.estimate(), 200_000 * 0.06);
+    }
+
+    @Test
+    void union_ShouldCountDistinctValuesOfBothSketches() {
+        HyperLogLog first = new HyperLogLog(12);
+        HyperLogLog second = new HyperLogLog(12);
+        for (int i = 0; i < 30_000; i++) {
+            first.add(ip(i));
+            second.add(ip(i + 15_000));
+        }
+
+        HyperLogLog union = first.union(second);
+
+        assertEquals(45_000, union.estimate(), 45_000 * 0.06);
+        assertEquals(union.estimate(), union.union(second).estimate());
+    }
+
+    @Test
+    void union_WithDifferentPrecision_ShouldUseLowerPrecision() {
+        HyperLogLog precise = new HyperLogLog(14);
+        HyperLogLog coarse = new HyperLogLog(10);
+        for (int i = 0; i < 20_000; i++) {
+            precise.add(ip(i));
+            coarse.add(ip(i));
+        }
+
+        HyperLogLog union = precise.union(coarse);
+
+        assertEquals(10, union.getPrecision());
+        assertEquals(coarse.estimate(), union.estimate());
+    }
+
+    @Test
+    void toBytes_ShouldRoundTripSparseAndDenseSketches() {
+        HyperLogLog sparse = new HyperLogLog(12);
+        sparse.add("10.0.0.1");
+        HyperLogLog dense = new HyperLogLog(12);
+        for (int i = 0; i < 50_000; i++) {
+            dense.add(ip(i));
+        }
+
+        assertTrue(sparse.toBytes().length < 16);
+        assertEquals(1, HyperLogLog.fromBytes(sparse.toBytes()).estimate());
+        assertEquals(dense.estimate(), HyperLogLog.fromBytes(dense.toBytes()).estimate());
+    }
+
+    private String ip(int i) {
+        return "10." + (i >>> 16 & 0xff) + "." + (i >>> 8 & 0xff) + "." + (i & 0xff);
+    }
+}